@@ -0,0 +1,79 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.benchmark;
+
+import com.comphenix.rema1000.io.AbstractTableWriter;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * A table writer that hands every value to a blackhole, isolating the cost of the conversion.
+ */
+public class BlackholeTableWriter extends AbstractTableWriter {
+    private final Blackhole blackhole;
+
+    // Index of the current row (initially -1)
+    private int dataIndex = -1;
+
+    public BlackholeTableWriter(Blackhole blackhole) {
+        this.blackhole = blackhole;
+    }
+
+    @Override
+    public void incrementRow() {
+        dataIndex++;
+    }
+
+    @Override
+    public int getDataRowCount() {
+        return dataIndex + 1;
+    }
+
+    @Override
+    protected void onHeaderCreated(String headerName, int headerIndex) {
+        blackhole.consume(headerName);
+    }
+
+    @Override
+    protected void onWriteValue(int headerIndex, Object value, Class<?> type) {
+        blackhole.consume(value);
+    }
+
+    @Override
+    protected void onWriteLong(int headerIndex, long value) {
+        blackhole.consume(value);
+    }
+
+    @Override
+    protected void onWriteDouble(int headerIndex, double value) {
+        blackhole.consume(value);
+    }
+
+    @Override
+    protected void onWriteBoolean(int headerIndex, boolean value) {
+        blackhole.consume(value);
+    }
+
+    @Override
+    protected void onWriteEpochMillis(int headerIndex, long epochMillis) {
+        blackhole.consume(epochMillis);
+    }
+
+    @Override
+    protected void onClosed() {
+        // NOP
+    }
+}
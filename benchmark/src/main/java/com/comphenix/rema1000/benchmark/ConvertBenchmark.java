@@ -0,0 +1,66 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.benchmark;
+
+import com.comphenix.rema1000.io.DataTableConverter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion of each table, without any output format.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ConvertBenchmark {
+    private final DataTableConverter tableConverter = new DataTableConverter();
+
+    @Benchmark
+    public void writeTableTopList(ExportDataState state, Blackhole blackhole) throws IOException {
+        tableConverter.writeTableTopList(new BlackholeTableWriter(blackhole), state.data.getTopList());
+    }
+
+    @Benchmark
+    public void writeTableTransactions(ExportDataState state, Blackhole blackhole) throws IOException {
+        tableConverter.writeTableTransactions(new BlackholeTableWriter(blackhole), state.transactionList);
+    }
+
+    @Benchmark
+    public void writeTableReceipts(ExportDataState state, Blackhole blackhole) throws IOException {
+        tableConverter.writeTableReceipts(new BlackholeTableWriter(blackhole), state.transactionList);
+    }
+
+    @Benchmark
+    public void writeJoinedTableTransactions(ExportDataState state, Blackhole blackhole) throws IOException {
+        tableConverter.writeJoinedTableTransactions(new BlackholeTableWriter(blackhole), state.transactionList);
+    }
+
+    @Benchmark
+    public void writeTableTransactionsPayments(ExportDataState state, Blackhole blackhole) throws IOException {
+        tableConverter.writeTableTransactionsPayments(new BlackholeTableWriter(blackhole), state.transactionList);
+    }
+
+    @Benchmark
+    public void writeTableTransactionsUsedOffers(ExportDataState state, Blackhole blackhole) throws IOException {
+        tableConverter.writeTableTransactionsUsedOffers(new BlackholeTableWriter(blackhole), state.transactionList);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.benchmark;
+
+import com.comphenix.rema1000.io.json.DataRootReader;
+import com.comphenix.rema1000.io.json.StringPool;
+import com.comphenix.rema1000.io.json.adapter.ModelTypeAdapterFactory;
+import com.comphenix.rema1000.model.DataRoot;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing of the JSON export, as done by the application.
+ * <p>
+ * The hits and misses of the string pool are reported as secondary results of each benchmark.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParseBenchmark {
+    private final StringPool stringPool = new StringPool();
+    private final Gson gson = new GsonBuilder().registerTypeAdapterFactory(new ModelTypeAdapterFactory(stringPool)).create();
+
+    /**
+     * The number of strings found in the string pool, or added to it, in the current iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class StringPoolCounters {
+        public long poolHits;
+        public long poolMisses;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            poolHits = 0;
+            poolMisses = 0;
+        }
+    }
+
+    @Benchmark
+    public DataRoot parseDataRoot(ExportFileState state, StringPoolCounters counters) throws IOException {
+        long hits = stringPool.getHitCount();
+        long misses = stringPool.getMissCount();
+
+        try (BufferedReader reader = Files.newBufferedReader(state.file)) {
+            return new DataRootReader(gson, reader).readDataRoot();
+        } finally {
+            counters.poolHits += stringPool.getHitCount() - hits;
+            counters.poolMisses += stringPool.getMissCount() - misses;
+        }
+    }
+
+    @Benchmark
+    public void readTransactions(ExportFileState state, StringPoolCounters counters, Blackhole blackhole)
+            throws IOException {
+        long hits = stringPool.getHitCount();
+        long misses = stringPool.getMissCount();
+
+        try (DataRootReader reader = new DataRootReader(gson, Files.newBufferedReader(state.file))) {
+            while (reader.hasNext()) {
+                blackhole.consume(reader.next());
+            }
+        } finally {
+            counters.poolHits += stringPool.getHitCount() - hits;
+            counters.poolMisses += stringPool.getMissCount() - misses;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.benchmark;
+
+import com.comphenix.rema1000.io.json.ReceiptEntryIds;
+import com.comphenix.rema1000.model.*;
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates deterministic Rema 1000 exports of a given size.
+ */
+public class SyntheticExport {
+    private static final String[] STORE_NAMES = { "REMA 1000 Storgata", "REMA 1000 Bryn", "REMA 1000 Åsane", "REMA 1000 Tøyen" };
+    private static final String[] PRODUCT_GROUPS = { "Meieri", "Frukt og grønt", "Brød", "Kjøtt", "Drikke", "Frysevarer" };
+    private static final String[] PAYMENT_MEANS = { "Bankkort", "Kontant", "Vipps" };
+    private static final String[] UNITS = { "L", "KG", "STK" };
+
+    // Number of distinct products to draw receipt entries from
+    private static final int PRODUCT_COUNT = 2000;
+
+    private final Gson gson = new GsonBuilder().
+            addSerializationExclusionStrategy(new ExclusionStrategy() {
+                @Override
+                public boolean shouldSkipField(FieldAttributes f) {
+                    // Skip fields generated by the parser
+                    return f.getAnnotation(SerializedName.class) == null;
+                }
+
+                @Override
+                public boolean shouldSkipClass(Class<?> clazz) {
+                    return false;
+                }
+            }).create();
+
+    private final int receiptLines;
+    private final long seed;
+
+    public SyntheticExport(int receiptLines) {
+        this(receiptLines, 0x52454D41L);
+    }
+
+    public SyntheticExport(int receiptLines, long seed) {
+        if (receiptLines < 0) {
+            throw new IllegalArgumentException("receiptLines cannot be negative");
+        }
+        this.receiptLines = receiptLines;
+        this.seed = seed;
+    }
+
+    /**
+     * Write the export to the given file.
+     * @param file the file.
+     */
+    public void write(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(writer);
+        }
+    }
+
+    /**
+     * Write the export as JSON to the given writer, one transaction at a time.
+     * @param writer the writer.
+     */
+    public void write(Writer writer) throws IOException {
+        Random random = new Random(seed);
+        JsonWriter jsonWriter = new JsonWriter(writer);
+
+        jsonWriter.beginObject();
+        jsonWriter.name("TopList");
+        gson.toJson(createTopList(random), TopListMetadata.class, jsonWriter);
+
+        jsonWriter.name("TransactionsInfo").beginObject();
+        jsonWriter.name("BonusTotal").value(random.nextInt(10000));
+        jsonWriter.name("PurchaseTotal").value(random.nextInt(1000000));
+        jsonWriter.name("DiscountTotal").value(random.nextInt(10000));
+        jsonWriter.name("Transactions").beginArray();
+
+        for (int written = 0, index = 0; written < receiptLines; index++) {
+            Transaction transaction = createTransaction(random, index, receiptLines - written);
+            gson.toJson(transaction, Transaction.class, jsonWriter);
+            written += transaction.getReceiptEntries().size();
+        }
+        jsonWriter.endArray();
+        jsonWriter.endObject();
+        jsonWriter.endObject();
+        jsonWriter.flush();
+    }
+
+    /**
+     * Create the full export in memory.
+     * @return The export.
+     */
+    public DataRoot createDataRoot() {
+        Random random = new Random(seed);
+        TopListMetadata topList = createTopList(random);
+        TransactionsInfo.TransactionsInfoBuilder info = TransactionsInfo.newBuilder().
+                withBonusTotal(random.nextInt(10000)).
+                withPurchaseTotal(random.nextInt(1000000)).
+                withDiscountTotal(random.nextInt(10000));
+
+        List<Transaction> transactions = new ArrayList<>();
+
+        for (int written = 0, index = 0; written < receiptLines; index++) {
+            Transaction transaction = createTransaction(random, index, receiptLines - written);
+
+            // Same IDs as the reader
+            ReceiptEntryIds.assignEntryIds(transaction);
+            transactions.add(transaction);
+            written += transaction.getReceiptEntries().size();
+        }
+        return DataRoot.newBuilder().
+                withTopList(topList).
+                withTransactionsInfo(info.withTransactionList(transactions).build()).
+                build();
+    }
+
+    private TopListMetadata createTopList(Random random) {
+        List<ScorecardEntry> scorecard = new ArrayList<>();
+
+        for (int rank = 1; rank <= 100; rank++) {
+            int product = random.nextInt(PRODUCT_COUNT);
+
+            scorecard.add(ScorecardEntry.newBuilder().
+                    withRank(rank).
+                    withProductId(Integer.toString(product)).
+                    withProductName("PRODUKT " + product).
+                    withProductDescription("Produkt nummer " + product).
+                    withCreatedTimeUnix(1500000000000L + random.nextInt(1000000000)).
+                    withModifiedTimeUnix(1500000000000L + random.nextInt(1000000000)).
+                    withAmountUsed(random.nextInt(100000) / 100.0).
+                    withAmountSaved(random.nextInt(10000) / 100.0).
+                    withBarcode(getBarcode(product)).
+                    withTimesBought(random.nextInt(100)).
+                    withItemsBought(random.nextInt(200)).
+                    withAccountId("ACCOUNT").
+                    withProductGroupCode(getProductGroupCode(product)).
+                    withProductGroupDesc(PRODUCT_GROUPS[product % PRODUCT_GROUPS.length]).
+                    withVolume(random.nextInt(20) / 10.0).
+                    build());
+        }
+        return TopListMetadata.newBuilder().withScorecard(scorecard).build();
+    }
+
+    private Transaction createTransaction(Random random, int index, int remainingLines) {
+        int lines = Math.min(remainingLines, 1 + random.nextInt(20));
+        List<ReceiptEntry> receiptEntries = new ArrayList<>(lines);
+        double amount = 0;
+
+        for (int i = 0; i < lines; i++) {
+            ReceiptEntry entry = createReceiptEntry(random);
+            receiptEntries.add(entry);
+            amount += entry.getPriceAmount();
+        }
+        List<TransactionPayment> payments = new ArrayList<>();
+        payments.add(TransactionPayment.newBuilder().
+                withMeansOfPaymentDesc(PAYMENT_MEANS[random.nextInt(PAYMENT_MEANS.length)]).
+                withAmount(amount).
+                build());
+
+        return Transaction.newBuilder().
+                withId(String.format("%016X", seed + index)).
+                withPurchaseDateUnix(1500000000000L + index * 3600_000L).
+                withStoreId(Integer.toString(random.nextInt(STORE_NAMES.length))).
+                withStoreName(STORE_NAMES[random.nextInt(STORE_NAMES.length)]).
+                withAmount(amount).
+                withBonusPoints(random.nextInt(10)).
+                withDiscount(random.nextInt(2000) / 100.0).
+                withTransactionPayments(payments).
+                withReceiptEntries(receiptEntries).
+                build();
+    }
+
+    private ReceiptEntry createReceiptEntry(Random random) {
+        int product = random.nextInt(PRODUCT_COUNT);
+        List<OfferEntry> usedOffers = new ArrayList<>();
+
+        if (random.nextInt(10) == 0) {
+            usedOffers.add(OfferEntry.newBuilder().
+                    withOfferCode("OFFER" + product % 50).
+                    withOfferDescription("3 for 2").
+                    withDiscountFlat(random.nextInt(3000) / 100.0).
+                    withDiscountPercent(random.nextInt(50)).
+                    build());
+        }
+        return ReceiptEntry.newBuilder().
+                withProductCode(Integer.toString(product)).
+                withProductDescription("PRODUKT " + product).
+                withProductText1("Produkt nummer " + product).
+                withProductText2("").
+                withBarcode(getBarcode(product)).
+                withProductGroupCode(getProductGroupCode(product)).
+                withProductGroupDesc(PRODUCT_GROUPS[product % PRODUCT_GROUPS.length]).
+                withBonusBased(random.nextBoolean()).
+                withPieces(1 + random.nextInt(3)).
+                withPriceAmount(random.nextInt(10000) / 100.0).
+                withPriceDiscount(usedOffers.isEmpty() ? 0 : usedOffers.get(0).getDiscountFlat()).
+                withVolumeAmount(random.nextInt(20) / 10.0).
+                withVolumeUnit(UNITS[product % UNITS.length]).
+                withDeposit(product % 7 == 0 ? 2 : 0).
+                withUsedOffers(usedOffers).
+                build();
+    }
+
+    private String getBarcode(int product) {
+        return Long.toString(7038010000000L + product);
+    }
+
+    private String getProductGroupCode(int product) {
+        return Integer.toString(1000 + product % PRODUCT_GROUPS.length);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("SyntheticExport receiptLines destination");
+            return;
+        }
+        new SyntheticExport(Integer.parseInt(args[0])).write(Paths.get(args[1]));
+    }
+}
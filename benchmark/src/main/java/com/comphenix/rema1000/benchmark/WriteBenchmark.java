@@ -0,0 +1,75 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.benchmark;
+
+import com.comphenix.rema1000.io.excel.ExcelWriter;
+import com.comphenix.rema1000.io.json.DataRootReader;
+import com.comphenix.rema1000.io.json.adapter.ModelTypeAdapterFactory;
+import com.comphenix.rema1000.io.sql.SqlWriter;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each output format, both from memory and end-to-end from the JSON file.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class WriteBenchmark {
+    private final Gson gson = new GsonBuilder().registerTypeAdapterFactory(new ModelTypeAdapterFactory()).create();
+
+    @Benchmark
+    public long writeXlsx(ExportDataState state) throws IOException {
+        NullOutputStream output = new NullOutputStream();
+        new ExcelWriter().write(output, state.data);
+        return output.getCount();
+    }
+
+    @Benchmark
+    public long writeSql(ExportDataState state) throws IOException {
+        NullOutputStream output = new NullOutputStream();
+        new SqlWriter().write(output, state.data);
+        return output.getCount();
+    }
+
+    @Benchmark
+    public long convertXlsx(ExportFileState state) throws IOException {
+        NullOutputStream output = new NullOutputStream();
+
+        try (DataRootReader reader = new DataRootReader(gson, Files.newBufferedReader(state.file))) {
+            new ExcelWriter().write(output, reader.readDataRoot());
+        }
+        return output.getCount();
+    }
+
+    @Benchmark
+    public long convertSql(ExportFileState state) throws IOException {
+        NullOutputStream output = new NullOutputStream();
+
+        try (DataRootReader reader = new DataRootReader(gson, Files.newBufferedReader(state.file))) {
+            new SqlWriter().write(output, reader.readDataRoot());
+        }
+        return output.getCount();
+    }
+}
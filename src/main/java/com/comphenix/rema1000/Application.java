@@ -16,33 +16,71 @@
  */
 package com.comphenix.rema1000;
 
-import com.comphenix.rema1000.io.excel.ExcelWriter;
+import com.comphenix.rema1000.io.DataRootWriter;
+import com.comphenix.rema1000.io.DataWriterFactory;
+import com.comphenix.rema1000.io.DataWriterOptions;
+import com.comphenix.rema1000.io.DataWriterRegistry;
+import com.comphenix.rema1000.io.MappedFileReader;
+import com.comphenix.rema1000.io.columnar.ColumnarTransactions;
+import com.comphenix.rema1000.io.json.DataRootReader;
+import com.comphenix.rema1000.io.json.ParallelDataRootParser;
+import com.comphenix.rema1000.io.json.StringPool;
+import com.comphenix.rema1000.io.json.adapter.ModelTypeAdapterFactory;
+import com.comphenix.rema1000.io.merge.DataRootMerger;
+import com.comphenix.rema1000.io.merge.IncrementalState;
+import com.comphenix.rema1000.io.parquet.ParquetTableWriter;
 import com.comphenix.rema1000.io.sql.SqlWriter;
+import com.comphenix.rema1000.io.sql.SqliteWriter;
 import com.comphenix.rema1000.model.DataRoot;
-import com.comphenix.rema1000.model.ReceiptEntry;
 import com.comphenix.rema1000.model.Transaction;
 import com.google.gson.Gson;
-import com.google.gson.stream.JsonReader;
+import com.google.gson.GsonBuilder;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
+import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class Application {
     private static class ArgumentParser {
+        private final DataWriterRegistry registry;
+
         private Path source;
+        private String sourcePattern; // Directory or glob in batch mode
         private Path destination;
-        private DestinationFormat format = null; // Deduce from file extension
+        private String formatName = null; // Deduce from file extension
+        private DataWriterFactory format;
 
         private boolean streamMode;
+        private boolean lowMemory;
+        private boolean memoryMapped;
+        private boolean columnar;
+
+        private Integer batchSize = null; // Default of each format
+        private boolean useTransaction;
+        private boolean compressed;
+        private int threadCount = 1;
+        private int jobCount = Runtime.getRuntime().availableProcessors();
+        private boolean merge;
+        private boolean batchMode;
+        private boolean incremental;
         private int pathCount;
 
         private boolean showHelp;
 
+        ArgumentParser(DataWriterRegistry registry) {
+            this.registry = registry;
+        }
+
         public void parse(String[] args) {
             if (args == null || args.length == 0) {
                 showHelp = true;
@@ -55,13 +93,63 @@ public class Application {
                     switch (arg) {
                         case "-f":
                         case "--format":
-                            format = DestinationFormat.valueOf(args[++i].toUpperCase());
+                            formatName = args[++i];
                             break;
                         case "-s":
                         case "-stream":
                             // Allow no source or destination path
                             streamMode = true;
                             break;
+                        case "-l":
+                        case "--low-memory":
+                            lowMemory = true;
+                            break;
+                        case "-m":
+                        case "--mmap":
+                            memoryMapped = true;
+                            break;
+                        case "-c":
+                        case "--columnar":
+                            columnar = true;
+                            break;
+                        case "-b":
+                        case "--batch-size":
+                            batchSize = Integer.parseInt(args[++i]);
+
+                            if (batchSize < 1) {
+                                throw new IllegalArgumentException("Batch size must be at least 1");
+                            }
+                            break;
+                        case "--transaction":
+                            useTransaction = true;
+                            break;
+                        case "-z":
+                        case "--gzip":
+                            compressed = true;
+                            break;
+                        case "-t":
+                        case "--threads":
+                            threadCount = Integer.parseInt(args[++i]);
+
+                            if (threadCount < 1) {
+                                throw new IllegalArgumentException("Thread count must be at least 1");
+                            }
+                            break;
+                        case "-j":
+                        case "--jobs":
+                            jobCount = Integer.parseInt(args[++i]);
+
+                            if (jobCount < 1) {
+                                throw new IllegalArgumentException("Job count must be at least 1");
+                            }
+                            break;
+                        case "--merge":
+                            merge = true;
+                            break;
+                        case "-i":
+                        case "--incremental":
+                            incremental = true;
+                            break;
                         case "-?":
                         case "-h":
                         case "--help":
@@ -76,7 +164,7 @@ public class Application {
                 // Handle paths
                 switch (pathCount++) {
                     case 0:
-                        source = Paths.get(arg); break;
+                        sourcePattern = arg; break;
                     case 1:
                         destination = Paths.get(arg); break;
                     default:
@@ -87,19 +175,44 @@ public class Application {
             if (!streamMode && pathCount != 2) {
                 throw new IllegalArgumentException("Must supply source and destination path (or enable stream mode).");
             }
-            if (streamMode && format == null && pathCount < 2) {
+            if (streamMode && formatName == null && pathCount < 2) {
                 throw new IllegalArgumentException("Must specify a format in stream mode with no output file");
             }
+            // Convert every file of a directory or glob
+            batchMode = merge || (sourcePattern != null &&
+                    (BatchConverter.isGlob(sourcePattern) || Files.isDirectory(Paths.get(sourcePattern))));
+
+            if (batchMode) {
+                if (streamMode) {
+                    throw new IllegalArgumentException("Cannot use stream mode with a directory or glob of source files");
+                }
+                if (!merge && formatName == null) {
+                    throw new IllegalArgumentException("Must specify a format when converting a directory or glob of source files");
+                }
+            } else if (sourcePattern != null) {
+                source = Paths.get(sourcePattern);
+            }
             computeFormat();
+
+            if (incremental) {
+                if (streamMode || batchMode) {
+                    throw new IllegalArgumentException("Cannot use incremental mode in stream mode or with more than one source file");
+                }
+                if (!format.isAppendSupported()) {
+                    throw new IllegalArgumentException("Incremental mode is not supported by " + format.getFormatName());
+                }
+            }
         }
 
         private void computeFormat() {
-            if (format == null) {
+            if (formatName != null) {
+                format = registry.getFormat(formatName);
+            } else {
                 String fileExtension = getFileExtension(destination).toUpperCase();
 
                 // Deduce format from extension
                 try {
-                    format = DestinationFormat.fromExtension(fileExtension);
+                    format = registry.fromExtension(fileExtension);
                 } catch (IllegalArgumentException e) {
                     throw new IllegalArgumentException("Unable to output JSON to file extension " + fileExtension, e);
                 }
@@ -114,6 +227,54 @@ public class Application {
             return streamMode;
         }
 
+        public boolean isLowMemory() {
+            return lowMemory;
+        }
+
+        public boolean isMemoryMapped() {
+            return memoryMapped;
+        }
+
+        public boolean isColumnar() {
+            return columnar;
+        }
+
+        public Integer getBatchSize() {
+            return batchSize;
+        }
+
+        public boolean isUseTransaction() {
+            return useTransaction;
+        }
+
+        public boolean isCompressed() {
+            return compressed;
+        }
+
+        public int getThreadCount() {
+            return threadCount;
+        }
+
+        public int getJobCount() {
+            return jobCount;
+        }
+
+        public boolean isMerge() {
+            return merge;
+        }
+
+        public boolean isIncremental() {
+            return incremental;
+        }
+
+        /**
+         * Retrieve the state file of incremental mode, stored next to the destination.
+         * @return The state file.
+         */
+        public Path getStateFile() {
+            return destination.resolveSibling(destination.getFileName() + ".state");
+        }
+
         public Path getDestination() {
             return destination;
         }
@@ -122,70 +283,254 @@ public class Application {
             return source;
         }
 
-        public DestinationFormat getFormat() {
+        /**
+         * Determine if more than one source file may be converted, either due to a directory or glob source, or
+         * because the source files should be merged.
+         * @return TRUE if it is, FALSE otherwise.
+         */
+        public boolean isBatchMode() {
+            return batchMode;
+        }
+
+        public String getSourcePattern() {
+            return sourcePattern;
+        }
+
+        public DataWriterFactory getFormat() {
             return format;
         }
+
+        /**
+         * Retrieve the options of the writer of the output format.
+         * @return The writer options.
+         */
+        public DataWriterOptions getWriterOptions() {
+            return DataWriterOptions.newBuilder().
+                    withBatchSize(batchSize).
+                    withUseTransaction(useTransaction).
+                    withCompressed(compressed).
+                    withAppend(incremental).
+                    withThreadCount(threadCount).
+                    build();
+        }
     }
 
     public static void main(String[] args) throws IOException {
-        ArgumentParser parser = new ArgumentParser();
+        ArgumentParser parser = new ArgumentParser(DataWriterRegistry.load());
         parser.parse(args);
 
         if (parser.isShowHelp()) {
-            System.out.println("RemaTransactionParser -f format] [-s] [-h] source destination");
-            System.out.println(" -f format     Specify the output format, either XLSX (Excel 2003) or SQL ");
-            System.out.println("                (Database Export script for SQLite). If not specified, the");
-            System.out.println("                output file extension will be used instead.");
+            System.out.println("RemaTransactionParser [-f format] [-s] [-l] [-m] [-c] [-b rows] [--transaction] [-z] [-t threads] [-j jobs] [--merge] [-i] [-h] source destination");
+            System.out.println(" -f format     Specify the output format, either XLSX (Excel 2003), XLS");
+            System.out.println("                (Excel 97, split into worksheets of 65536 rows), SQL");
+            System.out.println("                (Database Export script for SQLite), SQLITE (SQLite");
+            System.out.println("                database), PARQUET, CSV or TSV (directory of Parquet, CSV or");
+            System.out.println("                TSV files, or a ZIP archive in stream mode). If not");
+            System.out.println("                specified, the output file extension will be used instead.");
+            System.out.println("                Formats added by other JAR-files on the class path may also");
+            System.out.println("                be used.");
             System.out.println(" -s            Enable stream mode, allowing the program to use standard");
             System.out.println("                output or standard input instead of the file system. Format");
             System.out.println("                must be specified if no output file is specified.");
+            System.out.println(" -l            Enable low memory mode, converting one transaction at a time");
+            System.out.println("                instead of reading the whole JSON-file into memory.");
+            System.out.println(" -m            Memory map the JSON-file instead of reading it through a");
+            System.out.println("                buffer. Ignored when reading from standard input.");
+            System.out.println(" -c            Store the receipt entries column by column in memory,");
+            System.out.println("                reducing the memory usage of large exports. The JSON-file");
+            System.out.println("                is parsed on a single thread. Ignored in low memory mode.");
+            System.out.println(" -b rows       Maximum number of rows per INSERT statement in SQL, per");
+            System.out.println("                batch in SQLITE, or per row group in PARQUET. Default is");
+            System.out.println("                " + SqlWriter.DEFAULT_BATCH_SIZE + ", " + SqliteWriter.DEFAULT_BATCH_SIZE + " and " +
+                    ParquetTableWriter.DEFAULT_ROW_GROUP_SIZE + " respectively.");
+            System.out.println(" --transaction Wrap the SQL script in a single transaction, speeding up");
+            System.out.println("                the import of large exports.");
+            System.out.println(" -z            Compress each CSV or TSV file with gzip. Ignored in stream");
+            System.out.println("                mode, as the ZIP archive is already compressed.");
+            System.out.println(" -t threads    Number of threads used to parse the JSON-file and to fill");
+            System.out.println("                the worksheets in XLSX. Ignored in low memory mode.");
+            System.out.println("                Default is 1.");
+            System.out.println(" -j jobs       Number of JSON-files converted at once, when the source is");
+            System.out.println("                a directory or a glob pattern. Default is the number of");
+            System.out.println("                processors.");
+            System.out.println(" --merge       Merge every JSON-file of the source into a single");
+            System.out.println("                destination, skipping transactions with the same ID as a");
+            System.out.println("                previous transaction. Low memory and columnar mode are");
+            System.out.println("                ignored.");
+            System.out.println(" -i            Enable incremental mode, only converting transactions that");
+            System.out.println("                are new since the last run. The rows are appended to an");
+            System.out.println("                existing SQLite database or CSV/TSV directory, or written as");
+            System.out.println("                a SQL script that may be appended to an existing database.");
+            System.out.println("                The last run is recorded in destination.state.");
             System.out.println(" -h            Show this help text.");
-            System.out.println(" source        Path to the JSON-file with the exported Rema 1000 data.");
+            System.out.println(" source        Path to the JSON-file with the exported Rema 1000 data, or");
+            System.out.println("                a directory or glob pattern (such as exports/*.json) of");
+            System.out.println("                JSON-files. May be omitted in stream mode.");
+            System.out.println(" destination   Path to the output XLSX-, XLS-, SQL- or SQLite-file, or");
+            System.out.println("                Parquet, CSV or TSV directory, where the conversion output");
+            System.out.println("                will be written. The directory of each converted file when");
+            System.out.println("                the source is a directory or a glob pattern, unless merged.");
             System.out.println("                May be omitted in stream mode.");
-            System.out.println(" destination   Path to the output XLSX- or SQL-file where the conversion");
-            System.out.println("                output will be written. May be omitted in stream mode.");
             System.out.println("Version: " + Application.class.getPackage().getImplementationVersion());
             return;
         }
-        Gson gson = new Gson();
+        StringPool stringPool = new StringPool();
+        Gson gson = new GsonBuilder().
+                registerTypeAdapterFactory(new ModelTypeAdapterFactory(stringPool)).
+                create();
 
-        try (BufferedReader reader = getInput(parser)) {
-            DataRoot root = parseDataRoot(gson, reader);
+        if (parser.isBatchMode()) {
+            BatchConverter batchConverter = new BatchConverter(parser.getJobCount(), System.out);
+            List<Path> sources = BatchConverter.findSources(parser.getSourcePattern());
 
-            try (OutputStream output = getOutput(parser)) {
-                writeOutput(parser.getFormat(), output, root);
+            if (parser.isMerge()) {
+                DataRootMerger merger = mergeFiles(parser, gson, batchConverter, sources);
+                System.out.println("Merged " + sources.size() + " files to " + parser.getFormat().getFormatName() + ", skipping " +
+                        merger.getDuplicateCount() + " duplicate transactions");
+            } else {
+                convertFiles(parser, gson, batchConverter, sources);
+                System.out.println("Data converted to " + parser.getFormat().getFormatName());
+            }
+        } else if (parser.isIncremental()) {
+            IncrementalState state = convertIncremental(parser, gson);
+            System.out.println("Appended " + state.getNewCount() + " new transactions to " + parser.getFormat().getFormatName() +
+                    ", skipping " + state.getSkippedCount() + " transactions from earlier runs");
+
+            if (state.getNewCount() > 0) {
+                System.out.println("Latest purchase date: " + Instant.ofEpochMilli(state.getHighWaterMark()));
+            }
+        } else {
+            convertFile(parser, gson, parser.getSource(), parser.getDestination());
+
+            if (!parser.isStreamMode()) {
+                System.out.println("Data converted to " + parser.getFormat().getFormatName());
             }
         }
-        if (!parser.isStreamMode()) {
-            System.out.println("Data converted to " + parser.getFormat());
+    }
+
+    /**
+     * Convert every source file to a file of the same name in the destination directory.
+     */
+    private static void convertFiles(ArgumentParser parser, Gson gson, BatchConverter batchConverter,
+                                     List<Path> sources) throws IOException {
+        Map<Path, Path> destinations = new HashMap<>();
+        Set<Path> destinationFiles = new HashSet<>();
+        Files.createDirectories(parser.getDestination());
+
+        for (Path source : sources) {
+            String fileName = source.getFileName().toString();
+            int dotIndex = fileName.lastIndexOf('.');
+            String baseName = dotIndex > 0 ? fileName.substring(0, dotIndex) : fileName;
+            Path destination = parser.getDestination().resolve(baseName + "." + parser.getFormat().getExtensions().get(0));
+
+            if (!destinationFiles.add(destination)) {
+                throw new IllegalArgumentException("More than one source file would be converted to " + destination);
+            }
+            destinations.put(source, destination);
         }
+        batchConverter.<Void>convertAll(sources, source -> {
+            convertFile(parser, gson, source, destinations.get(source));
+            return null;
+        }, (source, result) -> { });
+    }
+
+    /**
+     * Parse every source file in parallel, and write the distinct transactions of every file to the destination.
+     */
+    private static DataRootMerger mergeFiles(ArgumentParser parser, Gson gson, BatchConverter batchConverter,
+                                   List<Path> sources) throws IOException {
+        DataRootMerger merger = new DataRootMerger();
+
+        batchConverter.convertAll(sources, source -> {
+            try (Reader reader = getInput(parser, source)) {
+                return parseDataRoot(parser, gson, reader);
+            }
+        }, (source, root) -> merger.add(root));
+
+        merger.getTransactions().trimToSize();
+        createWriter(parser).write(parser.getDestination(), merger.getDataRoot(), merger.getTransactions());
+        return merger;
     }
 
-    private static DataRoot parseDataRoot(Gson gson, BufferedReader reader) {
-        DataRoot root = gson.fromJson(new JsonReader(reader), DataRoot.class);
-        long receiptId = 0;
+    /**
+     * Append the transactions of the source file that are new since the previous run to the destination.
+     */
+    private static IncrementalState convertIncremental(ArgumentParser parser, Gson gson) throws IOException {
+        IncrementalState state = IncrementalState.load(parser.getStateFile());
+        ColumnarTransactions transactions = new ColumnarTransactions();
 
-        //  Generate IDs
-        if (root.getTransactionsInfo() != null && root.getTransactionsInfo().getTransactionList() != null) {
-            for (Transaction transaction : root.getTransactionsInfo().getTransactionList()) {
-                for (ReceiptEntry entry : transaction.getReceiptEntries()) {
-                    entry.setEntryId(receiptId++);
+        try (Reader reader = getInput(parser, parser.getSource());
+             DataRootReader dataReader = new DataRootReader(gson, reader)) {
+
+            while (dataReader.hasNext()) {
+                Transaction transaction = dataReader.next();
+
+                if (state.add(transaction)) {
+                    transactions.add(transaction);
                 }
             }
+            transactions.trimToSize();
+            createWriter(parser).write(parser.getDestination(), dataReader.getDataRoot(), transactions);
         }
-        return root;
+        // Only remember the new transactions once they have been written
+        state.save(parser.getStateFile());
+        return state;
     }
 
-    private static BufferedReader getInput(ArgumentParser parser) throws IOException {
-        return parser.getSource() != null ?
-                Files.newBufferedReader(parser.getSource()) :
-                new BufferedReader(new InputStreamReader(System.in));
+    /**
+     * Convert a single source file, or standard input, to the given destination or standard output.
+     */
+    private static void convertFile(ArgumentParser parser, Gson gson, Path source, Path destination) throws IOException {
+        DataRootWriter writer = createWriter(parser);
+
+        try (Reader reader = getInput(parser, source)) {
+            if (parser.isLowMemory()) {
+                try (DataRootReader dataReader = new DataRootReader(gson, reader)) {
+                    if (destination != null) {
+                        writer.write(destination, dataReader);
+                    } else {
+                        writer.write(System.out, dataReader);
+                    }
+                }
+            } else if (parser.isColumnar()) {
+                try (DataRootReader dataReader = new DataRootReader(gson, reader)) {
+                    // Convert one transaction at a time
+                    ColumnarTransactions transactions = ColumnarTransactions.fromIterator(dataReader);
+                    DataRoot root = dataReader.getDataRoot();
+
+                    if (destination != null) {
+                        writer.write(destination, root, transactions);
+                    } else {
+                        writer.write(System.out, root, transactions);
+                    }
+                }
+            } else {
+                DataRoot root = parseDataRoot(parser, gson, reader);
+
+                if (destination != null) {
+                    writer.write(destination, root);
+                } else {
+                    writer.write(System.out, root);
+                }
+            }
+        }
     }
 
-    private static OutputStream getOutput(ArgumentParser parser) throws IOException {
-        Path outputFile = parser.getDestination();
+    private static DataRoot parseDataRoot(ArgumentParser parser, Gson gson, Reader reader) throws IOException {
+        if (parser.getThreadCount() > 1) {
+            return new ParallelDataRootParser(gson, parser.getThreadCount()).parse(reader);
+        }
+        // Receipt entry IDs are generated by the reader
+        return new DataRootReader(gson, reader).readDataRoot();
+    }
 
-        return parser.getDestination() != null ? Files.newOutputStream(outputFile) : System.out;
+    private static Reader getInput(ArgumentParser parser, Path source) throws IOException {
+        if (source != null && parser.isMemoryMapped()) {
+            return new MappedFileReader(source);
+        }
+        return source != null ?
+                Files.newBufferedReader(source) :
+                new BufferedReader(new InputStreamReader(System.in));
     }
 
     private static String getFileExtension(Path outputFile) {
@@ -194,16 +539,7 @@ public class Application {
         return dotIndex != -1 ? fileName.substring(dotIndex + 1) : "";
     }
 
-    private static void writeOutput(DestinationFormat format, OutputStream output, DataRoot dataRoot) throws IOException {
-        switch (format) {
-            case XLSX:
-                new ExcelWriter().write(output, dataRoot);
-                break;
-            case SQL:
-                new SqlWriter().write(output, dataRoot);
-                break;
-            default:
-                throw new IllegalArgumentException("Unknown format " + format);
-        }
+    private static DataRootWriter createWriter(ArgumentParser parser) {
+        return parser.getFormat().createWriter(parser.getWriterOptions());
     }
 }
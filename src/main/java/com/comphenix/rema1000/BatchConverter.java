@@ -0,0 +1,245 @@
+/**
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Converts several files on a bounded pool of worker threads, reporting the time spent on each file.
+ * <p>
+ * The result of each file is handed to the calling thread in the order of the files, and at most twice as many
+ * files as there are workers are converted ahead of the file that is currently being handled.
+ */
+class BatchConverter {
+    /**
+     * Converts a single file on a worker thread.
+     * @param <T> type of the result.
+     */
+    @FunctionalInterface
+    interface Conversion<T> {
+        T convert(Path source) throws IOException;
+    }
+
+    /**
+     * Handles the result of a single file on the calling thread.
+     * @param <T> type of the result.
+     */
+    @FunctionalInterface
+    interface ResultHandler<T> {
+        void handle(Path source, T result) throws IOException;
+    }
+
+    private static class Result<T> {
+        private final T value;
+        private final Throwable error;
+        private final long elapsedNanos;
+
+        Result(T value, Throwable error, long elapsedNanos) {
+            this.value = value;
+            this.error = error;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+
+    // Default files in a source directory
+    private static final String DEFAULT_DIRECTORY_GLOB = "*.json";
+
+    private final int jobCount;
+    private final PrintStream log;
+
+    BatchConverter(int jobCount, PrintStream log) {
+        if (jobCount < 1) {
+            throw new IllegalArgumentException("jobCount must be at least 1");
+        }
+        this.jobCount = jobCount;
+        this.log = Objects.requireNonNull(log, "log cannot be NULL");
+    }
+
+    /**
+     * Determine if the given source is a glob pattern, such as <i>exports/*.json</i>.
+     * @param source the source.
+     * @return TRUE if it is, FALSE otherwise.
+     */
+    static boolean isGlob(String source) {
+        return getGlobStart(source) >= 0;
+    }
+
+    private static int getGlobStart(String source) {
+        for (int i = 0; i < source.length(); i++) {
+            switch (source.charAt(i)) {
+                case '*':
+                case '?':
+                case '[':
+                case '{':
+                    return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find every file of the given source, sorted by path.
+     * <p>
+     * The source is either a glob pattern, a directory of JSON-files or a single file.
+     * @param source the source.
+     * @return The files.
+     * @throws IllegalArgumentException If no files were found.
+     */
+    static List<Path> findSources(String source) throws IOException {
+        List<Path> result = new ArrayList<>();
+        int globStart = getGlobStart(source);
+
+        if (globStart >= 0) {
+            // Everything before the first wildcard is a plain directory
+            int separator = Math.max(source.lastIndexOf('/', globStart), source.lastIndexOf(File.separatorChar, globStart));
+            Path directory = Paths.get(separator >= 0 ? source.substring(0, separator + 1) : ".");
+            String pattern = source.substring(separator + 1);
+            PathMatcher matcher = directory.getFileSystem().getPathMatcher("glob:" + pattern);
+
+            // Only descend as deep as the pattern
+            int maxDepth = pattern.contains("**") ? Integer.MAX_VALUE : countSeparators(pattern) + 1;
+
+            if (Files.isDirectory(directory)) {
+                try (Stream<Path> files = Files.walk(directory, maxDepth)) {
+                    result.addAll(files.
+                            filter(Files::isRegularFile).
+                            filter(file -> matcher.matches(directory.relativize(file))).
+                            collect(Collectors.toList()));
+                }
+            }
+        } else {
+            Path path = Paths.get(source);
+
+            if (Files.isDirectory(path)) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(path, DEFAULT_DIRECTORY_GLOB)) {
+                    for (Path file : files) {
+                        if (Files.isRegularFile(file)) {
+                            result.add(file);
+                        }
+                    }
+                }
+            } else {
+                result.add(path);
+            }
+        }
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("No files found in " + source);
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static int countSeparators(String pattern) {
+        int count = 0;
+
+        for (int i = 0; i < pattern.length(); i++) {
+            if (pattern.charAt(i) == '/' || pattern.charAt(i) == File.separatorChar) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Convert every given file, and hand each result to the given handler in the order of the files.
+     * <p>
+     * A file that fails to convert is reported, but does not stop the remaining files from being converted.
+     * @param sources the files.
+     * @param conversion the conversion of a single file, called on a worker thread.
+     * @param handler the handler of each result, called on the calling thread.
+     * @param <T> type of the result.
+     * @throws IOException If any of the files failed to convert, or the handler failed.
+     */
+    <T> void convertAll(List<Path> sources, Conversion<T> conversion, ResultHandler<T> handler) throws IOException {
+        int threadCount = Math.min(jobCount, sources.size());
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        Deque<Future<Result<T>>> pending = new ArrayDeque<>();
+        int maxPending = jobCount * 2;
+        int submitted = 0;
+        int failed = 0;
+        long startTime = System.nanoTime();
+
+        try {
+            for (Path source : sources) {
+                while (submitted < sources.size() && pending.size() < maxPending) {
+                    pending.add(submit(executor, sources.get(submitted++), conversion));
+                }
+                Result<T> result = pending.remove().get();
+
+                if (result.error != null) {
+                    log.println(String.format("  %s: failed after %d ms - %s", source,
+                            TimeUnit.NANOSECONDS.toMillis(result.elapsedNanos), result.error));
+                    failed++;
+                    continue;
+                }
+                handler.handle(source, result.value);
+                log.println(String.format("  %s: %d ms", source, TimeUnit.NANOSECONDS.toMillis(result.elapsedNanos)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while converting files");
+        } catch (ExecutionException e) {
+            // Exceptions are caught by each task
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IOException("Unable to convert file", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        log.println(String.format("Converted %d of %d files in %d ms on %d threads", sources.size() - failed,
+                sources.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), threadCount));
+
+        if (failed > 0) {
+            throw new IOException("Unable to convert " + failed + " of " + sources.size() + " files");
+        }
+    }
+
+    private <T> Future<Result<T>> submit(ExecutorService executor, Path source, Conversion<T> conversion) {
+        return executor.submit(() -> {
+            long startTime = System.nanoTime();
+
+            try {
+                T value = conversion.convert(source);
+                return new Result<>(value, null, System.nanoTime() - startTime);
+            } catch (Exception e) {
+                return new Result<>(null, e, System.nanoTime() - startTime);
+            }
+        });
+    }
+}
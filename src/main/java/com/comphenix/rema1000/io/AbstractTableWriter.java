@@ -17,58 +17,99 @@
 package com.comphenix.rema1000.io;
 
 import java.io.IOException;
-import java.util.*;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Set;
 
 public abstract class AbstractTableWriter implements TableWriter {
-    // Index of the current column (initially -1)
-    private int columnIndex = -1;
-    protected Map<String, Integer> headerIndexLookup = new HashMap<>();
-    protected Map<Integer, String> headerNameLookup = new HashMap<>();
+    // The current columns
+    private final ColumnRegistry columns;
 
     protected boolean closed;
 
+    protected AbstractTableWriter() {
+        this(new ColumnRegistry());
+    }
+
+    /**
+     * Construct a writer with the given columns.
+     * <p>
+     * A frozen registry may be shared with other writers of a table with the same columns.
+     * @param columns the columns.
+     */
+    protected AbstractTableWriter(ColumnRegistry columns) {
+        this.columns = Objects.requireNonNull(columns, "columns cannot be NULL");
+    }
+
+    /**
+     * Retrieve the registry of every column in this table.
+     * @return The column registry.
+     */
+    public ColumnRegistry getColumnRegistry() {
+        return columns;
+    }
+
     @Override
     public int getHeaderIndex(String header) {
-        return headerIndexLookup.getOrDefault(header, -1);
+        return columns.indexOf(header);
     }
 
     @Override
     public String getHeaderName(int index) {
-        return headerNameLookup.get(index);
+        return columns.getName(index);
     }
 
     @Override
     public int getHeaderCount() {
-        return columnIndex + 1;
+        return columns.size();
     }
 
     @Override
     public Set<String> headers() {
-        return Collections.unmodifiableSet(headerIndexLookup.keySet());
+        return columns.names();
     }
 
     @Override
     public int createHeader(String headerName) throws IOException {
         checkClosed();
-        Integer existing = headerIndexLookup.get(headerName);
+        int existing = columns.indexOf(headerName);
 
-        if (existing == null) {
-            int column = ++columnIndex;
+        if (existing < 0) {
+            int column = columns.size();
 
+            if (columns.isFrozen()) {
+                throw new IllegalArgumentException("Cannot create header " + headerName + " after the columns have been frozen.");
+            }
             onHeaderCreated(headerName, column);
-            headerIndexLookup.put(headerName, column);
-            headerNameLookup.put(column, headerName);
-            return column;
+            return columns.add(headerName);
         }
         return existing;
     }
 
+    @Override
+    public int[] createHeaders(TableSchema schema) throws IOException {
+        int[] headerIndices = TableWriter.super.createHeaders(schema);
+        onSchemaCreated(schema, headerIndices);
+        return headerIndices;
+    }
+
+    /**
+     * Invoked when the headers of a table schema have been created, allowing the writer to prepare the columns.
+     * @param schema the table schema.
+     * @param headerIndices the header index of each column in the schema.
+     */
+    protected void onSchemaCreated(TableSchema schema, int[] headerIndices) {
+        // Nothing by default
+    }
+
     /**
-     * Invoked when a new header is created.
+     * Invoked when a new header is created, before it is added to the column registry.
      * @param headerName the new header.
      * @param headerIndex the index of the header.
      */
-    protected abstract void onHeaderCreated(String headerName, int headerIndex);
+    protected void onHeaderCreated(String headerName, int headerIndex) {
+        // Nothing by default
+    }
 
     /**
      * Determine if the current writer is closed.
@@ -103,11 +144,42 @@ public abstract class AbstractTableWriter implements TableWriter {
     public void write(int headerIndex, Object value, Class<?> type) throws IOException {
         checkClosed();
         Objects.requireNonNull(type,"type cannot be NULL");
+        checkHeaderIndex(headerIndex);
+        onWriteValue(headerIndex, value, type);
+    }
+
+    @Override
+    public void writeLong(int headerIndex, long value) throws IOException {
+        checkClosed();
+        checkHeaderIndex(headerIndex);
+        onWriteLong(headerIndex, value);
+    }
+
+    @Override
+    public void writeDouble(int headerIndex, double value) throws IOException {
+        checkClosed();
+        checkHeaderIndex(headerIndex);
+        onWriteDouble(headerIndex, value);
+    }
+
+    @Override
+    public void writeBoolean(int headerIndex, boolean value) throws IOException {
+        checkClosed();
+        checkHeaderIndex(headerIndex);
+        onWriteBoolean(headerIndex, value);
+    }
+
+    @Override
+    public void writeEpochMillis(int headerIndex, long epochMillis) throws IOException {
+        checkClosed();
+        checkHeaderIndex(headerIndex);
+        onWriteEpochMillis(headerIndex, epochMillis);
+    }
 
-        if (headerIndex < 0 || headerIndex > columnIndex) {
+    private void checkHeaderIndex(int headerIndex) {
+        if (headerIndex < 0 || headerIndex >= columns.size()) {
             throw new IllegalArgumentException("Illegal header index " + headerIndex);
         }
-        onWriteValue(headerIndex, value, type);
     }
 
     /**
@@ -118,6 +190,50 @@ public abstract class AbstractTableWriter implements TableWriter {
      */
     protected abstract void onWriteValue(int headerIndex, Object value, Class<?> type) throws IOException;
 
+    /**
+     * Invoked when an integer must be written to the table.
+     * <p>
+     * The default implementation boxes the value and calls {@link #onWriteValue(int, Object, Class)}.
+     * @param headerIndex the header index.
+     * @param value the value.
+     */
+    protected void onWriteLong(int headerIndex, long value) throws IOException {
+        onWriteValue(headerIndex, value, long.class);
+    }
+
+    /**
+     * Invoked when a decimal number must be written to the table.
+     * <p>
+     * The default implementation boxes the value and calls {@link #onWriteValue(int, Object, Class)}.
+     * @param headerIndex the header index.
+     * @param value the value.
+     */
+    protected void onWriteDouble(int headerIndex, double value) throws IOException {
+        onWriteValue(headerIndex, value, double.class);
+    }
+
+    /**
+     * Invoked when a boolean must be written to the table.
+     * <p>
+     * The default implementation boxes the value and calls {@link #onWriteValue(int, Object, Class)}.
+     * @param headerIndex the header index.
+     * @param value the value.
+     */
+    protected void onWriteBoolean(int headerIndex, boolean value) throws IOException {
+        onWriteValue(headerIndex, value, boolean.class);
+    }
+
+    /**
+     * Invoked when a point in time must be written to the table.
+     * <p>
+     * The default implementation converts the value to an {@link Instant} and calls {@link #onWriteValue(int, Object, Class)}.
+     * @param headerIndex the header index.
+     * @param epochMillis the number of milliseconds since the unix epoch.
+     */
+    protected void onWriteEpochMillis(int headerIndex, long epochMillis) throws IOException {
+        onWriteValue(headerIndex, Instant.ofEpochMilli(epochMillis), Instant.class);
+    }
+
     /**
      * Invoked when the writer is closed.
      */
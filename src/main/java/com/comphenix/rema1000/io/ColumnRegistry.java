@@ -0,0 +1,176 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The columns of a table, with the name, type and any writer specific metadata of each column stored in arrays
+ * indexed by the column index.
+ * <p>
+ * Columns are added while the headers of a table are created, and the registry is frozen once the columns can no
+ * longer change (typically after the first row). A frozen registry may be shared by several writers of tables with
+ * the same columns.
+ */
+public class ColumnRegistry {
+    private static final int INITIAL_CAPACITY = 8;
+
+    // Only used when a header is created or looked up by name
+    private final Map<String, Integer> indexLookup = new LinkedHashMap<>();
+
+    private String[] names = new String[INITIAL_CAPACITY];
+    private Class<?>[] types = new Class<?>[INITIAL_CAPACITY];
+    private Object[] metadata = new Object[INITIAL_CAPACITY];
+    private int size;
+
+    private boolean frozen;
+
+    /**
+     * Add a column with the given name, unless it already exists.
+     * @param name the column name.
+     * @return The index of the new or existing column.
+     * @throws IllegalStateException If the column does not exist and the registry is frozen.
+     */
+    public int add(String name) {
+        Objects.requireNonNull(name, "name cannot be NULL");
+        Integer existing = indexLookup.get(name);
+
+        if (existing != null) {
+            return existing;
+        }
+        checkNotFrozen();
+
+        if (size >= names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            types = Arrays.copyOf(types, size * 2);
+            metadata = Arrays.copyOf(metadata, size * 2);
+        }
+        names[size] = name;
+        indexLookup.put(name, size);
+        return size++;
+    }
+
+    /**
+     * Retrieve the index of the column with the given name.
+     * @param name the column name.
+     * @return The index, or -1 if not found.
+     */
+    public int indexOf(String name) {
+        return indexLookup.getOrDefault(name, -1);
+    }
+
+    /**
+     * Retrieve the name of the column at the given index.
+     * @param index the column index.
+     * @return The name, or NULL if the column does not exist.
+     */
+    public String getName(int index) {
+        return index >= 0 && index < size ? names[index] : null;
+    }
+
+    /**
+     * Retrieve the type of the values in the column at the given index, if known.
+     * @param index the column index.
+     * @return The type, or NULL if not known.
+     */
+    public Class<?> getType(int index) {
+        checkIndex(index);
+        return types[index];
+    }
+
+    /**
+     * Set the type of the values in the column at the given index.
+     * @param index the column index.
+     * @param type the type, or NULL if not known.
+     */
+    public void setType(int index, Class<?> type) {
+        checkIndex(index);
+        checkNotFrozen();
+        types[index] = type;
+    }
+
+    /**
+     * Retrieve the metadata of the column at the given index, as resolved by a writer.
+     * @param index the column index.
+     * @param <T> type of the metadata.
+     * @return The metadata, or NULL if not resolved.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getMetadata(int index) {
+        checkIndex(index);
+        return (T) metadata[index];
+    }
+
+    /**
+     * Set the metadata of the column at the given index.
+     * @param index the column index.
+     * @param value the metadata.
+     */
+    public void setMetadata(int index, Object value) {
+        checkIndex(index);
+        checkNotFrozen();
+        metadata[index] = value;
+    }
+
+    /**
+     * Retrieve the number of columns.
+     * @return The number of columns.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieve a set view of the column names, in the order they were added.
+     * @return Unmodifiable view of the names.
+     */
+    public Set<String> names() {
+        return Collections.unmodifiableSet(indexLookup.keySet());
+    }
+
+    /**
+     * Prevent any further changes to the columns, their types or their metadata.
+     */
+    public void freeze() {
+        frozen = true;
+    }
+
+    /**
+     * Determine if the columns can no longer change.
+     * @return TRUE if they cannot, FALSE otherwise.
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Illegal column index " + index);
+        }
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Column registry is frozen");
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io;
+
+import com.comphenix.rema1000.io.columnar.ColumnarTransactions;
+import com.comphenix.rema1000.io.json.DataRootReader;
+import com.comphenix.rema1000.model.DataRoot;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A data writer that may also convert a Rema 1000 export one transaction at a time.
+ */
+public abstract class DataRootWriter extends DataWriter<DataRoot> {
+    /**
+     * Write the transactions of the given reader to the output stream, one transaction at a time.
+     * @param output the output stream.
+     * @param reader the reader.
+     */
+    public abstract void write(OutputStream output, DataRootReader reader) throws IOException;
+
+    /**
+     * Write the transactions of the given reader to the given file, one transaction at a time.
+     * @param file the file.
+     * @param reader the reader.
+     */
+    public void write(Path file, DataRootReader reader) throws IOException {
+        try (OutputStream output = Files.newOutputStream(file)) {
+            write(output, reader);
+        }
+    }
+
+    /**
+     * Write the given data to the output stream, with every transaction stored in the given columnar store.
+     * @param output the output stream.
+     * @param data the data outside the transaction list.
+     * @param transactions the transactions.
+     */
+    public abstract void write(OutputStream output, DataRoot data, ColumnarTransactions transactions) throws IOException;
+
+    /**
+     * Write the given data to the given file, with every transaction stored in the given columnar store.
+     * @param file the file.
+     * @param data the data outside the transaction list.
+     * @param transactions the transactions.
+     */
+    public void write(Path file, DataRoot data, ColumnarTransactions transactions) throws IOException {
+        try (OutputStream output = Files.newOutputStream(file)) {
+            write(output, data, transactions);
+        }
+    }
+}
@@ -16,84 +16,407 @@
  */
 package com.comphenix.rema1000.io;
 
+import com.comphenix.rema1000.io.columnar.ColumnarTransactions;
 import com.comphenix.rema1000.model.*;
 
 import java.io.IOException;
 import java.time.Instant;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 /**
  * Convert data to individual tables.
  */
 public class DataTableConverter {
+    /**
+     * The receipt entry columns shared by the receipt tables.
+     */
+    private static final TableSchema RECEIPT_ENTRY_COLUMNS = TableSchema.newBuilder("ReceiptEntry").
+            withColumn("Product Code", String.class).
+            withColumn("Product Description", String.class).
+            withColumn("Product Text1", String.class).
+            withColumn("Product Text2", String.class).
+            withColumn("Barcode", String.class).
+            withColumn("Product Group Code", String.class).
+            withColumn("Product Group Desc", String.class).
+            withColumn("Bonus Based", boolean.class).
+            withColumn("Pieces", long.class).
+            withColumn("Product Total Price", double.class).
+            withColumn("Product Discount", double.class).
+            withColumn("Product Deposit", double.class).
+            withColumn("Volume Amount", double.class).
+            withColumn("Volume Unit", String.class).
+            build();
+
+    /**
+     * The transaction amount columns shared by the transaction tables.
+     */
+    private static final TableSchema TRANSACTION_AMOUNT_COLUMNS = TableSchema.newBuilder("TransactionAmount").
+            withColumn("Transaction Amount", double.class).
+            withColumn("Transaction Bonus Points", long.class).
+            withColumn("Transaction Discount", double.class).
+            withColumn("Transaction Net Amount", double.class).
+            build();
+
+    /**
+     * One row per transaction.
+     */
+    public static final TableSchema TRANSACTIONS = TableSchema.newBuilder("Transactions").
+            withPrimaryKey("Transaction ID", String.class).
+            withColumn("Purchase Date", Instant.class).
+            withColumn("Store ID", String.class).
+            withColumn("Store Name", String.class).
+            withColumns(TRANSACTION_AMOUNT_COLUMNS).
+            build();
+
+    /**
+     * One row per receipt entry, referencing its transaction.
+     */
+    public static final TableSchema RECEIPTS = TableSchema.newBuilder("Receipts").
+            withPrimaryKey("Receipt Entry ID", long.class).
+            withColumn(new TableSchema.Column("Transaction ID", String.class, false, "Transactions", "Transaction ID")).
+            withColumns(RECEIPT_ENTRY_COLUMNS).
+            build();
+
+    /**
+     * One row per receipt entry, including the columns of its transaction.
+     */
+    public static final TableSchema JOINED_RECEIPTS = TableSchema.newBuilder("ReceiptEntries").
+            withColumn("Transaction ID", String.class).
+            withColumn("Receipt Entry ID", long.class).
+            withColumn("Purchase Date", Instant.class).
+            withColumn("Store ID", String.class).
+            withColumn("Store Name", String.class).
+            withColumns(RECEIPT_ENTRY_COLUMNS).
+            withColumns(TRANSACTION_AMOUNT_COLUMNS).
+            build();
+
+    /**
+     * One row per means of payment of a transaction.
+     */
+    public static final TableSchema PAYMENTS = TableSchema.newBuilder("TransactionsPayments").
+            withColumn(new TableSchema.Column("Transaction ID", String.class, true, "Transactions", "Transaction ID")).
+            withPrimaryKey("Means Of Payment Desc", String.class).
+            withColumn("Amount", double.class).
+            build();
+
+    /**
+     * One row per offer used by a receipt entry.
+     */
+    public static final TableSchema USED_OFFERS = TableSchema.newBuilder("UsedOffers").
+            withColumn(new TableSchema.Column("Transaction ID", String.class, true, "Transactions", "Transaction ID")).
+            withPrimaryKey("Receipt Entry ID", long.class).
+            withPrimaryKey("Offer Code", String.class).
+            withColumn("Offer Desc", String.class).
+            withColumn("Discount Flat", double.class).
+            withColumn("Discount Percent", double.class).
+            build();
+
+    /**
+     * One row per product in the top list, ordered by rank.
+     */
+    public static final TableSchema TOP_LIST = TableSchema.newBuilder("TopList").
+            withPrimaryKey("Rank", long.class).
+            withColumn("Product ID", String.class).
+            withColumn("Product Name", String.class).
+            withColumn("Product Description", String.class).
+            withColumn("Product Group Code", String.class).
+            withColumn("Product Group Desc", String.class).
+            withColumn("Created Time", Instant.class).
+            withColumn("Modified Time", Instant.class).
+            withColumn("Amount Used", double.class).
+            withColumn("Amount Saved", double.class).
+            withColumn("Barcode", String.class).
+            withColumn("Times Bought", long.class).
+            withColumn("Items Bought", long.class).
+            withColumn("Account ID", String.class).
+            withColumn("Volume", double.class).
+            build();
+
+    // The schemas with the column names of this converter
+    private final TableSchema transactionsSchema;
+    private final TableSchema receiptsSchema;
+    private final TableSchema joinedReceiptsSchema;
+    private final TableSchema paymentsSchema;
+    private final TableSchema usedOffersSchema;
+    private final TableSchema topListSchema;
+
+    public DataTableConverter() {
+        this(UnaryOperator.identity());
+    }
+
+    /**
+     * Construct a converter where every column name is converted by the given function, once per table.
+     * @param columnNaming the naming function.
+     */
+    protected DataTableConverter(UnaryOperator<String> columnNaming) {
+        transactionsSchema = TRANSACTIONS.renameColumns(columnNaming);
+        receiptsSchema = RECEIPTS.renameColumns(columnNaming);
+        joinedReceiptsSchema = JOINED_RECEIPTS.renameColumns(columnNaming);
+        paymentsSchema = PAYMENTS.renameColumns(columnNaming);
+        usedOffersSchema = USED_OFFERS.renameColumns(columnNaming);
+        topListSchema = TOP_LIST.renameColumns(columnNaming);
+    }
+
+    /**
+     * A table whose rows are derived from one transaction at a time.
+     * <p>
+     * Empty transactions are filtered out by {@link #writeTransactions(Iterator, TransactionTable...)}.
+     */
+    @FunctionalInterface
+    public interface TransactionTable {
+        /**
+         * Write the rows derived from the given non-empty transaction.
+         * @param transaction the transaction.
+         */
+        void writeTransaction(Transaction transaction) throws IOException;
+
+        /**
+         * Write the rows derived from the given transaction in a columnar store.
+         * <p>
+         * By default, the transaction is first converted back to a model object.
+         * @param transactions the columnar store.
+         * @param index the transaction index.
+         */
+        default void writeTransaction(ColumnarTransactions transactions, int index) throws IOException {
+            writeTransaction(transactions.getTransaction(index));
+        }
+    }
+
+    /**
+     * Transactions that can be written to one or more tables in a single pass.
+     */
+    @FunctionalInterface
+    public interface TransactionSource {
+        /**
+         * Write every transaction to each of the given tables.
+         * @param tables the tables.
+         */
+        void writeTransactions(TransactionTable... tables) throws IOException;
+    }
+
+    /**
+     * The receipt entry columns shared by the receipt tables.
+     */
+    private static class ReceiptEntryColumns {
+        private final int productCode;
+        private final int productDescription;
+        private final int productText1;
+        private final int productText2;
+        private final int barcode;
+        private final int productGroupCode;
+        private final int productGroupDesc;
+        private final int bonusBased;
+        private final int pieces;
+        private final int productPrice;
+        private final int productDiscount;
+        private final int productDeposit;
+        private final int volumeAmount;
+        private final int volumeUnit;
+
+        ReceiptEntryColumns(int[] headers, TableSchema schema) {
+            productCode = getHeader(headers, schema, "Product Code");
+            productDescription = getHeader(headers, schema, "Product Description");
+            productText1 = getHeader(headers, schema, "Product Text1");
+            productText2 = getHeader(headers, schema, "Product Text2");
+            barcode = getHeader(headers, schema, "Barcode");
+            productGroupCode = getHeader(headers, schema, "Product Group Code");
+            productGroupDesc = getHeader(headers, schema, "Product Group Desc");
+            bonusBased = getHeader(headers, schema, "Bonus Based");
+            pieces = getHeader(headers, schema, "Pieces");
+            productPrice = getHeader(headers, schema, "Product Total Price");
+            productDiscount = getHeader(headers, schema, "Product Discount");
+            productDeposit = getHeader(headers, schema, "Product Deposit");
+            volumeAmount = getHeader(headers, schema, "Volume Amount");
+            volumeUnit = getHeader(headers, schema, "Volume Unit");
+        }
+
+        void write(TableWriter writer, ReceiptEntry receiptEntry) throws IOException {
+            writer.write(productCode, receiptEntry.getProductCode(), String.class);
+            writer.write(productDescription, receiptEntry.getProductDescription(), String.class);
+            writer.write(productText1, receiptEntry.getProductText1(), String.class);
+            writer.write(productText2, receiptEntry.getProductText2(), String.class);
+            writer.write(barcode, receiptEntry.getBarcode(), String.class);
+            writer.write(productGroupCode, receiptEntry.getProductGroupCode(), String.class);
+            writer.write(productGroupDesc, receiptEntry.getProductGroupDesc(), String.class);
+            writer.writeBoolean(bonusBased, receiptEntry.isBonusBased());
+            writer.writeLong(pieces, receiptEntry.getPieces());
+            writer.writeDouble(productPrice, receiptEntry.getPriceAmount());
+            writer.writeDouble(productDiscount, receiptEntry.getPriceDiscount());
+            writer.writeDouble(productDeposit, receiptEntry.getDeposit());
+            writer.writeDouble(volumeAmount, receiptEntry.getVolumeAmount());
+            writer.write(volumeUnit, receiptEntry.getVolumeUnit());
+        }
+
+        void write(TableWriter writer, ColumnarTransactions transactions, int row) throws IOException {
+            writer.write(productCode, transactions.getProductCode(row), String.class);
+            writer.write(productDescription, transactions.getProductDescription(row), String.class);
+            writer.write(productText1, transactions.getProductText1(row), String.class);
+            writer.write(productText2, transactions.getProductText2(row), String.class);
+            writer.write(barcode, transactions.getBarcode(row), String.class);
+            writer.write(productGroupCode, transactions.getProductGroupCode(row), String.class);
+            writer.write(productGroupDesc, transactions.getProductGroupDesc(row), String.class);
+            writer.writeBoolean(bonusBased, transactions.isBonusBased(row));
+            writer.writeLong(pieces, transactions.getPieces(row));
+            writer.writeDouble(productPrice, transactions.getPriceAmount(row));
+            writer.writeDouble(productDiscount, transactions.getPriceDiscount(row));
+            writer.writeDouble(productDeposit, transactions.getDeposit(row));
+            writer.writeDouble(volumeAmount, transactions.getVolumeAmount(row));
+            writer.write(volumeUnit, transactions.getVolumeUnit(row));
+        }
+    }
+
+    /**
+     * The transaction amount columns shared by the transaction tables.
+     */
+    private static class TransactionAmountColumns {
+        private final int transactionAmount;
+        private final int transactionBonusPoints;
+        private final int transactionDiscount;
+        private final int transactionNetAmount;
+
+        TransactionAmountColumns(int[] headers, TableSchema schema) {
+            transactionAmount = getHeader(headers, schema, "Transaction Amount");
+            transactionBonusPoints = getHeader(headers, schema, "Transaction Bonus Points");
+            transactionDiscount = getHeader(headers, schema, "Transaction Discount");
+            transactionNetAmount = getHeader(headers, schema, "Transaction Net Amount");
+        }
+
+        void write(TableWriter writer, double amount, int bonusPoints, double discount) throws IOException {
+            writer.writeDouble(transactionAmount, amount);
+            writer.writeLong(transactionBonusPoints, bonusPoints);
+            writer.writeDouble(transactionDiscount, discount);
+            writer.writeDouble(transactionNetAmount, amount - discount);
+        }
+    }
+
+    public TableSchema getTransactionsSchema() {
+        return transactionsSchema;
+    }
+
+    public TableSchema getReceiptsSchema() {
+        return receiptsSchema;
+    }
+
+    public TableSchema getJoinedReceiptsSchema() {
+        return joinedReceiptsSchema;
+    }
+
+    public TableSchema getPaymentsSchema() {
+        return paymentsSchema;
+    }
+
+    public TableSchema getUsedOffersSchema() {
+        return usedOffersSchema;
+    }
+
+    public TableSchema getTopListSchema() {
+        return topListSchema;
+    }
+
     public void writeTableTransactionsPayments(TableWriter writer, List<Transaction> transactionList) throws IOException {
-        int transactionId = createHeader(writer, "Transaction ID");
-        int meansOfPaymentDesc = createHeader(writer, "Means Of Payment Desc");
-        int amount = createHeader(writer, "Amount");
+        writeTransactions(transactionList.iterator(), createTableTransactionsPayments(writer));
+    }
 
-        for (Transaction transaction : transactionList) {
-            // Skip empty receipts
-            if (transaction == null || transaction.getReceiptEntries() == null || transaction.getReceiptEntries().isEmpty()) {
-                continue;
+    public TransactionTable createTableTransactionsPayments(TableWriter writer) throws IOException {
+        int[] headers = writer.createHeaders(paymentsSchema);
+        int transactionId = getHeader(headers, PAYMENTS, "Transaction ID");
+        int meansOfPaymentDesc = getHeader(headers, PAYMENTS, "Means Of Payment Desc");
+        int amount = getHeader(headers, PAYMENTS, "Amount");
+
+        return new TransactionTable() {
+            @Override
+            public void writeTransaction(Transaction transaction) throws IOException {
+                for (TransactionPayment payment : transaction.getTransactionPayments()) {
+                    writer.incrementRow();
+                    writer.write(transactionId, transaction.getId());
+                    writer.write(meansOfPaymentDesc, payment.getMeansOfPaymentDesc(), String.class);
+                    writer.writeDouble(amount, payment.getAmount());
+                }
             }
-            for (TransactionPayment payment : transaction.getTransactionPayments()) {
-                writer.incrementRow();
-                writer.write(transactionId, transaction.getId());
-                writer.write(meansOfPaymentDesc, payment.getMeansOfPaymentDesc(), String.class);
-                writer.write(amount, payment.getAmount());
+
+            @Override
+            public void writeTransaction(ColumnarTransactions transactions, int index) throws IOException {
+                for (int payment = transactions.getPaymentStart(index); payment < transactions.getPaymentEnd(index); payment++) {
+                    writer.incrementRow();
+                    writer.write(transactionId, transactions.getTransactionId(index));
+                    writer.write(meansOfPaymentDesc, transactions.getPaymentDesc(payment), String.class);
+                    writer.writeDouble(amount, transactions.getPaymentAmount(payment));
+                }
             }
-        }
+        };
     }
 
     public void writeTableTransactionsUsedOffers(TableWriter writer, List<Transaction> transactionList) throws IOException {
-        int transactionId = createHeader(writer, "Transaction ID");
-        int receiptEntryId = createHeader(writer, "Receipt Entry ID");
-        int offerCode = createHeader(writer, "Offer Code");
-        int offerDesc = createHeader(writer, "Offer Desc");
-        int discountFlat = createHeader(writer, "Discount Flat");
-        int discountPercent = createHeader(writer, "Discount Percent");
-
-        for (Transaction transaction : transactionList) {
-            // Skip empty receipts
-            if (transaction == null || transaction.getReceiptEntries() == null || transaction.getReceiptEntries().isEmpty()) {
-                continue;
+        writeTransactions(transactionList.iterator(), createTableTransactionsUsedOffers(writer));
+    }
+
+    public TransactionTable createTableTransactionsUsedOffers(TableWriter writer) throws IOException {
+        int[] headers = writer.createHeaders(usedOffersSchema);
+        int transactionId = getHeader(headers, USED_OFFERS, "Transaction ID");
+        int receiptEntryId = getHeader(headers, USED_OFFERS, "Receipt Entry ID");
+        int offerCode = getHeader(headers, USED_OFFERS, "Offer Code");
+        int offerDesc = getHeader(headers, USED_OFFERS, "Offer Desc");
+        int discountFlat = getHeader(headers, USED_OFFERS, "Discount Flat");
+        int discountPercent = getHeader(headers, USED_OFFERS, "Discount Percent");
+
+        return new TransactionTable() {
+            @Override
+            public void writeTransaction(Transaction transaction) throws IOException {
+                for (ReceiptEntry receiptEntry : transaction.getReceiptEntries()) {
+                    List<OfferEntry> usedOffers = receiptEntry.getUsedOffers();
+
+                    if (usedOffers != null) {
+                        for (OfferEntry offerEntry : usedOffers) {
+                            writer.incrementRow();
+                            writer.write(transactionId, transaction.getId());
+                            writer.writeLong(receiptEntryId, receiptEntry.getEntryId());
+                            writer.write(offerCode, offerEntry.getOfferCode());
+                            writer.write(offerDesc, offerEntry.getOfferDescription(), String.class);
+                            writer.writeDouble(discountFlat, offerEntry.getDiscountFlat());
+                            writer.writeDouble(discountPercent, offerEntry.getDiscountPercent());
+                        }
+                    }
+                }
             }
-            for (ReceiptEntry receiptEntry : transaction.getReceiptEntries()) {
-                List<OfferEntry> usedOffers = receiptEntry.getUsedOffers();
 
-                if (usedOffers != null) {
-                    for (OfferEntry offerEntry : usedOffers) {
+            @Override
+            public void writeTransaction(ColumnarTransactions transactions, int index) throws IOException {
+                for (int row = transactions.getReceiptStart(index); row < transactions.getReceiptEnd(index); row++) {
+                    for (int offer = transactions.getOfferStart(row); offer < transactions.getOfferEnd(row); offer++) {
                         writer.incrementRow();
-                        writer.write(transactionId, transaction.getId());
-                        writer.write(receiptEntryId, receiptEntry.getEntryId());
-                        writer.write(offerCode, offerEntry.getOfferCode());
-                        writer.write(offerDesc, offerEntry.getOfferDescription(), String.class);
-                        writer.write(discountFlat, offerEntry.getDiscountFlat());
-                        writer.write(discountPercent, offerEntry.getDiscountPercent());
+                        writer.write(transactionId, transactions.getTransactionId(index));
+                        writer.writeLong(receiptEntryId, transactions.getEntryId(row));
+                        writer.write(offerCode, transactions.getOfferCode(offer));
+                        writer.write(offerDesc, transactions.getOfferDescription(offer), String.class);
+                        writer.writeDouble(discountFlat, transactions.getOfferDiscountFlat(offer));
+                        writer.writeDouble(discountPercent, transactions.getOfferDiscountPercent(offer));
                     }
                 }
             }
-        }
+        };
     }
 
     public void writeTableTopList(TableWriter writer, TopListMetadata metadata) throws IOException {
-        int rank = createHeader(writer, "Rank");
-        int productId = createHeader(writer, "Product ID");
-        int productName = createHeader(writer, "Product Name");
-        int productDescription = createHeader(writer, "Product Description");
-        int productGroupCode = createHeader(writer, "Product Group Code");
-        int productGroupDesc = createHeader(writer, "Product Group Desc");
-        int createdTime = createHeader(writer, "Created Time");
-        int modifiedTime = createHeader(writer, "Modified Time");
-        int amountUsed = createHeader(writer, "Amount Used");
-        int amountSaved = createHeader(writer, "Amount Saved");
-        int barcode = createHeader(writer, "Barcode");
-        int timesBought = createHeader(writer, "Times Bought");
-        int itemsBought = createHeader(writer, "Items Bought");
-        int accountId = createHeader(writer, "Account ID");
-        int volume = createHeader(writer, "Volume");
+        int[] headers = writer.createHeaders(topListSchema);
+        int rank = getHeader(headers, TOP_LIST, "Rank");
+        int productId = getHeader(headers, TOP_LIST, "Product ID");
+        int productName = getHeader(headers, TOP_LIST, "Product Name");
+        int productDescription = getHeader(headers, TOP_LIST, "Product Description");
+        int productGroupCode = getHeader(headers, TOP_LIST, "Product Group Code");
+        int productGroupDesc = getHeader(headers, TOP_LIST, "Product Group Desc");
+        int createdTime = getHeader(headers, TOP_LIST, "Created Time");
+        int modifiedTime = getHeader(headers, TOP_LIST, "Modified Time");
+        int amountUsed = getHeader(headers, TOP_LIST, "Amount Used");
+        int amountSaved = getHeader(headers, TOP_LIST, "Amount Saved");
+        int barcode = getHeader(headers, TOP_LIST, "Barcode");
+        int timesBought = getHeader(headers, TOP_LIST, "Times Bought");
+        int itemsBought = getHeader(headers, TOP_LIST, "Items Bought");
+        int accountId = getHeader(headers, TOP_LIST, "Account ID");
+        int volume = getHeader(headers, TOP_LIST, "Volume");
         
         // Sort entries by rank
         List<ScorecardEntry> entries = metadata.getScorecard().stream().sorted(
@@ -102,170 +425,188 @@ public class DataTableConverter {
 
         for (ScorecardEntry entry : entries) {
             writer.incrementRow();
-            writer.write(rank, entry.getRank());
+            writer.writeLong(rank, entry.getRank());
             writer.write(productId, entry.getProductId(), String.class);
             writer.write(productName, entry.getProductName(), String.class);
             writer.write(productDescription, entry.getProductDescription(), String.class);
             writer.write(productGroupCode, entry.getProductGroupCode());
             writer.write(productGroupDesc, entry.getProductGroupDesc());
-            writer.write(createdTime, Instant.ofEpochMilli(entry.getCreatedTimeUnix()));
-            writer.write(modifiedTime, Instant.ofEpochMilli(entry.getModifiedTimeUnix()));
-            writer.write(amountUsed, entry.getAmountUsed());
-            writer.write(amountSaved, entry.getAmountSaved());
+            writer.writeEpochMillis(createdTime, entry.getCreatedTimeUnix());
+            writer.writeEpochMillis(modifiedTime, entry.getModifiedTimeUnix());
+            writer.writeDouble(amountUsed, entry.getAmountUsed());
+            writer.writeDouble(amountSaved, entry.getAmountSaved());
             writer.write(barcode, entry.getBarcode(), String.class);
-            writer.write(timesBought, entry.getTimesBought());
-            writer.write(itemsBought, entry.getItemsBought());
+            writer.writeLong(timesBought, entry.getTimesBought());
+            writer.writeLong(itemsBought, entry.getItemsBought());
             writer.write(accountId, entry.getAccountId());
-            writer.write(volume, entry.getVolume());
+            writer.writeDouble(volume, entry.getVolume());
         }
     }
 
     public void writeJoinedTableTransactions(TableWriter writer, List<Transaction> transactionList) throws IOException {
-        int transactionId = createHeader(writer, "Transaction ID");
-        int receiptEntryId = createHeader(writer, "Receipt Entry ID");
-        int purchaseDate = createHeader(writer, "Purchase Date");
-        int storeId = createHeader(writer, "Store ID");
-        int storeName = createHeader(writer, "Store Name");
-
-        int productCode = createHeader(writer, "Product Code");
-        int productDescription = createHeader(writer, "Product Description");
-        int productText1 = createHeader(writer, "Product Text1");
-        int productText2 = createHeader(writer, "Product Text2");
-        int headerName = createHeader(writer, "Barcode");
-        int productGroupCode = createHeader(writer, "Product Group Code");
-        int productGroupDesc = createHeader(writer, "Product Group Desc");
-        int bonusBased = createHeader(writer, "Bonus Based");
-        int pieces = createHeader(writer, "Pieces");
-        int productPrice = createHeader(writer, "Product Total Price");
-        int productDiscount = createHeader(writer, "Product Discount");
-        int productDeposit = createHeader(writer, "Product Deposit");
-        int volumeAmount = createHeader(writer, "Volume Amount");
-        int volumeUnit = createHeader(writer, "Volume Unit");
-
-        int transactionAmount = createHeader(writer, "Transaction Amount");
-        int transactionBonusPoints = createHeader(writer, "Transaction Bonus Points");
-        int transactionDiscount = createHeader(writer, "Transaction Discount");
-        int transactionNetAmount = createHeader(writer, "Transaction Net Amount");
-
-        for (Transaction transaction : transactionList) {
-            // Skip empty receipts
-            if (transaction == null || transaction.getReceiptEntries() == null || transaction.getReceiptEntries().isEmpty()) {
-                continue;
+        writeTransactions(transactionList.iterator(), createJoinedTableTransactions(writer));
+    }
+
+    public TransactionTable createJoinedTableTransactions(TableWriter writer) throws IOException {
+        int[] headers = writer.createHeaders(joinedReceiptsSchema);
+        int transactionId = getHeader(headers, JOINED_RECEIPTS, "Transaction ID");
+        int receiptEntryId = getHeader(headers, JOINED_RECEIPTS, "Receipt Entry ID");
+        int purchaseDate = getHeader(headers, JOINED_RECEIPTS, "Purchase Date");
+        int storeId = getHeader(headers, JOINED_RECEIPTS, "Store ID");
+        int storeName = getHeader(headers, JOINED_RECEIPTS, "Store Name");
+
+        ReceiptEntryColumns receiptEntryColumns = new ReceiptEntryColumns(headers, JOINED_RECEIPTS);
+        TransactionAmountColumns amountColumns = new TransactionAmountColumns(headers, JOINED_RECEIPTS);
+
+        return new TransactionTable() {
+            @Override
+            public void writeTransaction(Transaction transaction) throws IOException {
+                for (ReceiptEntry receiptEntry : transaction.getReceiptEntries()) {
+                    writer.incrementRow();
+                    writer.write(transactionId, transaction.getId());
+                    writer.writeLong(receiptEntryId, receiptEntry.getEntryId());
+                    writer.writeEpochMillis(purchaseDate, transaction.getPurchaseDateUnix());
+                    writer.write(storeId, transaction.getStoreId());
+                    writer.write(storeName, transaction.getStoreName());
+                    receiptEntryColumns.write(writer, receiptEntry);
+                    amountColumns.write(writer, transaction.getAmount(), transaction.getBonusPoints(), transaction.getDiscount());
+                }
             }
-            
-            for (ReceiptEntry receiptEntry : transaction.getReceiptEntries()) {
+
+            @Override
+            public void writeTransaction(ColumnarTransactions transactions, int index) throws IOException {
+                for (int row = transactions.getReceiptStart(index); row < transactions.getReceiptEnd(index); row++) {
+                    writer.incrementRow();
+                    writer.write(transactionId, transactions.getTransactionId(index));
+                    writer.writeLong(receiptEntryId, transactions.getEntryId(row));
+                    writer.writeEpochMillis(purchaseDate, transactions.getPurchaseDateUnix(index));
+                    writer.write(storeId, transactions.getStoreId(index));
+                    writer.write(storeName, transactions.getStoreName(index));
+                    receiptEntryColumns.write(writer, transactions, row);
+                    amountColumns.write(writer, transactions.getAmount(index), transactions.getBonusPoints(index),
+                            transactions.getDiscount(index));
+                }
+            }
+        };
+    }
+
+
+    public void writeTableTransactions(TableWriter writer, List<Transaction> transactionList) throws IOException {
+        writeTransactions(transactionList.iterator(), createTableTransactions(writer));
+    }
+
+    public TransactionTable createTableTransactions(TableWriter writer) throws IOException {
+        int[] headers = writer.createHeaders(transactionsSchema);
+        int transactionId = getHeader(headers, TRANSACTIONS, "Transaction ID");
+        int purchaseDate = getHeader(headers, TRANSACTIONS, "Purchase Date");
+        int storeId = getHeader(headers, TRANSACTIONS, "Store ID");
+        int storeName = getHeader(headers, TRANSACTIONS, "Store Name");
+        TransactionAmountColumns amountColumns = new TransactionAmountColumns(headers, TRANSACTIONS);
+
+        return new TransactionTable() {
+            @Override
+            public void writeTransaction(Transaction transaction) throws IOException {
                 writer.incrementRow();
                 writer.write(transactionId, transaction.getId());
-                writer.write(receiptEntryId, receiptEntry.getEntryId());
-                writer.write(purchaseDate, Instant.ofEpochMilli(transaction.getPurchaseDateUnix()));
+                writer.writeEpochMillis(purchaseDate, transaction.getPurchaseDateUnix());
                 writer.write(storeId, transaction.getStoreId());
                 writer.write(storeName, transaction.getStoreName());
+                amountColumns.write(writer, transaction.getAmount(), transaction.getBonusPoints(), transaction.getDiscount());
+            }
 
-                writer.write(productCode, receiptEntry.getProductCode(), String.class);
-                writer.write(productDescription, receiptEntry.getProductDescription(), String.class);
-                writer.write(productText1, receiptEntry.getProductText1(), String.class);
-                writer.write(productText2, receiptEntry.getProductText2(), String.class);
-                writer.write(headerName, receiptEntry.getBarcode(), String.class);
-                writer.write(productGroupCode, receiptEntry.getProductGroupCode(), String.class);
-                writer.write(productGroupDesc, receiptEntry.getProductGroupDesc(), String.class);
-                writer.write(bonusBased, receiptEntry.isBonusBased());
-                writer.write(pieces, receiptEntry.getPieces());
-                writer.write(productPrice, receiptEntry.getPriceAmount());
-                writer.write(productDiscount, receiptEntry.getPriceDiscount());
-                writer.write(productDeposit, receiptEntry.getDeposit());
-                writer.write(volumeAmount, receiptEntry.getVolumeAmount());
-                writer.write(volumeUnit, receiptEntry.getVolumeUnit());
-
-                writer.write(transactionAmount, transaction.getAmount());
-                writer.write(transactionBonusPoints, transaction.getBonusPoints());
-                writer.write(transactionDiscount, transaction.getDiscount());
-                writer.write(transactionNetAmount, transaction.getAmount() - transaction.getDiscount());
+            @Override
+            public void writeTransaction(ColumnarTransactions transactions, int index) throws IOException {
+                writer.incrementRow();
+                writer.write(transactionId, transactions.getTransactionId(index));
+                writer.writeEpochMillis(purchaseDate, transactions.getPurchaseDateUnix(index));
+                writer.write(storeId, transactions.getStoreId(index));
+                writer.write(storeName, transactions.getStoreName(index));
+                amountColumns.write(writer, transactions.getAmount(index), transactions.getBonusPoints(index),
+                        transactions.getDiscount(index));
             }
-        }
+        };
     }
 
+    public void writeTableReceipts(TableWriter writer, List<Transaction> transactionList) throws IOException {
+        writeTransactions(transactionList.iterator(), createTableReceipts(writer));
+    }
 
-    public void writeTableTransactions(TableWriter writer, List<Transaction> transactionList) throws IOException {
-        int transactionId = createHeader(writer, "Transaction ID");
-        int purchaseDate = createHeader(writer, "Purchase Date");
-        int storeId = createHeader(writer, "Store ID");
-        int storeName = createHeader(writer, "Store Name");
-        int transactionAmount = createHeader(writer, "Transaction Amount");
-        int transactionBonusPoints = createHeader(writer, "Transaction Bonus Points");
-        int transactionDiscount = createHeader(writer, "Transaction Discount");
-        int transactionNetAmount = createHeader(writer, "Transaction Net Amount");
-
-        for (Transaction transaction : transactionList) {
-            // Skip empty receipts
-            if (transaction == null || transaction.getReceiptEntries() == null || transaction.getReceiptEntries().isEmpty()) {
-                continue;
+    public TransactionTable createTableReceipts(TableWriter writer) throws IOException {
+        int[] headers = writer.createHeaders(receiptsSchema);
+        int receiptEntryId = getHeader(headers, RECEIPTS, "Receipt Entry ID");
+        int transactionId = getHeader(headers, RECEIPTS, "Transaction ID");
+        ReceiptEntryColumns receiptEntryColumns = new ReceiptEntryColumns(headers, RECEIPTS);
+
+        return new TransactionTable() {
+            @Override
+            public void writeTransaction(Transaction transaction) throws IOException {
+                for (ReceiptEntry receiptEntry : transaction.getReceiptEntries()) {
+                    writer.incrementRow();
+                    writer.writeLong(receiptEntryId, receiptEntry.getEntryId());
+                    writer.write(transactionId, transaction.getId());
+                    receiptEntryColumns.write(writer, receiptEntry);
+                }
             }
-            writer.incrementRow();
-            writer.write(transactionId, transaction.getId());
-            writer.write(purchaseDate, Instant.ofEpochMilli(transaction.getPurchaseDateUnix()));
-            writer.write(storeId, transaction.getStoreId());
-            writer.write(storeName, transaction.getStoreName());
-            writer.write(transactionAmount, transaction.getAmount());
-            writer.write(transactionBonusPoints, transaction.getBonusPoints());
-            writer.write(transactionDiscount, transaction.getDiscount());
-            writer.write(transactionNetAmount, transaction.getAmount() - transaction.getDiscount());
-        }
+
+            @Override
+            public void writeTransaction(ColumnarTransactions transactions, int index) throws IOException {
+                for (int row = transactions.getReceiptStart(index); row < transactions.getReceiptEnd(index); row++) {
+                    writer.incrementRow();
+                    writer.writeLong(receiptEntryId, transactions.getEntryId(row));
+                    writer.write(transactionId, transactions.getTransactionId(index));
+                    receiptEntryColumns.write(writer, transactions, row);
+                }
+            }
+        };
     }
 
-    public void writeTableReceipts(TableWriter writer, List<Transaction> transactionList) throws IOException {
-        int receiptEntryId = createHeader(writer, "Receipt Entry ID");
-        int transactionId = createHeader(writer, "Transaction ID");
-        int productCode = createHeader(writer, "Product Code");
-        int productDescription = createHeader(writer, "Product Description");
-        int productText1 = createHeader(writer, "Product Text1");
-        int productText2 = createHeader(writer, "Product Text2");
-        int headerName = createHeader(writer, "Barcode");
-        int productGroupCode = createHeader(writer, "Product Group Code");
-        int productGroupDesc = createHeader(writer, "Product Group Desc");
-        int bonusBased = createHeader(writer, "Bonus Based");
-        int pieces = createHeader(writer, "Pieces");
-        int productPrice = createHeader(writer, "Product Total Price");
-        int productDiscount = createHeader(writer, "Product Discount");
-        int productDeposit = createHeader(writer, "Product Deposit");
-        int volumeAmount = createHeader(writer, "Volume Amount");
-        int volumeUnit = createHeader(writer, "Volume Unit");
-
-        for (Transaction transaction : transactionList) {
+    /**
+     * Write every transaction to each of the given tables, visiting each transaction exactly once.
+     * @param transactions the transactions.
+     * @param tables the tables to write.
+     */
+    public void writeTransactions(Iterator<Transaction> transactions, TransactionTable... tables) throws IOException {
+        while (transactions.hasNext()) {
+            Transaction transaction = transactions.next();
+
             // Skip empty receipts
             if (transaction == null || transaction.getReceiptEntries() == null || transaction.getReceiptEntries().isEmpty()) {
                 continue;
             }
-            for (ReceiptEntry receiptEntry : transaction.getReceiptEntries()) {
-                writer.incrementRow();
-                writer.write(receiptEntryId, receiptEntry.getEntryId());
-                writer.write(transactionId, transaction.getId());
-                writer.write(productCode, receiptEntry.getProductCode(), String.class);
-                writer.write(productDescription, receiptEntry.getProductDescription(), String.class);
-                writer.write(productText1, receiptEntry.getProductText1(), String.class);
-                writer.write(productText2, receiptEntry.getProductText2(), String.class);
-                writer.write(headerName, receiptEntry.getBarcode(), String.class);
-                writer.write(productGroupCode, receiptEntry.getProductGroupCode(), String.class);
-                writer.write(productGroupDesc, receiptEntry.getProductGroupDesc(), String.class);
-                writer.write(bonusBased, receiptEntry.isBonusBased());
-                writer.write(pieces, receiptEntry.getPieces());
-                writer.write(productPrice, receiptEntry.getPriceAmount());
-                writer.write(productDiscount, receiptEntry.getPriceDiscount());
-                writer.write(productDeposit, receiptEntry.getDeposit());
-                writer.write(volumeAmount, receiptEntry.getVolumeAmount());
-                writer.write(volumeUnit, receiptEntry.getVolumeUnit());
+            for (TransactionTable table : tables) {
+                table.writeTransaction(transaction);
             }
         }
     }
 
-    private int createHeader(TableWriter writer, String headerName) throws IOException {
-        return writer.createHeader(getHeaderName(writer, headerName));
+    /**
+     * Write every transaction in the given columnar store to each of the given tables, visiting each transaction
+     * exactly once.
+     * @param transactions the columnar store.
+     * @param tables the tables to write.
+     */
+    public void writeTransactions(ColumnarTransactions transactions, TransactionTable... tables) throws IOException {
+        // Empty transactions are never stored
+        for (int i = 0; i < transactions.getTransactionCount(); i++) {
+            for (TransactionTable table : tables) {
+                table.writeTransaction(transactions, i);
+            }
+        }
     }
 
     /**
-     * Retrieve the correct column header name.
-     * @return The header name.
+     * Retrieve the header index of the given column, after the headers of a schema have been created.
+     * @param headers the header index of each column in the schema.
+     * @param schema the schema with the original column names.
+     * @param columnName the original column name.
+     * @return The header index.
      */
-    protected String getHeaderName(TableWriter writer, String headerName) {
-        return headerName;
+    private static int getHeader(int[] headers, TableSchema schema, String columnName) {
+        int index = schema.indexOf(columnName);
+
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown column " + columnName + " in " + schema.getName());
+        }
+        return headers[index];
     }
 }
@@ -18,6 +18,8 @@ package com.comphenix.rema1000.io;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public abstract class DataWriter<T> {
     /**
@@ -26,4 +28,15 @@ public abstract class DataWriter<T> {
      * @param data the data to write.
      */
     public abstract void write(OutputStream output, T data) throws IOException;
+
+    /**
+     * Write the given data to the given file, replacing it if it exists.
+     * @param file the file.
+     * @param data the data to write.
+     */
+    public void write(Path file, T data) throws IOException {
+        try (OutputStream output = Files.newOutputStream(file)) {
+            write(output, data);
+        }
+    }
 }
@@ -0,0 +1,57 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io;
+
+import java.util.List;
+
+/**
+ * Creates the writer of an output format.
+ * <p>
+ * Implementations are discovered with {@link java.util.ServiceLoader}, by listing them in
+ * <i>META-INF/services/com.comphenix.rema1000.io.DataWriterFactory</i>. A factory should not load any dependencies
+ * of its writer until {@link #createWriter(DataWriterOptions)} is called.
+ */
+public interface DataWriterFactory {
+    /**
+     * Retrieve the name of the format, as given on the command line.
+     * @return The format name, such as SQL.
+     */
+    String getFormatName();
+
+    /**
+     * Retrieve the file extensions of the format, without the leading dot.
+     * @return The extensions, where the first is used when naming new files.
+     */
+    List<String> getExtensions();
+
+    /**
+     * Determine if the writer is able to append rows to an existing destination.
+     * @return TRUE if it is, FALSE otherwise.
+     */
+    default boolean isAppendSupported() {
+        return false;
+    }
+
+    /**
+     * Create a new writer with the given options.
+     * <p>
+     * Options that do not apply to the format are ignored.
+     * @param options the options.
+     * @return The new writer.
+     */
+    DataRootWriter createWriter(DataWriterOptions options);
+}
@@ -0,0 +1,126 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io;
+
+/**
+ * The options of the writer of any output format.
+ */
+public final class DataWriterOptions {
+    private final Integer batchSize;
+    private final boolean useTransaction;
+    private final boolean compressed;
+    private final boolean append;
+    private final int threadCount;
+
+    private DataWriterOptions(DataWriterOptionsBuilder builder) {
+        this.batchSize = builder.batchSize;
+        this.useTransaction = builder.useTransaction;
+        this.compressed = builder.compressed;
+        this.append = builder.append;
+        this.threadCount = builder.threadCount;
+    }
+
+    public static DataWriterOptionsBuilder newBuilder() {
+        return new DataWriterOptionsBuilder();
+    }
+
+    public static final class DataWriterOptionsBuilder {
+        private Integer batchSize;
+        private boolean useTransaction;
+        private boolean compressed;
+        private boolean append;
+        private int threadCount = 1;
+
+        private DataWriterOptionsBuilder() {
+        }
+
+        public DataWriterOptionsBuilder withBatchSize(Integer batchSize) {
+            if (batchSize != null && batchSize < 1) {
+                throw new IllegalArgumentException("batchSize must be at least 1");
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public DataWriterOptionsBuilder withUseTransaction(boolean useTransaction) {
+            this.useTransaction = useTransaction;
+            return this;
+        }
+
+        public DataWriterOptionsBuilder withCompressed(boolean compressed) {
+            this.compressed = compressed;
+            return this;
+        }
+
+        public DataWriterOptionsBuilder withAppend(boolean append) {
+            this.append = append;
+            return this;
+        }
+
+        public DataWriterOptionsBuilder withThreadCount(int threadCount) {
+            if (threadCount < 1) {
+                throw new IllegalArgumentException("threadCount must be at least 1");
+            }
+            this.threadCount = threadCount;
+            return this;
+        }
+
+        public DataWriterOptions build() {
+            return new DataWriterOptions(this);
+        }
+    }
+
+    /**
+     * Retrieve the number of rows written at once, such as per INSERT statement or row group.
+     * @return The number of rows, or NULL for the default of the format.
+     */
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Determine if the output should be written in a single database transaction.
+     * @return TRUE if it should, FALSE otherwise.
+     */
+    public boolean isUseTransaction() {
+        return useTransaction;
+    }
+
+    /**
+     * Determine if the output files should be compressed.
+     * @return TRUE if they should, FALSE otherwise.
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Determine if rows should be appended to an existing destination.
+     * @return TRUE if they should, FALSE otherwise.
+     */
+    public boolean isAppend() {
+        return append;
+    }
+
+    /**
+     * Retrieve the number of threads the writer may use.
+     * @return The number of threads.
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.ServiceLoader;
+
+/**
+ * The output formats that are available, keyed by format name and file extension.
+ */
+public class DataWriterRegistry {
+    private final Map<String, DataWriterFactory> formats = new LinkedHashMap<>();
+    private final Map<String, DataWriterFactory> extensions = new HashMap<>();
+
+    /**
+     * Create a registry with every format found by the {@link ServiceLoader} of the context class loader.
+     * @return The registry.
+     */
+    public static DataWriterRegistry load() {
+        return load(Thread.currentThread().getContextClassLoader());
+    }
+
+    /**
+     * Create a registry with every format found by the {@link ServiceLoader} of the given class loader.
+     * @param loader the class loader.
+     * @return The registry.
+     */
+    public static DataWriterRegistry load(ClassLoader loader) {
+        DataWriterRegistry registry = new DataWriterRegistry();
+
+        for (DataWriterFactory factory : ServiceLoader.load(DataWriterFactory.class, loader)) {
+            registry.register(factory);
+        }
+        return registry;
+    }
+
+    /**
+     * Add the given format, unless a format with the same name has already been registered.
+     * <p>
+     * An extension that is already used by another format is not changed.
+     * @param factory the factory of the format.
+     * @return TRUE if the format was added, FALSE otherwise.
+     */
+    public boolean register(DataWriterFactory factory) {
+        Objects.requireNonNull(factory, "factory cannot be NULL");
+
+        if (formats.putIfAbsent(normalize(factory.getFormatName()), factory) != null) {
+            return false;
+        }
+        for (String extension : factory.getExtensions()) {
+            extensions.putIfAbsent(normalize(extension), factory);
+        }
+        return true;
+    }
+
+    /**
+     * Retrieve the format with the given name, ignoring case.
+     * @param formatName the format name.
+     * @return The factory of the format.
+     * @throws IllegalArgumentException If the format is not registered.
+     */
+    public DataWriterFactory getFormat(String formatName) {
+        DataWriterFactory factory = formats.get(normalize(formatName));
+
+        if (factory == null) {
+            throw new IllegalArgumentException("Unknown format " + formatName + ", expected one of " + formats.keySet());
+        }
+        return factory;
+    }
+
+    /**
+     * Retrieve the format with the given file extension, ignoring case.
+     * @param extension the file extension, without the leading dot.
+     * @return The factory of the format.
+     * @throws IllegalArgumentException If no format uses this extension.
+     */
+    public DataWriterFactory fromExtension(String extension) {
+        DataWriterFactory factory = extensions.get(normalize(extension));
+
+        if (factory == null) {
+            throw new IllegalArgumentException("No format with extension " + extension);
+        }
+        return factory;
+    }
+
+    /**
+     * Retrieve every registered format, in the order they were registered.
+     * @return Unmodifiable view of the formats.
+     */
+    public Collection<DataWriterFactory> getFormats() {
+        return Collections.unmodifiableCollection(formats.values());
+    }
+
+    private static String normalize(String name) {
+        return name.toUpperCase(Locale.ROOT);
+    }
+}
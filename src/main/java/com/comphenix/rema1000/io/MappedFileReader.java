@@ -0,0 +1,149 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Reads a UTF-8 file by decoding directly from memory mapped regions of the file.
+ * <p>
+ * The file is read through the page cache of the operating system, without copying it into intermediate byte buffers.
+ */
+public class MappedFileReader extends Reader {
+    /**
+     * The default maximum size of each mapped region.
+     */
+    public static final int DEFAULT_REGION_SIZE = 256 * 1024 * 1024;
+
+    // Longest UTF-8 sequence, which must never be split by the end of a region
+    private static final int MAX_SEQUENCE_LENGTH = 4;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int regionSize;
+
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder().
+            onMalformedInput(CodingErrorAction.REPORT).
+            onUnmappableCharacter(CodingErrorAction.REPORT);
+
+    // The current region
+    private ByteBuffer region;
+    private long regionStart;
+
+    // Low surrogate that did not fit in the previous read
+    private final CharBuffer pending = CharBuffer.allocate(2);
+
+    private boolean flushed;
+
+    public MappedFileReader(Path file) throws IOException {
+        this(file, DEFAULT_REGION_SIZE);
+    }
+
+    public MappedFileReader(Path file, int regionSize) throws IOException {
+        Objects.requireNonNull(file, "file cannot be NULL");
+
+        if (regionSize < MAX_SEQUENCE_LENGTH * 2) {
+            throw new IllegalArgumentException("regionSize must be at least " + MAX_SEQUENCE_LENGTH * 2);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.regionSize = regionSize;
+        this.pending.flip();
+        mapRegion(0);
+    }
+
+    private void mapRegion(long start) throws IOException {
+        long size = Math.min(regionSize, fileSize - start);
+        region = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        regionStart = start;
+    }
+
+    private boolean isLastRegion() {
+        return regionStart + region.limit() >= fileSize;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (!channel.isOpen()) {
+            throw new IOException("Reader is closed");
+        }
+        if (offset < 0 || length < 0 || offset + length > buffer.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (length == 0) {
+            return 0;
+        }
+        if (pending.hasRemaining()) {
+            buffer[offset] = pending.get();
+            return 1;
+        }
+        CharBuffer output = CharBuffer.wrap(buffer, offset, length);
+
+        while (true) {
+            // Move the region forward before a sequence may be split
+            if (region.remaining() < MAX_SEQUENCE_LENGTH && !isLastRegion()) {
+                mapRegion(regionStart + region.position());
+            }
+            boolean endOfInput = isLastRegion();
+            CoderResult result = decoder.decode(region, output, endOfInput);
+
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (output.position() > offset) {
+                return output.position() - offset;
+            }
+            if (result.isOverflow()) {
+                // Only room for one half of a surrogate pair
+                pending.clear();
+                decoder.decode(region, pending, endOfInput);
+                pending.flip();
+                buffer[offset] = pending.get();
+                return 1;
+            }
+            if (endOfInput) {
+                if (!flushed) {
+                    decoder.flush(output);
+                    flushed = true;
+
+                    if (output.position() > offset) {
+                        return output.position() - offset;
+                    }
+                }
+                return -1;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The mapped region is released by the garbage collector
+        region = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io;
+
+import java.util.Arrays;
+
+/**
+ * The values of the current row of a table writer, where primitive values are stored without boxing.
+ * <p>
+ * The kind of each value determines which array it is stored in, and how it should be formatted. The buffer is
+ * reused for every row, by clearing it once the row has been written.
+ */
+public final class RowBuffer {
+    // Where the value of a column is stored
+    public static final byte KIND_OBJECT = 0;
+    public static final byte KIND_LONG = 1;
+    public static final byte KIND_DOUBLE = 2;
+    public static final byte KIND_BOOLEAN = 3;
+    public static final byte KIND_EPOCH_MILLIS = 4;
+
+    private Object[] values = new Object[0];
+    private long[] longValues = new long[0];
+    private double[] doubleValues = new double[0];
+    private byte[] valueKinds = new byte[0];
+
+    /**
+     * Retrieve the number of columns in the row.
+     * @return The number of columns.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Ensure that the row has at least the given number of columns, keeping the current values.
+     * @param columnCount the number of columns.
+     */
+    public void ensureSize(int columnCount) {
+        if (columnCount > values.length) {
+            values = Arrays.copyOf(values, columnCount);
+            longValues = Arrays.copyOf(longValues, columnCount);
+            doubleValues = Arrays.copyOf(doubleValues, columnCount);
+            valueKinds = Arrays.copyOf(valueKinds, columnCount);
+        }
+    }
+
+    public void setValue(int column, Object value) {
+        valueKinds[column] = KIND_OBJECT;
+        values[column] = value;
+    }
+
+    public void setLong(int column, long value) {
+        valueKinds[column] = KIND_LONG;
+        longValues[column] = value;
+    }
+
+    public void setDouble(int column, double value) {
+        valueKinds[column] = KIND_DOUBLE;
+        doubleValues[column] = value;
+    }
+
+    public void setBoolean(int column, boolean value) {
+        valueKinds[column] = KIND_BOOLEAN;
+        longValues[column] = value ? 1 : 0;
+    }
+
+    public void setEpochMillis(int column, long epochMillis) {
+        valueKinds[column] = KIND_EPOCH_MILLIS;
+        longValues[column] = epochMillis;
+    }
+
+    /**
+     * Retrieve the kind of value in the given column, such as {@link #KIND_LONG}.
+     * @param column the column index.
+     * @return The kind of value.
+     */
+    public byte getKind(int column) {
+        return valueKinds[column];
+    }
+
+    /**
+     * Retrieve the value of a column of kind {@link #KIND_OBJECT}.
+     * @param column the column index.
+     * @return The value, or NULL if no value has been written.
+     */
+    public Object getValue(int column) {
+        return values[column];
+    }
+
+    /**
+     * Retrieve the value of a column of kind {@link #KIND_LONG}, {@link #KIND_BOOLEAN} (one or zero) or
+     * {@link #KIND_EPOCH_MILLIS}.
+     * @param column the column index.
+     * @return The value.
+     */
+    public long getLong(int column) {
+        return longValues[column];
+    }
+
+    public double getDouble(int column) {
+        return doubleValues[column];
+    }
+
+    public boolean getBoolean(int column) {
+        return longValues[column] != 0;
+    }
+
+    /**
+     * Remove every value, leaving each column empty.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        Arrays.fill(valueKinds, KIND_OBJECT);
+    }
+}
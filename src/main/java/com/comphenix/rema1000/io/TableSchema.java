@@ -0,0 +1,221 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * The immutable layout of a table, with the name, type and keys of each column.
+ */
+public final class TableSchema {
+    /**
+     * A column in a table schema.
+     */
+    public static final class Column {
+        private final String name;
+        private final Class<?> type;
+        private final boolean primaryKey;
+        private final String foreignTable;
+        private final String foreignColumn;
+
+        public Column(String name, Class<?> type) {
+            this(name, type, false, null, null);
+        }
+
+        public Column(String name, Class<?> type, boolean primaryKey, String foreignTable, String foreignColumn) {
+            this.name = Objects.requireNonNull(name, "name cannot be NULL");
+            this.type = Objects.requireNonNull(type, "type cannot be NULL");
+            this.primaryKey = primaryKey;
+            this.foreignTable = foreignTable;
+            this.foreignColumn = foreignColumn;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Retrieve the type of every value in this column.
+         * @return The type.
+         */
+        public Class<?> getType() {
+            return type;
+        }
+
+        public boolean isPrimaryKey() {
+            return primaryKey;
+        }
+
+        /**
+         * Retrieve the name of the table referenced by this column, if any.
+         * @return The table name, or NULL if this is not a foreign key.
+         */
+        public String getForeignTable() {
+            return foreignTable;
+        }
+
+        /**
+         * Retrieve the name of the column referenced by this column, if any.
+         * @return The column name, or NULL if this is not a foreign key.
+         */
+        public String getForeignColumn() {
+            return foreignColumn;
+        }
+
+        private Column rename(UnaryOperator<String> naming) {
+            return new Column(naming.apply(name), type, primaryKey, foreignTable,
+                    foreignColumn != null ? naming.apply(foreignColumn) : null);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Column column = (Column) o;
+            return primaryKey == column.primaryKey &&
+                    Objects.equals(name, column.name) &&
+                    Objects.equals(type, column.type) &&
+                    Objects.equals(foreignTable, column.foreignTable) &&
+                    Objects.equals(foreignColumn, column.foreignColumn);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, type, primaryKey, foreignTable, foreignColumn);
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + type.getSimpleName();
+        }
+    }
+
+    private final String name;
+    private final List<Column> columns;
+    private final Map<String, Integer> indexLookup;
+
+    private TableSchema(String name, List<Column> columns) {
+        this.name = name;
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+        this.indexLookup = new HashMap<>();
+
+        for (int i = 0; i < columns.size(); i++) {
+            if (indexLookup.put(columns.get(i).getName(), i) != null) {
+                throw new IllegalArgumentException("Duplicate column " + columns.get(i).getName() + " in " + name);
+            }
+        }
+    }
+
+    public static TableSchemaBuilder newBuilder(String name) {
+        return new TableSchemaBuilder(name);
+    }
+
+    public static final class TableSchemaBuilder {
+        private final String name;
+        private final List<Column> columns = new ArrayList<>();
+
+        private TableSchemaBuilder(String name) {
+            this.name = Objects.requireNonNull(name, "name cannot be NULL");
+        }
+
+        public TableSchemaBuilder withColumn(String name, Class<?> type) {
+            return withColumn(new Column(name, type));
+        }
+
+        public TableSchemaBuilder withPrimaryKey(String name, Class<?> type) {
+            return withColumn(new Column(name, type, true, null, null));
+        }
+
+        public TableSchemaBuilder withColumn(Column column) {
+            columns.add(Objects.requireNonNull(column, "column cannot be NULL"));
+            return this;
+        }
+
+        /**
+         * Add every column of the given schema, in order.
+         * @param schema the schema.
+         * @return This builder, for chaining.
+         */
+        public TableSchemaBuilder withColumns(TableSchema schema) {
+            columns.addAll(schema.getColumns());
+            return this;
+        }
+
+        public TableSchema build() {
+            return new TableSchema(name, columns);
+        }
+    }
+
+    /**
+     * Retrieve the name of the table.
+     * @return The table name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Retrieve every column in the table, in order.
+     * @return Unmodifiable list of the columns.
+     */
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    public Column getColumn(int index) {
+        return columns.get(index);
+    }
+
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    /**
+     * Retrieve the index of the column with the given name.
+     * @param columnName the column name.
+     * @return The index, or -1 if not found.
+     */
+    public int indexOf(String columnName) {
+        return indexLookup.getOrDefault(columnName, -1);
+    }
+
+    /**
+     * Retrieve a copy of this schema where every column name, including the names of referenced columns, is
+     * converted by the given function. The column order is preserved.
+     * @param naming the naming function.
+     * @return The renamed schema.
+     */
+    public TableSchema renameColumns(UnaryOperator<String> naming) {
+        List<Column> renamed = new ArrayList<>(columns.size());
+
+        for (Column column : columns) {
+            renamed.add(column.rename(naming));
+        }
+        return new TableSchema(name, renamed);
+    }
+
+    @Override
+    public String toString() {
+        return name + columns;
+    }
+}
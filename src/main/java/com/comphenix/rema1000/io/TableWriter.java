@@ -66,6 +66,20 @@ public interface TableWriter extends AutoCloseable {
      */
     int createHeader(String headerName) throws IOException;
 
+    /**
+     * Create a header for every column in the given schema, in order.
+     * @param schema the table schema.
+     * @return Index of the created or existing header of each column in the schema.
+     */
+    default int[] createHeaders(TableSchema schema) throws IOException {
+        int[] headerIndices = new int[schema.getColumnCount()];
+
+        for (int i = 0; i < headerIndices.length; i++) {
+            headerIndices[i] = createHeader(schema.getColumn(i).getName());
+        }
+        return headerIndices;
+    }
+
     /**
      * Write the given value to the column with the given header.
      * @param headerName the header name.
@@ -96,6 +110,34 @@ public interface TableWriter extends AutoCloseable {
      */
     void write(int headerIndex, Object value, Class<?> type) throws IOException;
 
+    /**
+     * Write the given integer to the column with the given header, without boxing.
+     * @param headerIndex the header index.
+     * @param value the value.
+     */
+    void writeLong(int headerIndex, long value) throws IOException;
+
+    /**
+     * Write the given decimal number to the column with the given header, without boxing.
+     * @param headerIndex the header index.
+     * @param value the value.
+     */
+    void writeDouble(int headerIndex, double value) throws IOException;
+
+    /**
+     * Write the given boolean to the column with the given header, without boxing.
+     * @param headerIndex the header index.
+     * @param value the value.
+     */
+    void writeBoolean(int headerIndex, boolean value) throws IOException;
+
+    /**
+     * Write the given point in time to the column with the given header, without creating an {@link java.time.Instant}.
+     * @param headerIndex the header index.
+     * @param epochMillis the number of milliseconds since the unix epoch.
+     */
+    void writeEpochMillis(int headerIndex, long epochMillis) throws IOException;
+
     /**
      * Close the current writer.
      */
@@ -0,0 +1,169 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Arrays;
+
+/**
+ * A growable character array that text is formatted into before it is passed to a {@link Writer}.
+ * <p>
+ * Unlike a {@link StringBuilder}, the array is written directly, so the text is never copied into a second array
+ * or a string. The buffer is meant to be reused, by clearing it once it has been written.
+ */
+public final class TextBuffer implements Appendable {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private char[] chars;
+    private int length;
+
+    // Formatting of values without an allocation-free conversion
+    private final StringBuilder scratch = new StringBuilder(32);
+
+    public TextBuffer() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public TextBuffer(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity cannot be negative");
+        }
+        this.chars = new char[capacity];
+    }
+
+    @Override
+    public TextBuffer append(char value) {
+        ensureCapacity(length + 1);
+        chars[length++] = value;
+        return this;
+    }
+
+    @Override
+    public TextBuffer append(CharSequence value) {
+        if (value == null) {
+            return append("null");
+        }
+        return append(value, 0, value.length());
+    }
+
+    @Override
+    public TextBuffer append(CharSequence value, int start, int end) {
+        if (value == null) {
+            return append("null", start, end);
+        }
+        ensureCapacity(length + end - start);
+
+        if (value instanceof String) {
+            ((String) value).getChars(start, end, chars, length);
+        } else if (value instanceof StringBuilder) {
+            ((StringBuilder) value).getChars(start, end, chars, length);
+        } else {
+            for (int i = start; i < end; i++) {
+                chars[length + i - start] = value.charAt(i);
+            }
+        }
+        length += end - start;
+        return this;
+    }
+
+    public TextBuffer append(long value) {
+        if (value == Long.MIN_VALUE) {
+            return append("-9223372036854775808");
+        }
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        int digits = 1;
+
+        for (long limit = 10; digits < 19 && value >= limit; limit *= 10) {
+            digits++;
+        }
+        ensureCapacity(length + digits);
+
+        // Fill in the digits from the end
+        for (int i = length + digits - 1; i >= length; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+        return this;
+    }
+
+    /**
+     * Append the given value, formatted as {@link Double#toString(double)}.
+     * @param value the value.
+     * @return This buffer, for chaining.
+     */
+    public TextBuffer append(double value) {
+        scratch.setLength(0);
+        return append(scratch.append(value));
+    }
+
+    public TextBuffer append(boolean value) {
+        return append(value ? "true" : "false");
+    }
+
+    /**
+     * Append the given date and time, formatted by the given formatter.
+     * @param formatter the formatter.
+     * @param temporal the date and time.
+     * @return This buffer, for chaining.
+     */
+    public TextBuffer append(DateTimeFormatter formatter, TemporalAccessor temporal) {
+        scratch.setLength(0);
+        formatter.formatTo(temporal, scratch);
+        return append(scratch);
+    }
+
+    /**
+     * Retrieve the number of characters in the buffer.
+     * @return The number of characters.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Remove every character, keeping the allocated array.
+     */
+    public void clear() {
+        length = 0;
+    }
+
+    /**
+     * Write every character in the buffer to the given writer.
+     * @param writer the writer.
+     */
+    public void writeTo(Writer writer) throws IOException {
+        writer.write(chars, 0, length);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(capacity, chars.length * 2));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
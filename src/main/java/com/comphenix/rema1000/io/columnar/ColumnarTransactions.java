@@ -0,0 +1,509 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.columnar;
+
+import com.comphenix.rema1000.model.OfferEntry;
+import com.comphenix.rema1000.model.ReceiptEntry;
+import com.comphenix.rema1000.model.Transaction;
+import com.comphenix.rema1000.model.TransactionPayment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Stores transactions column by column, with one primitive array per numeric property and dictionary codes for
+ * strings, instead of one object per receipt entry.
+ * <p>
+ * Receipt entries, payments and used offers are stored in the order of their transaction, and the entries of a
+ * transaction are found by their start and end offset. Transactions without any receipt entries are never written
+ * to a table, and are not stored.
+ */
+public class ColumnarTransactions {
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Shared by every string column
+    private final StringDictionary dictionary = new StringDictionary();
+
+    // Transactions
+    private int transactionCount;
+    private String[] transactionIds = new String[INITIAL_CAPACITY];
+    private long[] purchaseDates = new long[INITIAL_CAPACITY];
+    private int[] storeIds = new int[INITIAL_CAPACITY];
+    private int[] storeNames = new int[INITIAL_CAPACITY];
+    private double[] amounts = new double[INITIAL_CAPACITY];
+    private int[] bonusPoints = new int[INITIAL_CAPACITY];
+    private double[] discounts = new double[INITIAL_CAPACITY];
+    // Offset of the first receipt entry and payment of each transaction, and the end of the last transaction
+    private int[] receiptOffsets = new int[INITIAL_CAPACITY + 1];
+    private int[] paymentOffsets = new int[INITIAL_CAPACITY + 1];
+
+    // Receipt entries
+    private int receiptCount;
+    private long[] entryIds = new long[INITIAL_CAPACITY];
+    private int[] productCodes = new int[INITIAL_CAPACITY];
+    private int[] productDescriptions = new int[INITIAL_CAPACITY];
+    private int[] productTexts1 = new int[INITIAL_CAPACITY];
+    private int[] productTexts2 = new int[INITIAL_CAPACITY];
+    private int[] barcodes = new int[INITIAL_CAPACITY];
+    private int[] productGroupCodes = new int[INITIAL_CAPACITY];
+    private int[] productGroupDescs = new int[INITIAL_CAPACITY];
+    private BitSet bonusBased = new BitSet();
+    private long[] pieces = new long[INITIAL_CAPACITY];
+    private double[] priceAmounts = new double[INITIAL_CAPACITY];
+    private double[] priceDiscounts = new double[INITIAL_CAPACITY];
+    private double[] volumeAmounts = new double[INITIAL_CAPACITY];
+    private int[] volumeUnits = new int[INITIAL_CAPACITY];
+    private double[] deposits = new double[INITIAL_CAPACITY];
+    // Offset of the first used offer of each receipt entry, and the end of the last entry
+    private int[] offerOffsets = new int[INITIAL_CAPACITY + 1];
+
+    // Payments
+    private int paymentCount;
+    private int[] paymentDescs = new int[INITIAL_CAPACITY];
+    private double[] paymentAmounts = new double[INITIAL_CAPACITY];
+
+    // Used offers
+    private int offerCount;
+    private int[] offerCodes = new int[INITIAL_CAPACITY];
+    private int[] offerDescs = new int[INITIAL_CAPACITY];
+    private double[] offerDiscountsFlat = new double[INITIAL_CAPACITY];
+    private double[] offerDiscountsPercent = new double[INITIAL_CAPACITY];
+
+    /**
+     * Read every remaining transaction of the given iterator into a new columnar store.
+     * @param transactions the transactions.
+     * @return The columnar store.
+     */
+    public static ColumnarTransactions fromIterator(Iterator<Transaction> transactions) {
+        ColumnarTransactions result = new ColumnarTransactions();
+
+        while (transactions.hasNext()) {
+            result.add(transactions.next());
+        }
+        result.trimToSize();
+        return result;
+    }
+
+    /**
+     * Append the given transaction, unless it is NULL or has no receipt entries.
+     * @param transaction the transaction.
+     */
+    public void add(Transaction transaction) {
+        if (transaction == null || transaction.getReceiptEntries() == null || transaction.getReceiptEntries().isEmpty()) {
+            return;
+        }
+        ensureTransactionCapacity(transactionCount + 1);
+        int index = transactionCount;
+
+        transactionIds[index] = transaction.getId();
+        purchaseDates[index] = transaction.getPurchaseDateUnix();
+        storeIds[index] = dictionary.encode(transaction.getStoreId());
+        storeNames[index] = dictionary.encode(transaction.getStoreName());
+        amounts[index] = transaction.getAmount();
+        bonusPoints[index] = transaction.getBonusPoints();
+        discounts[index] = transaction.getDiscount();
+
+        for (ReceiptEntry entry : transaction.getReceiptEntries()) {
+            if (entry != null) {
+                addReceiptEntry(entry);
+            }
+        }
+        if (transaction.getTransactionPayments() != null) {
+            for (TransactionPayment payment : transaction.getTransactionPayments()) {
+                if (payment != null) {
+                    addPayment(payment);
+                }
+            }
+        }
+        transactionCount++;
+        receiptOffsets[transactionCount] = receiptCount;
+        paymentOffsets[transactionCount] = paymentCount;
+    }
+
+    private void addReceiptEntry(ReceiptEntry entry) {
+        ensureReceiptCapacity(receiptCount + 1);
+        int row = receiptCount;
+
+        entryIds[row] = entry.getEntryId();
+        productCodes[row] = dictionary.encode(entry.getProductCode());
+        productDescriptions[row] = dictionary.encode(entry.getProductDescription());
+        productTexts1[row] = dictionary.encode(entry.getProductText1());
+        productTexts2[row] = dictionary.encode(entry.getProductText2());
+        barcodes[row] = dictionary.encode(entry.getBarcode());
+        productGroupCodes[row] = dictionary.encode(entry.getProductGroupCode());
+        productGroupDescs[row] = dictionary.encode(entry.getProductGroupDesc());
+        bonusBased.set(row, entry.isBonusBased());
+        pieces[row] = entry.getPieces();
+        priceAmounts[row] = entry.getPriceAmount();
+        priceDiscounts[row] = entry.getPriceDiscount();
+        volumeAmounts[row] = entry.getVolumeAmount();
+        volumeUnits[row] = dictionary.encode(entry.getVolumeUnit());
+        deposits[row] = entry.getDeposit();
+
+        if (entry.getUsedOffers() != null) {
+            for (OfferEntry offer : entry.getUsedOffers()) {
+                if (offer != null) {
+                    addOffer(offer);
+                }
+            }
+        }
+        receiptCount++;
+        offerOffsets[receiptCount] = offerCount;
+    }
+
+    private void addPayment(TransactionPayment payment) {
+        if (paymentCount >= paymentDescs.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, paymentCount * 2);
+            paymentDescs = Arrays.copyOf(paymentDescs, capacity);
+            paymentAmounts = Arrays.copyOf(paymentAmounts, capacity);
+        }
+        paymentDescs[paymentCount] = dictionary.encode(payment.getMeansOfPaymentDesc());
+        paymentAmounts[paymentCount] = payment.getAmount();
+        paymentCount++;
+    }
+
+    private void addOffer(OfferEntry offer) {
+        if (offerCount >= offerCodes.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, offerCount * 2);
+            offerCodes = Arrays.copyOf(offerCodes, capacity);
+            offerDescs = Arrays.copyOf(offerDescs, capacity);
+            offerDiscountsFlat = Arrays.copyOf(offerDiscountsFlat, capacity);
+            offerDiscountsPercent = Arrays.copyOf(offerDiscountsPercent, capacity);
+        }
+        offerCodes[offerCount] = dictionary.encode(offer.getOfferCode());
+        offerDescs[offerCount] = dictionary.encode(offer.getOfferDescription());
+        offerDiscountsFlat[offerCount] = offer.getDiscountFlat();
+        offerDiscountsPercent[offerCount] = offer.getDiscountPercent();
+        offerCount++;
+    }
+
+    private void ensureTransactionCapacity(int minimum) {
+        if (minimum > transactionIds.length) {
+            resizeTransactions(Math.max(minimum, transactionIds.length * 2));
+        }
+    }
+
+    private void resizeTransactions(int capacity) {
+        transactionIds = Arrays.copyOf(transactionIds, capacity);
+        purchaseDates = Arrays.copyOf(purchaseDates, capacity);
+        storeIds = Arrays.copyOf(storeIds, capacity);
+        storeNames = Arrays.copyOf(storeNames, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        bonusPoints = Arrays.copyOf(bonusPoints, capacity);
+        discounts = Arrays.copyOf(discounts, capacity);
+        receiptOffsets = Arrays.copyOf(receiptOffsets, capacity + 1);
+        paymentOffsets = Arrays.copyOf(paymentOffsets, capacity + 1);
+    }
+
+    private void ensureReceiptCapacity(int minimum) {
+        if (minimum > entryIds.length) {
+            resizeReceipts(Math.max(minimum, entryIds.length * 2));
+        }
+    }
+
+    private void resizeReceipts(int capacity) {
+        entryIds = Arrays.copyOf(entryIds, capacity);
+        productCodes = Arrays.copyOf(productCodes, capacity);
+        productDescriptions = Arrays.copyOf(productDescriptions, capacity);
+        productTexts1 = Arrays.copyOf(productTexts1, capacity);
+        productTexts2 = Arrays.copyOf(productTexts2, capacity);
+        barcodes = Arrays.copyOf(barcodes, capacity);
+        productGroupCodes = Arrays.copyOf(productGroupCodes, capacity);
+        productGroupDescs = Arrays.copyOf(productGroupDescs, capacity);
+        pieces = Arrays.copyOf(pieces, capacity);
+        priceAmounts = Arrays.copyOf(priceAmounts, capacity);
+        priceDiscounts = Arrays.copyOf(priceDiscounts, capacity);
+        volumeAmounts = Arrays.copyOf(volumeAmounts, capacity);
+        volumeUnits = Arrays.copyOf(volumeUnits, capacity);
+        deposits = Arrays.copyOf(deposits, capacity);
+        offerOffsets = Arrays.copyOf(offerOffsets, capacity + 1);
+    }
+
+    /**
+     * Release any unused capacity, once every transaction has been added.
+     */
+    public void trimToSize() {
+        resizeTransactions(transactionCount);
+        resizeReceipts(receiptCount);
+        paymentDescs = Arrays.copyOf(paymentDescs, paymentCount);
+        paymentAmounts = Arrays.copyOf(paymentAmounts, paymentCount);
+        offerCodes = Arrays.copyOf(offerCodes, offerCount);
+        offerDescs = Arrays.copyOf(offerDescs, offerCount);
+        offerDiscountsFlat = Arrays.copyOf(offerDiscountsFlat, offerCount);
+        offerDiscountsPercent = Arrays.copyOf(offerDiscountsPercent, offerCount);
+    }
+
+    /**
+     * Retrieve the given transaction as a model object, including its receipt entries and payments.
+     * @param index the transaction index.
+     * @return The transaction.
+     */
+    public Transaction getTransaction(int index) {
+        List<ReceiptEntry> receiptEntries = new ArrayList<>();
+        List<TransactionPayment> payments = new ArrayList<>();
+
+        for (int row = getReceiptStart(index); row < getReceiptEnd(index); row++) {
+            receiptEntries.add(getReceiptEntry(row));
+        }
+        for (int payment = getPaymentStart(index); payment < getPaymentEnd(index); payment++) {
+            payments.add(TransactionPayment.newBuilder().
+                    withMeansOfPaymentDesc(getPaymentDesc(payment)).
+                    withAmount(getPaymentAmount(payment)).
+                    build());
+        }
+        return Transaction.newBuilder().
+                withId(getTransactionId(index)).
+                withPurchaseDateUnix(getPurchaseDateUnix(index)).
+                withStoreId(getStoreId(index)).
+                withStoreName(getStoreName(index)).
+                withAmount(getAmount(index)).
+                withBonusPoints(getBonusPoints(index)).
+                withDiscount(getDiscount(index)).
+                withTransactionPayments(payments).
+                withReceiptEntries(receiptEntries).
+                build();
+    }
+
+    /**
+     * Retrieve the given receipt entry as a model object, including its used offers.
+     * @param row the receipt entry index.
+     * @return The receipt entry.
+     */
+    public ReceiptEntry getReceiptEntry(int row) {
+        List<OfferEntry> usedOffers = new ArrayList<>();
+
+        for (int offer = getOfferStart(row); offer < getOfferEnd(row); offer++) {
+            usedOffers.add(OfferEntry.newBuilder().
+                    withOfferCode(getOfferCode(offer)).
+                    withOfferDescription(getOfferDescription(offer)).
+                    withDiscountFlat(getOfferDiscountFlat(offer)).
+                    withDiscountPercent(getOfferDiscountPercent(offer)).
+                    build());
+        }
+        return ReceiptEntry.newBuilder().
+                withEntryId(getEntryId(row)).
+                withProductCode(getProductCode(row)).
+                withProductDescription(getProductDescription(row)).
+                withProductText1(getProductText1(row)).
+                withProductText2(getProductText2(row)).
+                withBarcode(getBarcode(row)).
+                withProductGroupCode(getProductGroupCode(row)).
+                withProductGroupDesc(getProductGroupDesc(row)).
+                withBonusBased(isBonusBased(row)).
+                withPieces(getPieces(row)).
+                withPriceAmount(getPriceAmount(row)).
+                withPriceDiscount(getPriceDiscount(row)).
+                withVolumeAmount(getVolumeAmount(row)).
+                withVolumeUnit(getVolumeUnit(row)).
+                withDeposit(getDeposit(row)).
+                withUsedOffers(usedOffers).
+                build();
+    }
+
+    /**
+     * Retrieve the dictionary of every string in the store.
+     * @return The dictionary.
+     */
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+
+    public int getReceiptCount() {
+        return receiptCount;
+    }
+
+    public int getPaymentCount() {
+        return paymentCount;
+    }
+
+    public int getOfferCount() {
+        return offerCount;
+    }
+
+    public String getTransactionId(int index) {
+        return transactionIds[index];
+    }
+
+    public long getPurchaseDateUnix(int index) {
+        return purchaseDates[index];
+    }
+
+    public String getStoreId(int index) {
+        return dictionary.decode(storeIds[index]);
+    }
+
+    public String getStoreName(int index) {
+        return dictionary.decode(storeNames[index]);
+    }
+
+    public double getAmount(int index) {
+        return amounts[index];
+    }
+
+    public int getBonusPoints(int index) {
+        return bonusPoints[index];
+    }
+
+    public double getDiscount(int index) {
+        return discounts[index];
+    }
+
+    /**
+     * Retrieve the index of the first receipt entry of the given transaction.
+     * @param index the transaction index.
+     * @return The receipt entry index.
+     */
+    public int getReceiptStart(int index) {
+        return receiptOffsets[index];
+    }
+
+    /**
+     * Retrieve the index after the last receipt entry of the given transaction.
+     * @param index the transaction index.
+     * @return The receipt entry index.
+     */
+    public int getReceiptEnd(int index) {
+        return receiptOffsets[index + 1];
+    }
+
+    /**
+     * Retrieve the index of the first payment of the given transaction.
+     * @param index the transaction index.
+     * @return The payment index.
+     */
+    public int getPaymentStart(int index) {
+        return paymentOffsets[index];
+    }
+
+    /**
+     * Retrieve the index after the last payment of the given transaction.
+     * @param index the transaction index.
+     * @return The payment index.
+     */
+    public int getPaymentEnd(int index) {
+        return paymentOffsets[index + 1];
+    }
+
+    public long getEntryId(int row) {
+        return entryIds[row];
+    }
+
+    public String getProductCode(int row) {
+        return dictionary.decode(productCodes[row]);
+    }
+
+    public String getProductDescription(int row) {
+        return dictionary.decode(productDescriptions[row]);
+    }
+
+    public String getProductText1(int row) {
+        return dictionary.decode(productTexts1[row]);
+    }
+
+    public String getProductText2(int row) {
+        return dictionary.decode(productTexts2[row]);
+    }
+
+    public String getBarcode(int row) {
+        return dictionary.decode(barcodes[row]);
+    }
+
+    public String getProductGroupCode(int row) {
+        return dictionary.decode(productGroupCodes[row]);
+    }
+
+    public String getProductGroupDesc(int row) {
+        return dictionary.decode(productGroupDescs[row]);
+    }
+
+    public boolean isBonusBased(int row) {
+        return bonusBased.get(row);
+    }
+
+    public long getPieces(int row) {
+        return pieces[row];
+    }
+
+    public double getPriceAmount(int row) {
+        return priceAmounts[row];
+    }
+
+    public double getPriceDiscount(int row) {
+        return priceDiscounts[row];
+    }
+
+    public double getVolumeAmount(int row) {
+        return volumeAmounts[row];
+    }
+
+    public String getVolumeUnit(int row) {
+        return dictionary.decode(volumeUnits[row]);
+    }
+
+    public double getDeposit(int row) {
+        return deposits[row];
+    }
+
+    /**
+     * Retrieve the index of the first used offer of the given receipt entry.
+     * @param row the receipt entry index.
+     * @return The offer index.
+     */
+    public int getOfferStart(int row) {
+        return offerOffsets[row];
+    }
+
+    /**
+     * Retrieve the index after the last used offer of the given receipt entry.
+     * @param row the receipt entry index.
+     * @return The offer index.
+     */
+    public int getOfferEnd(int row) {
+        return offerOffsets[row + 1];
+    }
+
+    public String getPaymentDesc(int payment) {
+        return dictionary.decode(paymentDescs[payment]);
+    }
+
+    public double getPaymentAmount(int payment) {
+        return paymentAmounts[payment];
+    }
+
+    public String getOfferCode(int offer) {
+        return dictionary.decode(offerCodes[offer]);
+    }
+
+    public String getOfferDescription(int offer) {
+        return dictionary.decode(offerDescs[offer]);
+    }
+
+    public double getOfferDiscountFlat(int offer) {
+        return offerDiscountsFlat[offer];
+    }
+
+    public double getOfferDiscountPercent(int offer) {
+        return offerDiscountsPercent[offer];
+    }
+}
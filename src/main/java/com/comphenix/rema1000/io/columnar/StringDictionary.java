@@ -0,0 +1,80 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.columnar;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns a small integer code to every distinct string, so that repeated strings can be stored as codes.
+ */
+public class StringDictionary {
+    /**
+     * The code of a NULL string.
+     */
+    public static final int NULL_CODE = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[16];
+    private int size;
+
+    /**
+     * Retrieve the code of the given string, assigning a new code if it has not been seen before.
+     * @param value the string, or NULL.
+     * @return The code, or {@link #NULL_CODE} for NULL.
+     */
+    public int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+
+        if (code == null) {
+            if (size >= values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            code = size;
+            values[size++] = value;
+            codes.put(value, code);
+        }
+        return code;
+    }
+
+    /**
+     * Retrieve the string with the given code.
+     * @param code the code.
+     * @return The string, or NULL if the code is {@link #NULL_CODE}.
+     */
+    public String decode(int code) {
+        if (code == NULL_CODE) {
+            return null;
+        }
+        if (code < 0 || code >= size) {
+            throw new IllegalArgumentException("Unknown string code " + code);
+        }
+        return values[code];
+    }
+
+    /**
+     * Retrieve the number of distinct strings.
+     * @return The number of strings.
+     */
+    public int size() {
+        return size;
+    }
+}
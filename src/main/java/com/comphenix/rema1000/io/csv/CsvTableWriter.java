@@ -0,0 +1,251 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.csv;
+
+import com.comphenix.rema1000.io.AbstractTableWriter;
+import com.comphenix.rema1000.io.RowBuffer;
+import com.comphenix.rema1000.io.TextBuffer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Writes a table as comma (or tab) separated values, with the header names in the first line.
+ * <p>
+ * Rows are appended to a shared buffer that is passed to the underlying writer once it is full. The writer is
+ * flushed, but not closed, when this table writer is closed.
+ */
+public class CsvTableWriter extends AbstractTableWriter {
+    // Number of characters to buffer before writing
+    private static final int BUFFER_SIZE = 8192;
+
+    // Line break of RFC 4180
+    private static final String LINE_BREAK = "\r\n";
+
+    private final Writer writer;
+    private char delimiter = ',';
+
+    // Current values to be written to the output, reused for every row
+    private final RowBuffer row = new RowBuffer();
+
+    // Pending output
+    private final TextBuffer buffer = new TextBuffer(BUFFER_SIZE + 1024);
+
+    // Index of the current row (initially -1)
+    private int dataIndex = -1;
+
+    private boolean writeHeader = true;
+
+    public CsvTableWriter(Writer writer) {
+        this.writer = Objects.requireNonNull(writer, "writer cannot be NULL");
+    }
+
+    /**
+     * Set the character that separates each value in a line.
+     * @param delimiter the delimiter, such as a comma or a tab.
+     * @return This writer, for chaining.
+     */
+    public CsvTableWriter setDelimiter(char delimiter) {
+        if (delimiter == '"' || delimiter == '\r' || delimiter == '\n') {
+            throw new IllegalArgumentException("Illegal delimiter " + delimiter);
+        }
+        this.delimiter = delimiter;
+        return this;
+    }
+
+    /**
+     * Retrieve the character that separates each value in a line.
+     * @return The delimiter.
+     */
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * Set whether or not to write the header names in the first line, such as when appending to an existing file.
+     * @param writeHeader TRUE to write the header names, FALSE otherwise.
+     * @return This writer, for chaining.
+     */
+    public CsvTableWriter setWriteHeader(boolean writeHeader) {
+        this.writeHeader = writeHeader;
+        return this;
+    }
+
+    @Override
+    protected void onWriteValue(int headerIndex, Object value, Class<?> type) throws IOException {
+        checkRow();
+        row.setValue(headerIndex, value);
+    }
+
+    @Override
+    protected void onWriteLong(int headerIndex, long value) throws IOException {
+        checkRow();
+        row.setLong(headerIndex, value);
+    }
+
+    @Override
+    protected void onWriteDouble(int headerIndex, double value) throws IOException {
+        checkRow();
+        row.setDouble(headerIndex, value);
+    }
+
+    @Override
+    protected void onWriteBoolean(int headerIndex, boolean value) throws IOException {
+        checkRow();
+        row.setBoolean(headerIndex, value);
+    }
+
+    @Override
+    protected void onWriteEpochMillis(int headerIndex, long epochMillis) throws IOException {
+        checkRow();
+        row.setEpochMillis(headerIndex, epochMillis);
+    }
+
+    private void checkRow() {
+        if (dataIndex < 0) {
+            throw new IllegalStateException("Must call incrementRow() first");
+        }
+    }
+
+    @Override
+    public void incrementRow() throws IOException {
+        if (dataIndex >= 0) {
+            writeRow();
+        } else {
+            writeHeader();
+        }
+        dataIndex++;
+    }
+
+    @Override
+    public int getDataRowCount() {
+        return dataIndex + 1;
+    }
+
+    private void writeHeader() throws IOException {
+        // The columns cannot change from now on
+        getColumnRegistry().freeze();
+        int length = getHeaderCount();
+        row.ensureSize(length);
+
+        if (!writeHeader) {
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                buffer.append(delimiter);
+            }
+            appendString(getHeaderName(i));
+        }
+        buffer.append(LINE_BREAK);
+    }
+
+    private void writeRow() throws IOException {
+        for (int i = 0; i < row.size(); i++) {
+            if (i > 0) {
+                buffer.append(delimiter);
+            }
+            switch (row.getKind(i)) {
+                case RowBuffer.KIND_LONG:
+                    buffer.append(row.getLong(i));
+                    break;
+                case RowBuffer.KIND_DOUBLE:
+                    buffer.append(row.getDouble(i));
+                    break;
+                case RowBuffer.KIND_BOOLEAN:
+                    buffer.append(row.getBoolean(i));
+                    break;
+                case RowBuffer.KIND_EPOCH_MILLIS:
+                    buffer.append(DateTimeFormatter.ISO_INSTANT, Instant.ofEpochMilli(row.getLong(i)));
+                    break;
+                default:
+                    appendValue(row.getValue(i));
+            }
+        }
+        buffer.append(LINE_BREAK);
+        row.clear();
+
+        if (buffer.length() >= BUFFER_SIZE) {
+            flushBuffer();
+        }
+    }
+
+    private void appendValue(Object value) {
+        if (value == null) {
+            // Empty field
+            return;
+        }
+        if (value instanceof Instant) {
+            buffer.append(DateTimeFormatter.ISO_INSTANT, (Instant) value);
+        } else if (value instanceof Date) {
+            buffer.append(DateTimeFormatter.ISO_INSTANT, ((Date) value).toInstant());
+        } else if (value instanceof Double) {
+            buffer.append((double) value);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            buffer.append(((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            buffer.append((boolean) value);
+        } else {
+            appendString(value.toString());
+        }
+    }
+
+    private void appendString(CharSequence value) {
+        boolean quote = false;
+
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char current = value.charAt(i);
+            quote = current == delimiter || current == '"' || current == '\r' || current == '\n';
+        }
+        if (!quote) {
+            buffer.append(value);
+            return;
+        }
+        buffer.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char current = value.charAt(i);
+
+            // Escape quote
+            if (current == '"') {
+                buffer.append('"');
+            }
+            buffer.append(current);
+        }
+        buffer.append('"');
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.writeTo(writer);
+        buffer.clear();
+    }
+
+    @Override
+    protected void onClosed() throws IOException {
+        if (dataIndex >= 0) {
+            writeRow();
+        } else {
+            writeHeader();
+        }
+        flushBuffer();
+        writer.flush();
+    }
+}
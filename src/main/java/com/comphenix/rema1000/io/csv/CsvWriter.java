@@ -0,0 +1,301 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.csv;
+
+import com.comphenix.rema1000.io.DataRootWriter;
+import com.comphenix.rema1000.io.DataTableConverter;
+import com.comphenix.rema1000.io.DataTableConverter.TransactionSource;
+import com.comphenix.rema1000.io.TableWriter;
+import com.comphenix.rema1000.io.columnar.ColumnarTransactions;
+import com.comphenix.rema1000.io.json.DataRootReader;
+import com.comphenix.rema1000.model.DataRoot;
+import com.comphenix.rema1000.model.Transaction;
+import com.comphenix.rema1000.model.TransactionsInfo;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes every table to its own file of comma (or tab) separated values.
+ * <p>
+ * When writing to a path, the path is a directory with one file per table, optionally compressed with gzip. When
+ * writing to an output stream, the tables are written to the entries of a ZIP archive instead.
+ */
+public class CsvWriter extends DataRootWriter {
+    @FunctionalInterface
+    private interface TableContent {
+        void write(TableWriter writer) throws IOException;
+    }
+
+    private DataTableConverter tableConverter = new DataTableConverter();
+
+    private char delimiter = ',';
+    private boolean compressed;
+    private boolean append;
+
+    /**
+     * Set the character that separates each value in a line.
+     * @param delimiter the delimiter, such as a comma or a tab.
+     */
+    public void setDelimiter(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Retrieve the character that separates each value in a line.
+     * @return The delimiter.
+     */
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * Set whether or not to compress each file with gzip, when writing to a directory.
+     * <p>
+     * The entries of a ZIP archive are always compressed.
+     * @param compressed TRUE to compress each file, FALSE otherwise.
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    /**
+     * Determine if each file is compressed with gzip, when writing to a directory.
+     * @return TRUE if it is, FALSE otherwise.
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Set whether or not to append rows to the files of an existing directory, instead of replacing them.
+     * <p>
+     * The header line is only written to new files, and the top list always replaces the existing top list. This is
+     * ignored when writing to an output stream.
+     * @param append TRUE to append to existing files, FALSE otherwise.
+     */
+    public void setAppend(boolean append) {
+        this.append = append;
+    }
+
+    /**
+     * Determine if rows are appended to the files of an existing directory.
+     * @return TRUE if they are, FALSE otherwise.
+     */
+    public boolean isAppend() {
+        return append;
+    }
+
+    @Override
+    public void write(OutputStream output, DataRoot data) throws IOException {
+        writeArchive(output, createTables(getTransactionSource(data), () -> data));
+    }
+
+    /**
+     * Write the transactions of the given reader to a ZIP archive, one transaction at a time.
+     * <p>
+     * The transactions can only be read once, so every table is first written to a temporary directory.
+     * @param output the output stream.
+     * @param reader the reader.
+     */
+    @Override
+    public void write(OutputStream output, DataRootReader reader) throws IOException {
+        Path directory = Files.createTempDirectory("RemaTransactionParser");
+
+        try {
+            writeDirectory(directory, tables -> tableConverter.writeTransactions(reader, tables), reader::getDataRoot, false, false);
+
+            try (ZipOutputStream zip = new ZipOutputStream(new NonClosingOutputStream(output))) {
+                for (String tableName : getTableNames()) {
+                    zip.putNextEntry(new ZipEntry(getFileName(tableName, false)));
+                    Files.copy(directory.resolve(getFileName(tableName, false)), zip);
+                    zip.closeEntry();
+                }
+            }
+        } finally {
+            for (String tableName : getTableNames()) {
+                Files.deleteIfExists(directory.resolve(getFileName(tableName, false)));
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Override
+    public void write(OutputStream output, DataRoot data, ColumnarTransactions transactions) throws IOException {
+        writeArchive(output, createTables(tables -> tableConverter.writeTransactions(transactions, tables), () -> data));
+    }
+
+    @Override
+    public void write(Path directory, DataRoot data) throws IOException {
+        writeDirectory(directory, getTransactionSource(data), () -> data, compressed, append);
+    }
+
+    /**
+     * Write the transactions of the given reader to the given directory, one transaction at a time.
+     * @param directory the directory.
+     * @param reader the reader.
+     */
+    @Override
+    public void write(Path directory, DataRootReader reader) throws IOException {
+        writeDirectory(directory, tables -> tableConverter.writeTransactions(reader, tables), reader::getDataRoot,
+                compressed, append);
+    }
+
+    @Override
+    public void write(Path directory, DataRoot data, ColumnarTransactions transactions) throws IOException {
+        writeDirectory(directory, tables -> tableConverter.writeTransactions(transactions, tables), () -> data,
+                compressed, append);
+    }
+
+    private TransactionSource getTransactionSource(DataRoot data) {
+        TransactionsInfo transactionsInfo = data.getTransactionsInfo();
+        List<Transaction> transactionList = transactionsInfo != null ?
+                transactionsInfo.getTransactionList() : Collections.emptyList();
+
+        return tables -> tableConverter.writeTransactions(transactionList.iterator(), tables);
+    }
+
+    /**
+     * Create the content of each table, where each table is written in a separate pass over the transactions.
+     * @param transactions the transactions, which must support more than one pass.
+     * @param dataSupplier the data outside the transaction list.
+     * @return The content of each table, in order.
+     */
+    private Map<String, TableContent> createTables(TransactionSource transactions, Supplier<DataRoot> dataSupplier) {
+        Map<String, TableContent> tables = new LinkedHashMap<>();
+        tables.put("TopList", writer -> tableConverter.writeTableTopList(writer, dataSupplier.get().getTopList()));
+        tables.put("Transactions", writer -> transactions.writeTransactions(tableConverter.createTableTransactions(writer)));
+        tables.put("Receipts", writer -> transactions.writeTransactions(tableConverter.createTableReceipts(writer)));
+        tables.put("TransactionsPayments", writer -> transactions.writeTransactions(tableConverter.createTableTransactionsPayments(writer)));
+        tables.put("UsedOffers", writer -> transactions.writeTransactions(tableConverter.createTableTransactionsUsedOffers(writer)));
+        return tables;
+    }
+
+    private Iterable<String> getTableNames() {
+        return createTables(tables -> { }, () -> null).keySet();
+    }
+
+    private void writeArchive(OutputStream output, Map<String, TableContent> tables) throws IOException {
+        // Each entry must be complete before the next one is started
+        try (ZipOutputStream zip = new ZipOutputStream(new NonClosingOutputStream(output));
+             Writer writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8)) {
+
+            for (Map.Entry<String, TableContent> table : tables.entrySet()) {
+                zip.putNextEntry(new ZipEntry(getFileName(table.getKey(), false)));
+
+                try (TableWriter tableWriter = createTableWriter(writer)) {
+                    table.getValue().write(tableWriter);
+                }
+                zip.closeEntry();
+            }
+        }
+    }
+
+    private void writeDirectory(Path directory, TransactionSource transactions, Supplier<DataRoot> dataSupplier,
+                                boolean compress, boolean appendRows) throws IOException {
+        Files.createDirectories(directory);
+
+        // Only new files need a header line
+        boolean transactionsHeader = !appendRows || isEmptyFile(directory, "Transactions", compress);
+        boolean receiptsHeader = !appendRows || isEmptyFile(directory, "Receipts", compress);
+        boolean paymentsHeader = !appendRows || isEmptyFile(directory, "TransactionsPayments", compress);
+        boolean usedOffersHeader = !appendRows || isEmptyFile(directory, "UsedOffers", compress);
+
+        try (Writer transactionsOutput = openFile(directory, "Transactions", compress, appendRows);
+             Writer receiptsOutput = openFile(directory, "Receipts", compress, appendRows);
+             Writer paymentsOutput = openFile(directory, "TransactionsPayments", compress, appendRows);
+             Writer usedOffersOutput = openFile(directory, "UsedOffers", compress, appendRows);
+             TableWriter transactionsWriter = createTableWriter(transactionsOutput).setWriteHeader(transactionsHeader);
+             TableWriter receiptsWriter = createTableWriter(receiptsOutput).setWriteHeader(receiptsHeader);
+             TableWriter paymentsWriter = createTableWriter(paymentsOutput).setWriteHeader(paymentsHeader);
+             TableWriter usedOffersWriter = createTableWriter(usedOffersOutput).setWriteHeader(usedOffersHeader)) {
+
+            // Visit each transaction once
+            transactions.writeTransactions(
+                    tableConverter.createTableTransactions(transactionsWriter),
+                    tableConverter.createTableReceipts(receiptsWriter),
+                    tableConverter.createTableTransactionsPayments(paymentsWriter),
+                    tableConverter.createTableTransactionsUsedOffers(usedOffersWriter));
+        }
+        // The top list may follow the transactions, and always replaces the existing top list
+        try (Writer topListOutput = openFile(directory, "TopList", compress, false);
+             TableWriter topListWriter = createTableWriter(topListOutput)) {
+            tableConverter.writeTableTopList(topListWriter, dataSupplier.get().getTopList());
+        }
+    }
+
+    private boolean isEmptyFile(Path directory, String tableName, boolean compress) throws IOException {
+        Path file = directory.resolve(getFileName(tableName, compress));
+        return !Files.exists(file) || Files.size(file) == 0;
+    }
+
+    private Writer openFile(Path directory, String tableName, boolean compress, boolean appendRows) throws IOException {
+        Path file = directory.resolve(getFileName(tableName, compress));
+
+        // Concatenated gzip members are read as a single file
+        OutputStream output = appendRows ?
+                Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND) :
+                Files.newOutputStream(file);
+
+        if (compress) {
+            output = new GZIPOutputStream(output, 8192);
+        }
+        return new OutputStreamWriter(output, StandardCharsets.UTF_8);
+    }
+
+    private CsvTableWriter createTableWriter(Writer writer) {
+        return new CsvTableWriter(writer).setDelimiter(delimiter);
+    }
+
+    private String getFileName(String tableName, boolean compress) {
+        return tableName + (delimiter == '\t' ? ".tsv" : ".csv") + (compress ? ".gz" : "");
+    }
+
+    /**
+     * Leaves the underlying stream open, such as standard output, once the ZIP archive is finished.
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -17,15 +17,37 @@
 package com.comphenix.rema1000.io.excel;
 
 import com.comphenix.rema1000.io.AbstractTableWriter;
+import org.dhatim.fastexcel.Workbook;
 import org.dhatim.fastexcel.Worksheet;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.util.Date;
 import java.util.Objects;
 
+/**
+ * Writes a table to a worksheet of an XLSX workbook.
+ * <p>
+ * Writers created with a workbook continue in a new worksheet once the current worksheet is full, such as
+ * "Receipt Entries (2)". These worksheets are appended after the last worksheet of the workbook (such as "Used Offers"),
+ * not next to the first worksheet of the table.
+ */
 public class ExcelTableWriter extends AbstractTableWriter {
+    /**
+     * The maximum number of rows in a worksheet.
+     */
+    public static final int MAX_ROWS = 1048576;
+
+    // Excel limit of sheet names
+    private static final int MAX_NAME_LENGTH = 31;
+
     private final WorkbookStyle workbookStyle;
-    private final Worksheet sheet;
+    private Worksheet sheet;
+
+    // Creates continuation worksheets, if any
+    private final Workbook workbook;
+    private final String sheetName;
+    private int sheetCount = 1;
 
     // Position of the header row
     private int headerOffset;
@@ -34,6 +56,12 @@ public class ExcelTableWriter extends AbstractTableWriter {
 
     // Index of the current row (initially -1)
     private int dataIndex = -1;
+    // Index of the current row in the current worksheet (initially -1)
+    private int sheetIndex = -1;
+
+    // Number of rows between each flush, or 0 to keep the whole sheet in memory
+    private int flushInterval;
+    private boolean finishOnClose;
 
     public ExcelTableWriter(WorkbookStyle workbookStyle, Worksheet sheet) {
         this(workbookStyle, sheet, 0, 1);
@@ -48,13 +76,104 @@ public class ExcelTableWriter extends AbstractTableWriter {
         }
         this.workbookStyle = Objects.requireNonNull(workbookStyle, "workbookStyle cannot be NULL");
         this.sheet = Objects.requireNonNull(sheet, "sheet cannot be NULL");
+        this.workbook = null;
+        this.sheetName = null;
         this.headerOffset = headerOffset;
         this.dataOffset = dataOffset;
     }
 
+    /**
+     * Construct a writer of a new worksheet with the given name.
+     * <p>
+     * Rows beyond the limit of a worksheet continue in a new worksheet at the end of the workbook, with the same header
+     * row and the number of the worksheet after the name, such as "Receipt Entries (2)".
+     * @param workbookStyle the workbook style.
+     * @param workbook the workbook.
+     * @param sheetName the name of the first worksheet.
+     */
+    public ExcelTableWriter(WorkbookStyle workbookStyle, Workbook workbook, String sheetName) {
+        this.workbookStyle = Objects.requireNonNull(workbookStyle, "workbookStyle cannot be NULL");
+        this.workbook = Objects.requireNonNull(workbook, "workbook cannot be NULL");
+        this.sheetName = Objects.requireNonNull(sheetName, "sheetName cannot be NULL");
+        this.sheet = workbook.newWorksheet(sheetName);
+        this.headerOffset = 0;
+        this.dataOffset = 1;
+    }
+
+    /**
+     * Set the number of rows between each flush of the worksheet to the output.
+     * <p>
+     * Note that only one worksheet in a workbook may be flushed until it has been finished, so worksheets that are
+     * filled in parallel must never be flushed.
+     * @param flushInterval the number of rows, or 0 to never flush the worksheet.
+     * @return This writer, for chaining.
+     */
+    public ExcelTableWriter setFlushInterval(int flushInterval) {
+        if (flushInterval < 0) {
+            throw new IllegalArgumentException("flushInterval cannot be negative");
+        }
+        this.flushInterval = flushInterval;
+        return this;
+    }
+
+    /**
+     * Retrieve the number of rows between each flush of the worksheet to the output.
+     * @return The number of rows, or 0 if the worksheet is never flushed.
+     */
+    public int getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Set whether or not to finish the worksheet when the writer is closed, freeing any buffered rows.
+     * @param finishOnClose TRUE to finish the worksheet, FALSE to leave it to the workbook.
+     * @return This writer, for chaining.
+     */
+    public ExcelTableWriter setFinishOnClose(boolean finishOnClose) {
+        this.finishOnClose = finishOnClose;
+        return this;
+    }
+
+    /**
+     * Determine if the worksheet is finished when the writer is closed.
+     * @return TRUE if it is, FALSE otherwise.
+     */
+    public boolean isFinishOnClose() {
+        return finishOnClose;
+    }
+
     @Override
-    public void incrementRow() {
+    public void incrementRow() throws IOException {
+        if (dataOffset + sheetIndex + 1 >= MAX_ROWS) {
+            startContinuationSheet();
+        }
         this.dataIndex++;
+        this.sheetIndex++;
+
+        // Every row before the current row is complete
+        if (flushInterval > 0 && sheetIndex > 0 && sheetIndex % flushInterval == 0) {
+            sheet.flush();
+        }
+    }
+
+    private void startContinuationSheet() throws IOException {
+        if (workbook == null) {
+            throw new IllegalStateException("Cannot write more than " + MAX_ROWS + " rows to a single worksheet");
+        }
+        // A flushed worksheet must be finished before the next can be flushed
+        if (flushInterval > 0 && finishOnClose) {
+            sheet.finish();
+        }
+        String suffix = " (" + (++sheetCount) + ")";
+        String name = sheetName.length() + suffix.length() > MAX_NAME_LENGTH ?
+                sheetName.substring(0, MAX_NAME_LENGTH - suffix.length()).trim() : sheetName;
+
+        sheet = workbook.newWorksheet(name + suffix);
+        sheetIndex = -1;
+
+        for (int i = 0; i < getHeaderCount(); i++) {
+            onHeaderCreated(getHeaderName(i), i);
+        }
     }
 
     @Override
@@ -69,15 +188,48 @@ public class ExcelTableWriter extends AbstractTableWriter {
 
     @Override
     protected void onWriteValue(int headerIndex, Object value, Class<?> type) {
+        checkRow();
+        CellStyle style = Instant.class.equals(type) || Date.class.equals(type) ? workbookStyle.getDateStyle() : null;
+        CellStyle.writeStyled(sheet, dataOffset + sheetIndex, headerIndex, value, style);
+    }
+
+    @Override
+    protected void onWriteLong(int headerIndex, long value) {
+        checkRow();
+        sheet.value(dataOffset + sheetIndex, headerIndex, value);
+    }
+
+    @Override
+    protected void onWriteDouble(int headerIndex, double value) {
+        checkRow();
+        sheet.value(dataOffset + sheetIndex, headerIndex, value);
+    }
+
+    @Override
+    protected void onWriteBoolean(int headerIndex, boolean value) {
+        checkRow();
+        sheet.value(dataOffset + sheetIndex, headerIndex, value ? "True" : "False");
+    }
+
+    @Override
+    protected void onWriteEpochMillis(int headerIndex, long epochMillis) {
+        checkRow();
+        int row = dataOffset + sheetIndex;
+
+        sheet.value(row, headerIndex, new Date(epochMillis));
+        workbookStyle.getDateStyle().apply(sheet, row, headerIndex);
+    }
+
+    private void checkRow() {
         if (dataIndex < 0) {
             throw new IllegalStateException("Must call incrementRow() first");
         }
-        CellStyle style = Instant.class.equals(type) || Date.class.equals(type) ? workbookStyle.getDateStyle() : null;
-        CellStyle.writeStyled(sheet, dataOffset + dataIndex, headerIndex, value, style);
     }
 
     @Override
-    protected void onClosed() {
-        // NOP
+    protected void onClosed() throws IOException {
+        if (finishOnClose) {
+            sheet.finish();
+        }
     }
 }
@@ -16,94 +16,246 @@
  */
 package com.comphenix.rema1000.io.excel;
 
+import com.comphenix.rema1000.io.DataRootWriter;
 import com.comphenix.rema1000.io.DataTableConverter;
-import com.comphenix.rema1000.io.DataWriter;
+import com.comphenix.rema1000.io.DataTableConverter.TransactionSource;
+import com.comphenix.rema1000.io.DataTableConverter.TransactionTable;
 import com.comphenix.rema1000.io.TableWriter;
+import com.comphenix.rema1000.io.columnar.ColumnarTransactions;
+import com.comphenix.rema1000.io.json.DataRootReader;
 import com.comphenix.rema1000.model.DataRoot;
-import com.comphenix.rema1000.model.TopListMetadata;
 import com.comphenix.rema1000.model.Transaction;
 import com.comphenix.rema1000.model.TransactionsInfo;
 import org.dhatim.fastexcel.Workbook;
 import org.dhatim.fastexcel.Worksheet;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+public class ExcelWriter extends DataRootWriter {
+    @FunctionalInterface
+    private interface TransactionTableFactory {
+        TransactionTable createTable(TableWriter writer) throws IOException;
+    }
+
+    /**
+     * The default number of rows between each flush of a worksheet.
+     */
+    public static final int DEFAULT_FLUSH_INTERVAL = 1000;
 
-public class ExcelWriter extends DataWriter<DataRoot> {
     private DataTableConverter tableConverter = new DataTableConverter();
 
+    private int threadCount = 1;
+    private int flushInterval = DEFAULT_FLUSH_INTERVAL;
+
+    /**
+     * Set the number of threads used to fill the worksheets, when the whole export is in memory.
+     * <p>
+     * Worksheets filled by more than one thread are kept in memory until the workbook is finished.
+     * @param threadCount the number of threads, or 1 to fill every worksheet on the calling thread.
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("threadCount must be at least 1");
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Retrieve the number of threads used to fill the worksheets, when the whole export is in memory.
+     * @return The number of threads.
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Set the number of rows between each flush of a worksheet to the output.
+     * @param flushInterval the number of rows, or 0 to keep every worksheet in memory until the end.
+     */
+    public void setFlushInterval(int flushInterval) {
+        if (flushInterval < 0) {
+            throw new IllegalArgumentException("flushInterval cannot be negative");
+        }
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Retrieve the number of rows between each flush of a worksheet to the output.
+     * @return The number of rows, or 0 if worksheets are never flushed before the end.
+     */
+    public int getFlushInterval() {
+        return flushInterval;
+    }
+
     @Override
     public void write(OutputStream output, DataRoot data) throws IOException {
+        TransactionsInfo transactionsInfo = data.getTransactionsInfo();
+        List<Transaction> transactions = transactionsInfo != null ?
+                transactionsInfo.getTransactionList() : Collections.emptyList();
+
+        writeSheets(output, tables -> tableConverter.writeTransactions(transactions.iterator(), tables), data);
+    }
+
+    @Override
+    public void write(OutputStream output, DataRoot data, ColumnarTransactions transactions) throws IOException {
+        writeSheets(output, tables -> tableConverter.writeTransactions(transactions, tables), data);
+    }
+
+    /**
+     * Write the transactions of the given reader to the output stream, one transaction at a time.
+     * <p>
+     * The worksheets are always filled on the calling thread, as the transactions can only be read once. Only the
+     * receipt entries are flushed during the conversion, as a worksheet must be finished before the next may be flushed.
+     * @param output the output stream.
+     * @param reader the reader.
+     */
+    @Override
+    public void write(OutputStream output, DataRootReader reader) throws IOException {
+        write(output, reader, reader::getDataRoot);
+    }
+
+    private void write(OutputStream output, Iterator<Transaction> transactions, Supplier<DataRoot> dataSupplier) throws IOException {
         Workbook workbook = new Workbook(output, "RemaTransactionParser", "1.0");
         WorkbookStyle workbookStyle = createWorkbookStyle();
 
-        TransactionsInfo transactionsInfo = data.getTransactionsInfo();
+        // The info and top list may follow the transactions, but the sheet order is fixed on creation
+        Worksheet infoSheet = workbook.newWorksheet("Info");
+        ExcelTableWriter topListWriter = new ExcelTableWriter(workbookStyle, workbook, "TopList");
 
-        if (transactionsInfo != null) {
-            writeTransactionsInfo(workbookStyle, workbook.newWorksheet("Info"), transactionsInfo);
-        }
-        writeTopList(workbookStyle, workbook.newWorksheet("TopList"),
-                data.getTopList());
+        try (TableWriter transactionsWriter = new ExcelTableWriter(workbookStyle, workbook, "Transactions");
+             TableWriter receiptEntriesWriter = createStreamingWriter(workbookStyle, workbook, "Receipt Entries");
+             TableWriter paymentsWriter = new ExcelTableWriter(workbookStyle, workbook, "Transactions Payments");
+             TableWriter usedOffersWriter = new ExcelTableWriter(workbookStyle, workbook, "Used Offers")) {
 
-        if (transactionsInfo == null) {
-            return;
+            // Visit each transaction once
+            tableConverter.writeTransactions(transactions,
+                    tableConverter.createTableTransactions(transactionsWriter),
+                    tableConverter.createJoinedTableTransactions(receiptEntriesWriter),
+                    tableConverter.createTableTransactionsPayments(paymentsWriter),
+                    tableConverter.createTableTransactionsUsedOffers(usedOffersWriter));
         }
-        List<Transaction> transactions = transactionsInfo.getTransactionList();
+        DataRoot data = dataSupplier.get();
 
-        if (transactions == null || transactions.isEmpty()) {
-            return;
+        if (data.getTransactionsInfo() != null) {
+            writeTransactionsInfo(workbookStyle, infoSheet, data.getTransactionsInfo());
         }
-        writeTransactions(workbookStyle, workbook.newWorksheet("Transactions"),
-                transactions);
-        writeReceiptEntries(workbookStyle, workbook.newWorksheet("Receipt Entries"),
-                transactions);
-        writeTransactionsPayments(workbookStyle, workbook.newWorksheet("Transactions Payments"),
-                transactions);
-        writeTransactionUsedOffers(workbookStyle, workbook.newWorksheet("Used Offers"),
-                transactions);
-
+        tableConverter.writeTableTopList(topListWriter, data.getTopList());
         workbook.finish();
     }
 
-    private void writeTransactionsInfo(WorkbookStyle workbookStyle, Worksheet info, TransactionsInfo transactionsInfo) {
-        writeInfoLine(workbookStyle, info, 0, "Bonus Total", transactionsInfo.getBonusTotal());
-        writeInfoLine(workbookStyle, info, 1, "Discount Total", transactionsInfo.getDiscountTotal());
-        writeInfoLine(workbookStyle, info, 2, "Purchase Total", transactionsInfo.getPurchaseTotal());
-    }
+    private void writeSheets(OutputStream output, TransactionSource transactions, DataRoot data) throws IOException {
+        Workbook workbook = new Workbook(output, "RemaTransactionParser", "1.0");
+        WorkbookStyle workbookStyle = createWorkbookStyle();
 
-    private void writeInfoLine(WorkbookStyle style, Worksheet sheet, int rowIndex, String infoName, Object infoValue) {
-        CellStyle.writeStyled(sheet, rowIndex, 0, infoName, style.getHeaderStyle());
-        CellStyle.writeStyled(sheet, rowIndex, 1, infoValue, null);
-    }
+        // Create the worksheets in order, before they are filled by each task
+        Worksheet infoSheet = workbook.newWorksheet("Info");
+        ExcelTableWriter topListWriter = new ExcelTableWriter(workbookStyle, workbook, "TopList");
+        List<Callable<Void>> tasks = new ArrayList<>();
 
-    private void writeTransactionsPayments(WorkbookStyle workbookStyle, Worksheet sheet, List<Transaction> transactionList) throws IOException {
-        try (TableWriter writer = new ExcelTableWriter(workbookStyle, sheet)) {
-            tableConverter.writeTableTransactionsPayments(writer, transactionList);
+        tasks.add(() -> {
+            if (data.getTransactionsInfo() != null) {
+                writeTransactionsInfo(workbookStyle, infoSheet, data.getTransactionsInfo());
+            }
+            return null;
+        });
+        tasks.add(() -> {
+            tableConverter.writeTableTopList(topListWriter, data.getTopList());
+            return null;
+        });
+        tasks.add(createSheetTask(createSheetWriter(workbookStyle, workbook, "Transactions"),
+                transactions, tableConverter::createTableTransactions));
+        tasks.add(createSheetTask(createSheetWriter(workbookStyle, workbook, "Receipt Entries"),
+                transactions, tableConverter::createJoinedTableTransactions));
+        tasks.add(createSheetTask(createSheetWriter(workbookStyle, workbook, "Transactions Payments"),
+                transactions, tableConverter::createTableTransactionsPayments));
+        tasks.add(createSheetTask(createSheetWriter(workbookStyle, workbook, "Used Offers"),
+                transactions, tableConverter::createTableTransactionsUsedOffers));
+
+        if (threadCount == 1) {
+            // One worksheet at a time
+            for (Callable<Void> task : tasks) {
+                try {
+                    task.call();
+                } catch (IOException | RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IOException("Unable to write worksheet", e);
+                }
+            }
+            workbook.finish();
+            return;
         }
-    }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, tasks.size()));
 
-    private void writeTransactionUsedOffers(WorkbookStyle workbookStyle, Worksheet sheet, List<Transaction> transactionList) throws IOException {
-        try (TableWriter writer = new ExcelTableWriter(workbookStyle, sheet)) {
-            tableConverter.writeTableTransactionsUsedOffers(writer, transactionList);
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing worksheets");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("Unable to write worksheet", cause);
+        } finally {
+            executor.shutdownNow();
         }
+        workbook.finish();
     }
 
-    private void writeTopList(WorkbookStyle workbookStyle, Worksheet sheet, TopListMetadata metadata) throws IOException {
-        TableWriter writer = new ExcelTableWriter(workbookStyle, sheet);
-        tableConverter.writeTableTopList(writer, metadata);
+    private Callable<Void> createSheetTask(ExcelTableWriter tableWriter, TransactionSource transactions,
+                                           TransactionTableFactory tableFactory) {
+        return () -> {
+            try (TableWriter writer = tableWriter) {
+                transactions.writeTransactions(tableFactory.createTable(writer));
+            }
+            return null;
+        };
     }
 
-    private void writeReceiptEntries(WorkbookStyle workbookStyle, Worksheet sheet, List<Transaction> transactionList) throws IOException {
-        try (TableWriter writer = new ExcelTableWriter(workbookStyle, sheet)) {
-            tableConverter.writeJoinedTableTransactions(writer, transactionList);
+    private ExcelTableWriter createSheetWriter(WorkbookStyle workbookStyle, Workbook workbook, String sheetName) {
+        // Worksheets filled in parallel are written one at a time by the workbook, as only one may be flushed at a time
+        if (threadCount > 1) {
+            return new ExcelTableWriter(workbookStyle, workbook, sheetName);
         }
+        return createStreamingWriter(workbookStyle, workbook, sheetName);
     }
 
-    private void writeTransactions(WorkbookStyle workbookStyle, Worksheet sheet, List<Transaction> transactionList) throws IOException {
-        try (TableWriter writer = new ExcelTableWriter(workbookStyle, sheet)) {
-            tableConverter.writeTableTransactions(writer, transactionList);
-        }
+    private ExcelTableWriter createStreamingWriter(WorkbookStyle workbookStyle, Workbook workbook, String sheetName) {
+        return new ExcelTableWriter(workbookStyle, workbook, sheetName).
+                setFlushInterval(flushInterval).
+                setFinishOnClose(true);
+    }
+
+    private void writeTransactionsInfo(WorkbookStyle workbookStyle, Worksheet info, TransactionsInfo transactionsInfo) {
+        writeInfoLine(workbookStyle, info, 0, "Bonus Total", transactionsInfo.getBonusTotal());
+        writeInfoLine(workbookStyle, info, 1, "Discount Total", transactionsInfo.getDiscountTotal());
+        writeInfoLine(workbookStyle, info, 2, "Purchase Total", transactionsInfo.getPurchaseTotal());
+    }
+
+    private void writeInfoLine(WorkbookStyle style, Worksheet sheet, int rowIndex, String infoName, Object infoValue) {
+        CellStyle.writeStyled(sheet, rowIndex, 0, infoName, style.getHeaderStyle());
+        CellStyle.writeStyled(sheet, rowIndex, 1, infoValue, null);
     }
 
     private WorkbookStyle createWorkbookStyle() {
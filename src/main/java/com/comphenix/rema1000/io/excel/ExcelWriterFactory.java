@@ -0,0 +1,46 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.excel;
+
+import com.comphenix.rema1000.io.DataRootWriter;
+import com.comphenix.rema1000.io.DataWriterFactory;
+import com.comphenix.rema1000.io.DataWriterOptions;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Excel 2007+ workbooks (XLSX).
+ */
+public class ExcelWriterFactory implements DataWriterFactory {
+    @Override
+    public String getFormatName() {
+        return "XLSX";
+    }
+
+    @Override
+    public List<String> getExtensions() {
+        return Collections.singletonList("xlsx");
+    }
+
+    @Override
+    public DataRootWriter createWriter(DataWriterOptions options) {
+        ExcelWriter writer = new ExcelWriter();
+        writer.setThreadCount(options.getThreadCount());
+        return writer;
+    }
+}
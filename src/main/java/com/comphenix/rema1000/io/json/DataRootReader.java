@@ -0,0 +1,220 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.json;
+
+import com.comphenix.rema1000.model.*;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Pull-based reader of a Rema 1000 JSON export, yielding one transaction at a time.
+ * <p>
+ * Everything except the transactions is kept in memory, and may be retrieved through {@link #getDataRoot()}
+ * once every transaction has been read.
+ */
+public class DataRootReader implements Iterator<Transaction>, Closeable {
+    private enum State {
+        START,
+        ROOT,
+        TRANSACTIONS_INFO,
+        TRANSACTIONS,
+        FINISHED
+    }
+    private final Gson gson;
+    private final JsonReader reader;
+
+    private State state = State.START;
+
+    // Data outside the transaction list
+    private TopListMetadata topList;
+    private boolean transactionsInfoFound;
+    private double bonusTotal;
+    private double purchaseTotal;
+    private double discountTotal;
+
+    public DataRootReader(Gson gson, Reader reader) {
+        this.gson = Objects.requireNonNull(gson, "gson cannot be NULL");
+        this.reader = new JsonReader(Objects.requireNonNull(reader, "reader cannot be NULL"));
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            return advance();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Transaction next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more transactions");
+        }
+        Transaction transaction = gson.fromJson(reader, Transaction.class);
+
+        // Generate IDs
+        ReceiptEntryIds.assignEntryIds(transaction);
+        return transaction;
+    }
+
+    /**
+     * Read the remaining transactions into memory, and retrieve the full data root.
+     * @return The full data root.
+     */
+    public DataRoot readDataRoot() {
+        List<Transaction> transactionList = new ArrayList<>();
+
+        while (hasNext()) {
+            transactionList.add(next());
+        }
+        return createDataRoot(transactionList);
+    }
+
+    /**
+     * Retrieve the data outside the transaction list.
+     * <p>
+     * The returned transactions info (if any) is in streaming mode, and will not contain any transactions.
+     * @return The data root.
+     * @throws IllegalStateException If there are transactions left to read.
+     */
+    public DataRoot getDataRoot() {
+        if (hasNext()) {
+            throw new IllegalStateException("Cannot retrieve data root before every transaction has been read.");
+        }
+        return createDataRoot(null);
+    }
+
+    private DataRoot createDataRoot(List<Transaction> transactionList) {
+        TransactionsInfo transactionsInfo = transactionsInfoFound ? TransactionsInfo.newBuilder().
+                withBonusTotal(bonusTotal).
+                withPurchaseTotal(purchaseTotal).
+                withDiscountTotal(discountTotal).
+                withTransactionList(transactionList).
+                build() : null;
+
+        return DataRoot.newBuilder().
+                withTopList(topList).
+                withTransactionsInfo(transactionsInfo).
+                build();
+    }
+
+    /**
+     * Read until the next transaction, or the end of the document.
+     * @return TRUE if the reader is positioned at the next transaction, FALSE otherwise.
+     */
+    private boolean advance() throws IOException {
+        while (true) {
+            switch (state) {
+                case START:
+                    reader.beginObject();
+                    state = State.ROOT;
+                    break;
+                case ROOT:
+                    if (!reader.hasNext()) {
+                        reader.endObject();
+                        state = State.FINISHED;
+                        break;
+                    }
+                    switch (reader.nextName()) {
+                        case "TopList":
+                            topList = gson.fromJson(reader, TopListMetadata.class);
+                            break;
+                        case "TransactionsInfo":
+                            if (skipNull()) {
+                                break;
+                            }
+                            reader.beginObject();
+                            transactionsInfoFound = true;
+                            state = State.TRANSACTIONS_INFO;
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                    break;
+                case TRANSACTIONS_INFO:
+                    if (!reader.hasNext()) {
+                        reader.endObject();
+                        state = State.ROOT;
+                        break;
+                    }
+                    switch (reader.nextName()) {
+                        case "BonusTotal":
+                            bonusTotal = nextDouble();
+                            break;
+                        case "PurchaseTotal":
+                            purchaseTotal = nextDouble();
+                            break;
+                        case "DiscountTotal":
+                            discountTotal = nextDouble();
+                            break;
+                        case "Transactions":
+                            if (skipNull()) {
+                                break;
+                            }
+                            reader.beginArray();
+                            state = State.TRANSACTIONS;
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                    break;
+                case TRANSACTIONS:
+                    if (!reader.hasNext()) {
+                        reader.endArray();
+                        state = State.TRANSACTIONS_INFO;
+                        break;
+                    }
+                    // Skip empty transactions
+                    if (!skipNull()) {
+                        return true;
+                    }
+                    break;
+                case FINISHED:
+                    return false;
+            }
+        }
+    }
+
+    private boolean skipNull() throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return true;
+        }
+        return false;
+    }
+
+    private double nextDouble() throws IOException {
+        return skipNull() ? 0 : reader.nextDouble();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.json;
+
+import com.comphenix.rema1000.model.DataRoot;
+import com.comphenix.rema1000.model.Transaction;
+import com.comphenix.rema1000.model.TransactionsInfo;
+import com.google.gson.Gson;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parses a Rema 1000 JSON export into memory, deserializing the transactions on multiple threads.
+ * <p>
+ * The whole document is first scanned for the position of each transaction, which are then parsed in chunks on a
+ * fork-join pool. The result is identical to {@link DataRootReader#readDataRoot()}, including the receipt entry IDs.
+ */
+public class ParallelDataRootParser {
+    // Minimum number of transactions per task
+    private static final int MIN_CHUNK_SIZE = 64;
+    // Number of tasks per thread, evening out chunks that take longer
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final Gson gson;
+    private final int parallelism;
+
+    public ParallelDataRootParser(Gson gson, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.gson = Objects.requireNonNull(gson, "gson cannot be NULL");
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Read and parse the full JSON export.
+     * @param reader the reader.
+     * @return The parsed data root.
+     */
+    public DataRoot parse(Reader reader) throws IOException {
+        CharBuffer buffer = readFully(reader);
+        char[] text = buffer.array();
+        int length = buffer.limit();
+        TransactionIndex index = TransactionIndex.scan(text, length);
+
+        if (!index.hasTransactions()) {
+            return new DataRootReader(gson, new CharArrayReader(text, 0, length)).readDataRoot();
+        }
+        // Everything except the transactions
+        StringBuilder remainder = new StringBuilder();
+        int position = index.getDocumentStart();
+
+        for (int i = 0; i < index.getArrayCount(); i++) {
+            remainder.append(text, position, index.getArrayStart(i) - position);
+            remainder.append("[]");
+            position = index.getArrayEnd(i);
+        }
+        remainder.append(text, position, length - position);
+
+        DataRoot skeleton = new DataRootReader(gson, new StringReader(remainder.toString())).readDataRoot();
+        List<Transaction> transactionList = parseTransactions(text, index);
+        TransactionsInfo info = skeleton.getTransactionsInfo();
+
+        return DataRoot.newBuilder().
+                withTopList(skeleton.getTopList()).
+                withTransactionsInfo(TransactionsInfo.newBuilder().
+                        withBonusTotal(info.getBonusTotal()).
+                        withPurchaseTotal(info.getPurchaseTotal()).
+                        withDiscountTotal(info.getDiscountTotal()).
+                        withTransactionList(transactionList).
+                        build()).
+                build();
+    }
+
+    private static CharBuffer readFully(Reader reader) throws IOException {
+        char[] text = new char[64 * 1024];
+        int length = 0;
+        int read;
+
+        while ((read = reader.read(text, length, text.length - length)) >= 0) {
+            length += read;
+
+            if (length == text.length) {
+                if (text.length == Integer.MAX_VALUE - 8) {
+                    throw new IOException("JSON export is too large to be parsed in parallel");
+                }
+                text = Arrays.copyOf(text, (int) Math.min(Integer.MAX_VALUE - 8, text.length * 2L));
+            }
+        }
+        return CharBuffer.wrap(text, 0, length);
+    }
+
+    private List<Transaction> parseTransactions(char[] text, TransactionIndex index) {
+        int elementCount = index.getElementCount();
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (elementCount + parallelism * CHUNKS_PER_THREAD - 1) /
+                (parallelism * CHUNKS_PER_THREAD));
+        int chunkCount = (elementCount + chunkSize - 1) / chunkSize;
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try {
+            List<ForkJoinTask<List<Transaction>>> parseTasks = new ArrayList<>(chunkCount);
+
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                int start = chunk * chunkSize;
+                int end = Math.min(elementCount, start + chunkSize);
+                parseTasks.add(pool.submit(() -> parseChunk(text, index, start, end)));
+            }
+            List<List<Transaction>> chunks = new ArrayList<>(chunkCount);
+            int transactionCount = 0;
+
+            for (ForkJoinTask<List<Transaction>> task : parseTasks) {
+                List<Transaction> chunk = task.join();
+                chunks.add(chunk);
+                transactionCount += chunk.size();
+            }
+            List<Transaction> result = new ArrayList<>(transactionCount);
+
+            for (List<Transaction> chunk : chunks) {
+                result.addAll(chunk);
+            }
+            return result;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private List<Transaction> parseChunk(char[] text, TransactionIndex index, int start, int end) {
+        List<Transaction> transactions = new ArrayList<>(end - start);
+
+        for (int i = start; i < end; i++) {
+            int offset = index.getElementStart(i);
+            int count = index.getElementEnd(i) - offset;
+            Transaction transaction = gson.fromJson(new CharArrayReader(text, offset, count), Transaction.class);
+
+            // Skip empty transactions
+            if (transaction != null) {
+                ReceiptEntryIds.assignEntryIds(transaction);
+                transactions.add(transaction);
+            }
+        }
+        return transactions;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.json;
+
+import com.comphenix.rema1000.model.ReceiptEntry;
+import com.comphenix.rema1000.model.Transaction;
+
+import java.util.List;
+
+/**
+ * Computes the ID of each receipt entry from the ID of its transaction and its line index in the receipt.
+ * <p>
+ * The IDs do not depend on the order or the number of transactions that are read, so a receipt entry is given the
+ * same ID whether the export is parsed in parallel, one transaction at a time, merged with other exports or appended
+ * in incremental mode. Every ID is between 0 and 2<sup>53</sup> - 1, and may be stored exactly as a double (such as
+ * in Excel). Two receipt entries may in theory share an ID, with a probability of about
+ * <i>n<sup>2</sup> / 2<sup>54</sup></i> for <i>n</i> receipt entries.
+ */
+public final class ReceiptEntryIds {
+    /**
+     * The largest possible receipt entry ID.
+     */
+    public static final long MAX_ENTRY_ID = (1L << 53) - 1;
+
+    private ReceiptEntryIds() {
+        // Static methods only
+    }
+
+    /**
+     * Assign an ID to every receipt entry of the given transaction.
+     * <p>
+     * A transaction without an ID is identified by its purchase date, store, amount and number of receipt entries
+     * instead, so that two such transactions are only given the same IDs if they cannot be told apart.
+     * @param transaction the transaction.
+     */
+    public static void assignEntryIds(Transaction transaction) {
+        List<ReceiptEntry> entries = transaction.getReceiptEntries();
+
+        if (entries == null) {
+            return;
+        }
+        String transactionId = transaction.getId() != null ? transaction.getId() : getFallbackKey(transaction);
+        long transactionHash = hash(transactionId);
+
+        for (int i = 0; i < entries.size(); i++) {
+            ReceiptEntry entry = entries.get(i);
+
+            if (entry != null) {
+                entry.setEntryId(computeEntryId(transactionHash, i));
+            }
+        }
+    }
+
+    private static String getFallbackKey(Transaction transaction) {
+        // Never a valid transaction ID
+        return transaction.getPurchaseDateUnix() + "/" + transaction.getStoreId() + "/" +
+                transaction.getAmount() + "/" + transaction.getReceiptEntries().size();
+    }
+
+    /**
+     * Compute the ID of the receipt entry at the given line index of the given transaction.
+     * @param transactionId the transaction ID.
+     * @param lineIndex the index of the receipt entry in the receipt, starting at zero.
+     * @return The receipt entry ID.
+     */
+    public static long computeEntryId(String transactionId, int lineIndex) {
+        return computeEntryId(hash(transactionId), lineIndex);
+    }
+
+    private static long computeEntryId(long transactionHash, int lineIndex) {
+        if (lineIndex < 0) {
+            throw new IllegalArgumentException("lineIndex cannot be negative");
+        }
+        return mix(transactionHash + (lineIndex + 1) * 0x9e3779b97f4a7c15L) & MAX_ENTRY_ID;
+    }
+
+    private static long hash(String value) {
+        // 64-bit FNV-1a
+        long hash = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long hash) {
+        // Finalizer of MurmurHash3
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
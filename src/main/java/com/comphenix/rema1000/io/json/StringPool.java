@@ -0,0 +1,120 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.json;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of strings, returning a single instance for equal strings that are seen repeatedly.
+ * <p>
+ * The pool is a direct mapped cache, where a string replaces any other string with the same slot. This keeps the
+ * size of the pool fixed, while frequent strings (like store names or product groups) will nearly always be found.
+ * The pool may be used by multiple threads at once.
+ */
+public class StringPool {
+    /**
+     * The default number of strings in the pool.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final String[] table;
+    private final int mask;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    public StringPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Construct a new string pool.
+     * @param capacity the maximum number of strings, rounded up to the nearest power of two.
+     */
+    public StringPool(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity);
+        this.table = new String[size < capacity ? size << 1 : size];
+        this.mask = table.length - 1;
+    }
+
+    /**
+     * Retrieve the pooled instance of the given string, adding it to the pool if it is not already present.
+     * @param value the string, or NULL.
+     * @return The pooled string, or NULL if the value is NULL.
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        int hash = value.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+
+        // Strings are immutable, so a racing read will only see a complete string or NULL
+        String existing = table[slot];
+
+        if (value.equals(existing)) {
+            hitCount.increment();
+            return existing;
+        }
+        table[slot] = value;
+        missCount.increment();
+        return value;
+    }
+
+    /**
+     * Retrieve the maximum number of strings in the pool.
+     * @return The capacity.
+     */
+    public int getCapacity() {
+        return table.length;
+    }
+
+    /**
+     * Retrieve the number of strings that were already in the pool.
+     * @return The number of hits.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Retrieve the number of strings that were added to the pool.
+     * @return The number of misses.
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Retrieve the fraction of strings that were already in the pool.
+     * @return The hit rate, from 0 to 1.
+     */
+    public double getHitRate() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return total > 0 ? hits / (double) total : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StringPool{capacity=%d, hits=%d, misses=%d, hitRate=%.1f%%}",
+                getCapacity(), getHitCount(), getMissCount(), getHitRate() * 100);
+    }
+}
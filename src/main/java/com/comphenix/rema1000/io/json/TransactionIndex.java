@@ -0,0 +1,301 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.json;
+
+import com.google.gson.stream.MalformedJsonException;
+
+import java.util.Arrays;
+
+/**
+ * Locates the elements of the transaction list in a JSON export, without parsing them.
+ * <p>
+ * Like {@link DataRootReader}, the transactions of every TransactionsInfo.Transactions array are included in document
+ * order, if a key occurs more than once.
+ */
+final class TransactionIndex {
+    private final char[] text;
+    private final int length;
+
+    // Position of the first character after the byte order mark, if any
+    private int documentStart;
+
+    // Position of each transaction array, including its brackets
+    private int[] arrayStarts = new int[1];
+    private int[] arrayEnds = new int[1];
+    private int arrayCount;
+
+    // Start and end of each element in the array
+    private int[] elementStarts = new int[16];
+    private int[] elementEnds = new int[16];
+    private int elementCount;
+
+    private TransactionIndex(char[] text, int length) {
+        this.text = text;
+        this.length = length;
+    }
+
+    /**
+     * Scan the given JSON export for the elements of every TransactionsInfo.Transactions array.
+     * @param text the JSON text.
+     * @param length the number of characters in the text.
+     * @return The index.
+     * @throws MalformedJsonException If the text is not valid JSON.
+     */
+    public static TransactionIndex scan(char[] text, int length) throws MalformedJsonException {
+        TransactionIndex index = new TransactionIndex(text, length);
+        index.scanRoot();
+        return index;
+    }
+
+    private void scanRoot() throws MalformedJsonException {
+        // Skipped by JsonReader as well
+        documentStart = length > 0 && text[0] == '\uFEFF' ? 1 : 0;
+        int position = expect(skipWhitespace(documentStart), '{');
+
+        // The same structure as DataRootReader
+        for (position = firstMember(position, '}'); position >= 0; position = nextMember(position, '}')) {
+            int keyEnd = skipString(position);
+            int valueStart = skipWhitespace(expect(skipWhitespace(keyEnd), ':'));
+
+            if (isKey(position, keyEnd, "TransactionsInfo") && charAt(valueStart) == '{') {
+                position = scanTransactionsInfo(valueStart);
+            } else {
+                position = skipValue(valueStart);
+            }
+        }
+    }
+
+    private int scanTransactionsInfo(int start) throws MalformedJsonException {
+        int position;
+
+        for (position = firstMember(start + 1, '}'); position >= 0; position = nextMember(position, '}')) {
+            int keyEnd = skipString(position);
+            int valueStart = skipWhitespace(expect(skipWhitespace(keyEnd), ':'));
+
+            if (isKey(position, keyEnd, "Transactions") && charAt(valueStart) == '[') {
+                position = scanTransactions(valueStart);
+            } else {
+                position = skipValue(valueStart);
+            }
+        }
+        return ~position;
+    }
+
+    private int scanTransactions(int start) throws MalformedJsonException {
+        int position;
+
+        for (position = firstMember(start + 1, ']'); position >= 0; position = nextMember(position, ']')) {
+            int end = skipValue(position);
+            addElement(position, end);
+            position = end;
+        }
+        addArray(start, ~position);
+        return ~position;
+    }
+
+    /**
+     * Move to the first member of an object or array.
+     * @param position the position after the opening bracket.
+     * @param close the closing bracket.
+     * @return The start of the member, or the complement of the position after the closing bracket.
+     */
+    private int firstMember(int position, char close) throws MalformedJsonException {
+        position = skipWhitespace(position);
+        return charAt(position) == close ? ~(position + 1) : position;
+    }
+
+    /**
+     * Move to the next member of an object or array.
+     * @param position the position after the previous member.
+     * @param close the closing bracket.
+     * @return The start of the member, or the complement of the position after the closing bracket.
+     */
+    private int nextMember(int position, char close) throws MalformedJsonException {
+        position = skipWhitespace(position);
+        char current = charAt(position);
+
+        if (current == close) {
+            return ~(position + 1);
+        } else if (current != ',') {
+            throw error("Expected ',' or '" + close + "'", position);
+        }
+        return skipWhitespace(position + 1);
+    }
+
+    private int skipValue(int position) throws MalformedJsonException {
+        char current = charAt(position);
+
+        if (current == '"') {
+            return skipString(position);
+        }
+        if (current == '{' || current == '[') {
+            int depth = 0;
+
+            for (int i = position; i < length; i++) {
+                char c = text[i];
+
+                if (c == '"') {
+                    i = skipString(i) - 1;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    if (--depth == 0) {
+                        return i + 1;
+                    }
+                }
+            }
+            throw error("Unterminated " + (current == '{' ? "object" : "array"), position);
+        }
+        // Literal or number
+        int end = position;
+
+        while (end < length && !isWhitespace(text[end]) && text[end] != ',' && text[end] != '}' && text[end] != ']') {
+            end++;
+        }
+        if (end == position) {
+            throw error("Expected value", position);
+        }
+        return end;
+    }
+
+    private int skipString(int position) throws MalformedJsonException {
+        expect(position, '"');
+
+        for (int i = position + 1; i < length; i++) {
+            char c = text[i];
+
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i + 1;
+            }
+        }
+        throw error("Unterminated string", position);
+    }
+
+    private boolean isKey(int start, int end, String key) {
+        // Keys of the export are never escaped
+        if (end - start - 2 != key.length()) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (text[start + 1 + i] != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int expect(int position, char expected) throws MalformedJsonException {
+        if (charAt(position) != expected) {
+            throw error("Expected '" + expected + "'", position);
+        }
+        return position + 1;
+    }
+
+    private int skipWhitespace(int position) {
+        while (position < length && isWhitespace(text[position])) {
+            position++;
+        }
+        return position;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private char charAt(int position) throws MalformedJsonException {
+        if (position >= length) {
+            throw error("Unexpected end of input", position);
+        }
+        return text[position];
+    }
+
+    private MalformedJsonException error(String message, int position) {
+        return new MalformedJsonException(message + " at character " + position);
+    }
+
+    private void addArray(int start, int end) {
+        if (arrayCount == arrayStarts.length) {
+            arrayStarts = Arrays.copyOf(arrayStarts, arrayCount * 2);
+            arrayEnds = Arrays.copyOf(arrayEnds, arrayCount * 2);
+        }
+        arrayStarts[arrayCount] = start;
+        arrayEnds[arrayCount] = end;
+        arrayCount++;
+    }
+
+    private void addElement(int start, int end) {
+        if (elementCount == elementStarts.length) {
+            elementStarts = Arrays.copyOf(elementStarts, elementCount * 2);
+            elementEnds = Arrays.copyOf(elementEnds, elementCount * 2);
+        }
+        elementStarts[elementCount] = start;
+        elementEnds[elementCount] = end;
+        elementCount++;
+    }
+
+    /**
+     * Retrieve the position of the first character after the byte order mark, if any.
+     * @return The position.
+     */
+    public int getDocumentStart() {
+        return documentStart;
+    }
+
+    /**
+     * Determine if a transaction array was found.
+     * @return TRUE if it was, FALSE otherwise.
+     */
+    public boolean hasTransactions() {
+        return arrayCount > 0;
+    }
+
+    public int getArrayCount() {
+        return arrayCount;
+    }
+
+    /**
+     * Retrieve the position of the opening bracket of the given transaction array.
+     * @param index the index of the array.
+     * @return The position.
+     */
+    public int getArrayStart(int index) {
+        return arrayStarts[index];
+    }
+
+    /**
+     * Retrieve the position after the closing bracket of the given transaction array.
+     * @param index the index of the array.
+     * @return The position.
+     */
+    public int getArrayEnd(int index) {
+        return arrayEnds[index];
+    }
+
+    public int getElementCount() {
+        return elementCount;
+    }
+
+    public int getElementStart(int index) {
+        return elementStarts[index];
+    }
+
+    public int getElementEnd(int index) {
+        return elementEnds[index];
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.json.adapter;
+
+import com.comphenix.rema1000.model.DataRoot;
+import com.comphenix.rema1000.model.TopListMetadata;
+import com.comphenix.rema1000.model.TransactionsInfo;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+class DataRootAdapter extends ModelTypeAdapter<DataRoot> {
+    private final ModelTypeAdapter<TopListMetadata> topListAdapter;
+    private final ModelTypeAdapter<TransactionsInfo> transactionsInfoAdapter;
+
+    DataRootAdapter(ModelTypeAdapter<TopListMetadata> topListAdapter, ModelTypeAdapter<TransactionsInfo> transactionsInfoAdapter) {
+        super(null);
+        this.topListAdapter = topListAdapter;
+        this.transactionsInfoAdapter = transactionsInfoAdapter;
+    }
+
+    @Override
+    protected DataRoot readObject(JsonReader in) throws IOException {
+        DataRoot.DataRootBuilder builder = DataRoot.newBuilder();
+
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "TopList":
+                    builder.withTopList(topListAdapter.read(in));
+                    break;
+                case "TransactionsInfo":
+                    builder.withTransactionsInfo(transactionsInfoAdapter.read(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    protected void writeObject(JsonWriter out, DataRoot value) throws IOException {
+        out.name("TopList");
+        topListAdapter.write(out, value.getTopList());
+        out.name("TransactionsInfo");
+        transactionsInfoAdapter.write(out, value.getTransactionsInfo());
+    }
+}
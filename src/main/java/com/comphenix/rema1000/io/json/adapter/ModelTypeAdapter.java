@@ -0,0 +1,172 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.json.adapter;
+
+import com.comphenix.rema1000.io.json.StringPool;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A type adapter of a model class, reading and writing values the same way as the reflective adapter of Gson.
+ * @param <T> the model class.
+ */
+abstract class ModelTypeAdapter<T> extends TypeAdapter<T> {
+    // Optional pool of repeated strings
+    private final StringPool pool;
+
+    ModelTypeAdapter(StringPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public T read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        in.beginObject();
+        T value = readObject(in);
+        in.endObject();
+        return value;
+    }
+
+    /**
+     * Read every property of the current object.
+     * @param in the reader, positioned after the opening brace.
+     * @return The value.
+     */
+    protected abstract T readObject(JsonReader in) throws IOException;
+
+    @Override
+    public void write(JsonWriter out, T value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        writeObject(out, value);
+        out.endObject();
+    }
+
+    /**
+     * Write every property of the given value.
+     * @param out the writer, positioned after the opening brace.
+     * @param value the value.
+     */
+    protected abstract void writeObject(JsonWriter out, T value) throws IOException;
+
+    /**
+     * Read a string that is likely to be repeated, and retrieve the pooled instance.
+     * @param in the reader.
+     * @return The pooled string, or NULL.
+     */
+    protected String readPooledString(JsonReader in) throws IOException {
+        String value = readString(in);
+        return pool != null ? pool.intern(value) : value;
+    }
+
+    protected static String readString(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case NULL:
+                in.nextNull();
+                return null;
+            case BOOLEAN:
+                return Boolean.toString(in.nextBoolean());
+            default:
+                return in.nextString();
+        }
+    }
+
+    protected static double readDouble(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextDouble();
+    }
+
+    protected static long readLong(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        try {
+            return in.nextLong();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    protected static int readInt(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        try {
+            return in.nextInt();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    protected static boolean readBoolean(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case NULL:
+                in.nextNull();
+                return false;
+            case STRING:
+                return Boolean.parseBoolean(in.nextString());
+            default:
+                return in.nextBoolean();
+        }
+    }
+
+    protected static <E> List<E> readList(JsonReader in, TypeAdapter<E> elementAdapter) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<E> result = new ArrayList<>();
+        in.beginArray();
+
+        while (in.hasNext()) {
+            result.add(elementAdapter.read(in));
+        }
+        in.endArray();
+        return result;
+    }
+
+    protected static <E> void writeList(JsonWriter out, List<E> values, TypeAdapter<E> elementAdapter) throws IOException {
+        if (values == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+
+        for (E value : values) {
+            elementAdapter.write(out, value);
+        }
+        out.endArray();
+    }
+}
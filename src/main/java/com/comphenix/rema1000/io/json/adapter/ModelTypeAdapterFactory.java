@@ -0,0 +1,71 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.json.adapter;
+
+import com.comphenix.rema1000.io.json.StringPool;
+import com.comphenix.rema1000.model.*;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Provides hand-written type adapters for every class in the model, which read the JSON export through the builders
+ * of each class instead of reflection.
+ * <p>
+ * Strings that repeat across transactions, such as store names and product groups, may optionally be deduplicated
+ * through a string pool.
+ */
+public class ModelTypeAdapterFactory implements TypeAdapterFactory {
+    private final Map<Class<?>, TypeAdapter<?>> adapters = new HashMap<>();
+
+    public ModelTypeAdapterFactory() {
+        this(null);
+    }
+
+    /**
+     * Construct a new factory of model type adapters.
+     * @param pool the pool of repeated strings, or NULL to not deduplicate strings.
+     */
+    public ModelTypeAdapterFactory(StringPool pool) {
+        ModelTypeAdapter<OfferEntry> offerEntryAdapter = new OfferEntryAdapter(pool);
+        ModelTypeAdapter<ReceiptEntry> receiptEntryAdapter = new ReceiptEntryAdapter(pool, offerEntryAdapter);
+        ModelTypeAdapter<TransactionPayment> paymentAdapter = new TransactionPaymentAdapter(pool);
+        ModelTypeAdapter<Transaction> transactionAdapter = new TransactionAdapter(pool, paymentAdapter, receiptEntryAdapter);
+        ModelTypeAdapter<TransactionsInfo> transactionsInfoAdapter = new TransactionsInfoAdapter(transactionAdapter);
+        ModelTypeAdapter<ScorecardEntry> scorecardEntryAdapter = new ScorecardEntryAdapter(pool);
+        ModelTypeAdapter<TopListMetadata> topListAdapter = new TopListMetadataAdapter(scorecardEntryAdapter);
+
+        adapters.put(OfferEntry.class, offerEntryAdapter);
+        adapters.put(ReceiptEntry.class, receiptEntryAdapter);
+        adapters.put(TransactionPayment.class, paymentAdapter);
+        adapters.put(Transaction.class, transactionAdapter);
+        adapters.put(TransactionsInfo.class, transactionsInfoAdapter);
+        adapters.put(ScorecardEntry.class, scorecardEntryAdapter);
+        adapters.put(TopListMetadata.class, topListAdapter);
+        adapters.put(DataRoot.class, new DataRootAdapter(topListAdapter, transactionsInfoAdapter));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        return (TypeAdapter<T>) adapters.get(type.getRawType());
+    }
+}
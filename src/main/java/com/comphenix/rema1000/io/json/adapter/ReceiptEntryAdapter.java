@@ -0,0 +1,113 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.json.adapter;
+
+import com.comphenix.rema1000.io.json.StringPool;
+import com.comphenix.rema1000.model.OfferEntry;
+import com.comphenix.rema1000.model.ReceiptEntry;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+class ReceiptEntryAdapter extends ModelTypeAdapter<ReceiptEntry> {
+    private final ModelTypeAdapter<OfferEntry> offerEntryAdapter;
+
+    ReceiptEntryAdapter(StringPool pool, ModelTypeAdapter<OfferEntry> offerEntryAdapter) {
+        super(pool);
+        this.offerEntryAdapter = offerEntryAdapter;
+    }
+
+    @Override
+    protected ReceiptEntry readObject(JsonReader in) throws IOException {
+        // The entry ID is generated by the parser
+        ReceiptEntry.ReceiptEntryBuilder builder = ReceiptEntry.newBuilder();
+
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "ProductCode":
+                    builder.withProductCode(readString(in));
+                    break;
+                case "ProductDescription":
+                    builder.withProductDescription(readString(in));
+                    break;
+                case "Prodtxt1":
+                    builder.withProductText1(readString(in));
+                    break;
+                case "Prodtxt2":
+                    builder.withProductText2(readString(in));
+                    break;
+                case "ProdTxt3":
+                    builder.withBarcode(readString(in));
+                    break;
+                case "ProductGroupCode":
+                    builder.withProductGroupCode(readPooledString(in));
+                    break;
+                case "ProductGroupDesc":
+                    builder.withProductGroupDesc(readPooledString(in));
+                    break;
+                case "BonusBased":
+                    builder.withBonusBased(readBoolean(in));
+                    break;
+                case "Pieces":
+                    builder.withPieces(readLong(in));
+                    break;
+                case "Amount":
+                    builder.withPriceAmount(readDouble(in));
+                    break;
+                case "Discount":
+                    builder.withPriceDiscount(readDouble(in));
+                    break;
+                case "Volume":
+                    builder.withVolumeAmount(readDouble(in));
+                    break;
+                case "Unit":
+                    builder.withVolumeUnit(readPooledString(in));
+                    break;
+                case "Deposit":
+                    builder.withDeposit(readDouble(in));
+                    break;
+                case "UsedOffers":
+                    builder.withUsedOffers(readList(in, offerEntryAdapter));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    protected void writeObject(JsonWriter out, ReceiptEntry value) throws IOException {
+        out.name("ProductCode").value(value.getProductCode());
+        out.name("ProductDescription").value(value.getProductDescription());
+        out.name("Prodtxt1").value(value.getProductText1());
+        out.name("Prodtxt2").value(value.getProductText2());
+        out.name("ProdTxt3").value(value.getBarcode());
+        out.name("ProductGroupCode").value(value.getProductGroupCode());
+        out.name("ProductGroupDesc").value(value.getProductGroupDesc());
+        out.name("BonusBased").value(value.isBonusBased());
+        out.name("Pieces").value(value.getPieces());
+        out.name("Amount").value(value.getPriceAmount());
+        out.name("Discount").value(value.getPriceDiscount());
+        out.name("Volume").value(value.getVolumeAmount());
+        out.name("Unit").value(value.getVolumeUnit());
+        out.name("Deposit").value(value.getDeposit());
+        out.name("UsedOffers");
+        writeList(out, value.getUsedOffers(), offerEntryAdapter);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.json.adapter;
+
+import com.comphenix.rema1000.io.json.StringPool;
+import com.comphenix.rema1000.model.ScorecardEntry;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+class ScorecardEntryAdapter extends ModelTypeAdapter<ScorecardEntry> {
+    ScorecardEntryAdapter(StringPool pool) {
+        super(pool);
+    }
+
+    @Override
+    protected ScorecardEntry readObject(JsonReader in) throws IOException {
+        ScorecardEntry.ScorecardEntryBuilder builder = ScorecardEntry.newBuilder();
+
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "Rank":
+                    builder.withRank(readInt(in));
+                    break;
+                case "ProductId":
+                    builder.withProductId(readString(in));
+                    break;
+                case "ProductName":
+                    builder.withProductName(readString(in));
+                    break;
+                case "ProductDescription":
+                    builder.withProductDescription(readString(in));
+                    break;
+                case "Ctime":
+                    builder.withCreatedTimeUnix(readLong(in));
+                    break;
+                case "Mtime":
+                    builder.withModifiedTimeUnix(readLong(in));
+                    break;
+                case "AmountUsed":
+                    builder.withAmountUsed(readDouble(in));
+                    break;
+                case "AmountSaved":
+                    builder.withAmountSaved(readDouble(in));
+                    break;
+                case "ProdTxt3":
+                    builder.withBarcode(readString(in));
+                    break;
+                case "TimesBought":
+                    builder.withTimesBought(readInt(in));
+                    break;
+                case "ItemsBought":
+                    builder.withItemsBought(readInt(in));
+                    break;
+                case "AccountId":
+                    builder.withAccountId(readPooledString(in));
+                    break;
+                case "ProductGroupCode":
+                    builder.withProductGroupCode(readPooledString(in));
+                    break;
+                case "ProductGroupDesc":
+                    builder.withProductGroupDesc(readPooledString(in));
+                    break;
+                case "Volume":
+                    builder.withVolume(readDouble(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    protected void writeObject(JsonWriter out, ScorecardEntry value) throws IOException {
+        out.name("Rank").value(value.getRank());
+        out.name("ProductId").value(value.getProductId());
+        out.name("ProductName").value(value.getProductName());
+        out.name("ProductDescription").value(value.getProductDescription());
+        out.name("Ctime").value(value.getCreatedTimeUnix());
+        out.name("Mtime").value(value.getModifiedTimeUnix());
+        out.name("AmountUsed").value(value.getAmountUsed());
+        out.name("AmountSaved").value(value.getAmountSaved());
+        out.name("ProdTxt3").value(value.getBarcode());
+        out.name("TimesBought").value(value.getTimesBought());
+        out.name("ItemsBought").value(value.getItemsBought());
+        out.name("AccountId").value(value.getAccountId());
+        out.name("ProductGroupCode").value(value.getProductGroupCode());
+        out.name("ProductGroupDesc").value(value.getProductGroupDesc());
+        out.name("Volume").value(value.getVolume());
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.json.adapter;
+
+import com.comphenix.rema1000.model.ScorecardEntry;
+import com.comphenix.rema1000.model.TopListMetadata;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+class TopListMetadataAdapter extends ModelTypeAdapter<TopListMetadata> {
+    private final ModelTypeAdapter<ScorecardEntry> scorecardEntryAdapter;
+
+    TopListMetadataAdapter(ModelTypeAdapter<ScorecardEntry> scorecardEntryAdapter) {
+        super(null);
+        this.scorecardEntryAdapter = scorecardEntryAdapter;
+    }
+
+    @Override
+    protected TopListMetadata readObject(JsonReader in) throws IOException {
+        TopListMetadata.TopListMetadataBuilder builder = TopListMetadata.newBuilder();
+
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "Scorecard":
+                    builder.withScorecard(readList(in, scorecardEntryAdapter));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    protected void writeObject(JsonWriter out, TopListMetadata value) throws IOException {
+        out.name("Scorecard");
+        writeList(out, value.getScorecard(), scorecardEntryAdapter);
+    }
+}
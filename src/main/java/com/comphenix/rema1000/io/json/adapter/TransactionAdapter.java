@@ -0,0 +1,93 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.json.adapter;
+
+import com.comphenix.rema1000.io.json.StringPool;
+import com.comphenix.rema1000.model.ReceiptEntry;
+import com.comphenix.rema1000.model.Transaction;
+import com.comphenix.rema1000.model.TransactionPayment;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+class TransactionAdapter extends ModelTypeAdapter<Transaction> {
+    private final ModelTypeAdapter<TransactionPayment> paymentAdapter;
+    private final ModelTypeAdapter<ReceiptEntry> receiptEntryAdapter;
+
+    TransactionAdapter(StringPool pool, ModelTypeAdapter<TransactionPayment> paymentAdapter,
+                       ModelTypeAdapter<ReceiptEntry> receiptEntryAdapter) {
+        super(pool);
+        this.paymentAdapter = paymentAdapter;
+        this.receiptEntryAdapter = receiptEntryAdapter;
+    }
+
+    @Override
+    protected Transaction readObject(JsonReader in) throws IOException {
+        Transaction.TransactionBuilder builder = Transaction.newBuilder();
+
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "Id":
+                    builder.withId(readString(in));
+                    break;
+                case "PurchaseDate":
+                    builder.withPurchaseDateUnix(readLong(in));
+                    break;
+                case "StoreId":
+                    builder.withStoreId(readPooledString(in));
+                    break;
+                case "StoreName":
+                    builder.withStoreName(readPooledString(in));
+                    break;
+                case "Amount":
+                    builder.withAmount(readDouble(in));
+                    break;
+                case "BonusPoints":
+                    builder.withBonusPoints(readInt(in));
+                    break;
+                case "Discount":
+                    builder.withDiscount(readDouble(in));
+                    break;
+                case "TransactionPayments":
+                    builder.withTransactionPayments(readList(in, paymentAdapter));
+                    break;
+                case "Receipt":
+                    builder.withReceiptEntries(readList(in, receiptEntryAdapter));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    protected void writeObject(JsonWriter out, Transaction value) throws IOException {
+        out.name("Id").value(value.getId());
+        out.name("PurchaseDate").value(value.getPurchaseDateUnix());
+        out.name("StoreId").value(value.getStoreId());
+        out.name("StoreName").value(value.getStoreName());
+        out.name("Amount").value(value.getAmount());
+        out.name("BonusPoints").value(value.getBonusPoints());
+        out.name("Discount").value(value.getDiscount());
+        out.name("TransactionPayments");
+        writeList(out, value.getTransactionPayments(), paymentAdapter);
+        out.name("Receipt");
+        writeList(out, value.getReceiptEntries(), receiptEntryAdapter);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.json.adapter;
+
+import com.comphenix.rema1000.io.json.StringPool;
+import com.comphenix.rema1000.model.TransactionPayment;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+class TransactionPaymentAdapter extends ModelTypeAdapter<TransactionPayment> {
+    TransactionPaymentAdapter(StringPool pool) {
+        super(pool);
+    }
+
+    @Override
+    protected TransactionPayment readObject(JsonReader in) throws IOException {
+        TransactionPayment.TransactionPaymentBuilder builder = TransactionPayment.newBuilder();
+
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "MeansOfPaymentDesc":
+                    builder.withMeansOfPaymentDesc(readPooledString(in));
+                    break;
+                case "Amount":
+                    builder.withAmount(readDouble(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    protected void writeObject(JsonWriter out, TransactionPayment value) throws IOException {
+        out.name("MeansOfPaymentDesc").value(value.getMeansOfPaymentDesc());
+        out.name("Amount").value(value.getAmount());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.json.adapter;
+
+import com.comphenix.rema1000.model.Transaction;
+import com.comphenix.rema1000.model.TransactionsInfo;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+class TransactionsInfoAdapter extends ModelTypeAdapter<TransactionsInfo> {
+    private final ModelTypeAdapter<Transaction> transactionAdapter;
+
+    TransactionsInfoAdapter(ModelTypeAdapter<Transaction> transactionAdapter) {
+        super(null);
+        this.transactionAdapter = transactionAdapter;
+    }
+
+    @Override
+    protected TransactionsInfo readObject(JsonReader in) throws IOException {
+        TransactionsInfo.TransactionsInfoBuilder builder = TransactionsInfo.newBuilder();
+
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "BonusTotal":
+                    builder.withBonusTotal(readDouble(in));
+                    break;
+                case "PurchaseTotal":
+                    builder.withPurchaseTotal(readDouble(in));
+                    break;
+                case "DiscountTotal":
+                    builder.withDiscountTotal(readDouble(in));
+                    break;
+                case "Transactions":
+                    builder.withTransactionList(readList(in, transactionAdapter));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    protected void writeObject(JsonWriter out, TransactionsInfo value) throws IOException {
+        out.name("BonusTotal").value(value.getBonusTotal());
+        out.name("PurchaseTotal").value(value.getPurchaseTotal());
+        out.name("DiscountTotal").value(value.getDiscountTotal());
+        out.name("Transactions");
+        writeList(out, value.getTransactionList(), transactionAdapter);
+    }
+}
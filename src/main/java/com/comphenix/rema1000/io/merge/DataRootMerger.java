@@ -0,0 +1,144 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.merge;
+
+import com.comphenix.rema1000.io.columnar.ColumnarTransactions;
+import com.comphenix.rema1000.model.DataRoot;
+import com.comphenix.rema1000.model.TopListMetadata;
+import com.comphenix.rema1000.model.Transaction;
+import com.comphenix.rema1000.model.TransactionsInfo;
+
+import java.util.Objects;
+
+/**
+ * Combines several Rema 1000 exports into a single columnar store, in the order they are added.
+ * <p>
+ * A transaction with the same ID as a transaction that has already been added is skipped, so overlapping exports
+ * of the same account are only stored once. The receipt entries keep the IDs assigned by the reader, which only
+ * depend on the transaction, so a receipt entry has the same ID in every export.
+ * <p>
+ * The totals of every export are summed, less the bonus points, amount and discount of each skipped transaction, so
+ * the totals of overlapping exports only count each transaction once. The top list of the last export that has one is
+ * kept.
+ */
+public class DataRootMerger {
+    private final ColumnarTransactions transactions = new ColumnarTransactions();
+    private final TransactionIdSet transactionIds = new TransactionIdSet();
+
+    // Data outside the transaction list
+    private TopListMetadata topList;
+    private boolean transactionsInfoFound;
+    private double bonusTotal;
+    private double purchaseTotal;
+    private double discountTotal;
+
+    // Number of exports added
+    private int exportCount;
+    // Number of transactions skipped
+    private int duplicateCount;
+
+    /**
+     * Append every transaction of the given export.
+     * @param data the export.
+     */
+    public void add(DataRoot data) {
+        Objects.requireNonNull(data, "data cannot be NULL");
+        TransactionsInfo transactionsInfo = data.getTransactionsInfo();
+
+        if (data.getTopList() != null) {
+            topList = data.getTopList();
+        }
+        if (transactionsInfo != null) {
+            if (transactionsInfo.getTransactionList() != null) {
+                for (Transaction transaction : transactionsInfo.getTransactionList()) {
+                    add(transaction);
+                }
+            }
+            bonusTotal += transactionsInfo.getBonusTotal();
+            purchaseTotal += transactionsInfo.getPurchaseTotal();
+            discountTotal += transactionsInfo.getDiscountTotal();
+            transactionsInfoFound = true;
+        }
+        exportCount++;
+    }
+
+    /**
+     * Append the given transaction, unless it is empty or has already been added.
+     * @param transaction the transaction.
+     */
+    private void add(Transaction transaction) {
+        if (transaction == null) {
+            return;
+        }
+        // Transactions without an ID cannot be told apart
+        if (transaction.getId() != null && !transactionIds.add(transaction.getId())) {
+            // Already counted by the totals of an earlier export
+            bonusTotal -= transaction.getBonusPoints();
+            purchaseTotal -= transaction.getAmount();
+            discountTotal -= transaction.getDiscount();
+            duplicateCount++;
+            return;
+        }
+        // Empty transactions are skipped by the store
+        if (transaction.getReceiptEntries() != null && !transaction.getReceiptEntries().isEmpty()) {
+            transactions.add(transaction);
+        }
+    }
+
+    /**
+     * Retrieve the data outside the transaction list of every export added so far.
+     * <p>
+     * The returned transactions info (if any) will not contain any transactions.
+     * @return The data root.
+     */
+    public DataRoot getDataRoot() {
+        TransactionsInfo transactionsInfo = transactionsInfoFound ? TransactionsInfo.newBuilder().
+                withBonusTotal(bonusTotal).
+                withPurchaseTotal(purchaseTotal).
+                withDiscountTotal(discountTotal).
+                build() : null;
+
+        return DataRoot.newBuilder().
+                withTopList(topList).
+                withTransactionsInfo(transactionsInfo).
+                build();
+    }
+
+    /**
+     * Retrieve every transaction added so far.
+     * @return The transactions.
+     */
+    public ColumnarTransactions getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * Retrieve the number of exports added so far.
+     * @return The number of exports.
+     */
+    public int getExportCount() {
+        return exportCount;
+    }
+
+    /**
+     * Retrieve the number of transactions that were skipped, as a transaction with the same ID had already been added.
+     * @return The number of duplicates.
+     */
+    public int getDuplicateCount() {
+        return duplicateCount;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.merge;
+
+import com.comphenix.rema1000.model.Transaction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The state of an incremental conversion, deciding which transactions of an export are new since the last run.
+ * <p>
+ * The state consists of a high-water mark (the latest purchase date seen so far), and the IDs of every transaction
+ * purchased within a window before the mark. A transaction is new if it was purchased within the window and its ID
+ * has not been seen, or if it was purchased after the mark. Transactions purchased before the window are assumed
+ * to have been converted by an earlier run, which keeps the state small no matter how long the history is.
+ */
+public class IncrementalState {
+    /**
+     * The default window before the high-water mark where the ID of each transaction is remembered.
+     */
+    public static final long DEFAULT_WINDOW_MILLIS = TimeUnit.DAYS.toMillis(31);
+
+    // Identifies the state file
+    private static final int MAGIC = 0x52454D41;
+    private static final int VERSION = 1;
+
+    // No high-water mark
+    private static final long NO_MARK = Long.MIN_VALUE;
+
+    private final long windowMillis;
+
+    // The high-water mark of the previous run, and the current mark
+    private final long previousMark;
+    private long highWaterMark;
+
+    // Every transaction within the window
+    private final TransactionIdSet transactionIds = new TransactionIdSet();
+    private long[] fingerprints = new long[16];
+    private long[] purchaseDates = new long[16];
+    private int transactionCount;
+
+    // Number of transactions passed to add()
+    private int newCount;
+    private int skippedCount;
+
+    /**
+     * Construct an empty state, where every transaction is new.
+     */
+    public IncrementalState() {
+        this(DEFAULT_WINDOW_MILLIS, NO_MARK);
+    }
+
+    private IncrementalState(long windowMillis, long highWaterMark) {
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("windowMillis cannot be negative");
+        }
+        this.windowMillis = windowMillis;
+        this.previousMark = highWaterMark;
+        this.highWaterMark = highWaterMark;
+    }
+
+    /**
+     * Load the state of the previous run from the given file.
+     * @param file the state file.
+     * @return The state, or an empty state if the file does not exist.
+     */
+    public static IncrementalState load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return new IncrementalState();
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException(file + " is not a state file");
+            }
+            int version = input.readInt();
+
+            if (version != VERSION) {
+                throw new IOException("Unsupported state file version " + version + " in " + file);
+            }
+            IncrementalState state = new IncrementalState(input.readLong(), input.readLong());
+            int count = input.readInt();
+
+            for (int i = 0; i < count; i++) {
+                state.addFingerprint(input.readLong(), input.readLong());
+            }
+            return state;
+        }
+    }
+
+    /**
+     * Save the state to the given file, replacing the file once the state has been fully written.
+     * <p>
+     * Transactions purchased before the window of the current high-water mark are forgotten.
+     * @param file the state file.
+     */
+    public void save(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                long windowStart = getWindowStart(highWaterMark);
+                int count = 0;
+
+                for (int i = 0; i < transactionCount; i++) {
+                    if (purchaseDates[i] >= windowStart) {
+                        count++;
+                    }
+                }
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeLong(windowMillis);
+                output.writeLong(highWaterMark);
+                output.writeInt(count);
+
+                for (int i = 0; i < transactionCount; i++) {
+                    if (purchaseDates[i] >= windowStart) {
+                        output.writeLong(fingerprints[i]);
+                        output.writeLong(purchaseDates[i]);
+                    }
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Determine if the given transaction is new, and remember it if it is.
+     * @param transaction the transaction.
+     * @return TRUE if the transaction is new, FALSE otherwise.
+     */
+    public boolean add(Transaction transaction) {
+        if (transaction == null || transaction.getReceiptEntries() == null || transaction.getReceiptEntries().isEmpty()) {
+            return false;
+        }
+        long purchaseDate = transaction.getPurchaseDateUnix();
+        boolean added;
+
+        // Compare with the previous run only, as the export may not be in order
+        if (previousMark != NO_MARK && purchaseDate < getWindowStart(previousMark)) {
+            added = false;
+        } else if (transaction.getId() != null) {
+            added = addFingerprint(TransactionIdSet.fingerprint(transaction.getId()), purchaseDate);
+        } else {
+            // Cannot be told apart from other transactions
+            added = previousMark == NO_MARK || purchaseDate > previousMark;
+        }
+        if (!added) {
+            skippedCount++;
+            return false;
+        }
+        highWaterMark = Math.max(highWaterMark, purchaseDate);
+        newCount++;
+        return true;
+    }
+
+    private boolean addFingerprint(long fingerprint, long purchaseDate) {
+        if (!transactionIds.addFingerprint(fingerprint)) {
+            return false;
+        }
+        if (transactionCount >= fingerprints.length) {
+            fingerprints = Arrays.copyOf(fingerprints, transactionCount * 2);
+            purchaseDates = Arrays.copyOf(purchaseDates, transactionCount * 2);
+        }
+        fingerprints[transactionCount] = fingerprint;
+        purchaseDates[transactionCount] = purchaseDate;
+        transactionCount++;
+        return true;
+    }
+
+    private long getWindowStart(long mark) {
+        return mark != NO_MARK ? mark - windowMillis : NO_MARK;
+    }
+
+    /**
+     * Retrieve the latest purchase date seen so far.
+     * @return The high-water mark in milliseconds since the unix epoch, or {@link Long#MIN_VALUE} if none.
+     */
+    public long getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * Retrieve the number of transactions found to be new since this state was loaded.
+     * @return The number of new transactions.
+     */
+    public int getNewCount() {
+        return newCount;
+    }
+
+    /**
+     * Retrieve the number of transactions that were skipped since this state was loaded.
+     * @return The number of skipped transactions.
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.merge;
+
+import java.util.Objects;
+
+/**
+ * A compact set of transaction IDs, storing a 64-bit fingerprint of each ID in an open addressed table.
+ * <p>
+ * Each ID takes up between 8 and 16 bytes, regardless of its length. Two different IDs may in theory share the
+ * same fingerprint, but the probability of this is about <i>n<sup>2</sup> / 2<sup>65</sup></i> for <i>n</i> IDs,
+ * or less than one in a billion for a million IDs.
+ */
+public class TransactionIdSet {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Marks an empty slot, which is never a fingerprint
+    private static final long EMPTY = 0;
+
+    private long[] table = new long[INITIAL_CAPACITY];
+    private int size;
+
+    // Keep the load factor below 0.75
+    private int resizeThreshold = INITIAL_CAPACITY / 4 * 3;
+
+    /**
+     * Add the given ID to the set.
+     * @param id the ID.
+     * @return TRUE if the ID was added, FALSE if it was already in the set.
+     */
+    public boolean add(String id) {
+        return addFingerprint(fingerprint(id));
+    }
+
+    /**
+     * Add the given fingerprint of an ID to the set.
+     * @param fingerprint the fingerprint.
+     * @return TRUE if the fingerprint was added, FALSE if it was already in the set.
+     */
+    boolean addFingerprint(long fingerprint) {
+        int mask = table.length - 1;
+
+        for (int slot = (int) fingerprint & mask; ; slot = (slot + 1) & mask) {
+            if (table[slot] == fingerprint) {
+                return false;
+            }
+            if (table[slot] == EMPTY) {
+                table[slot] = fingerprint;
+
+                if (++size >= resizeThreshold) {
+                    resize();
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Determine if the given ID is in the set.
+     * @param id the ID.
+     * @return TRUE if it is, FALSE otherwise.
+     */
+    public boolean contains(String id) {
+        long fingerprint = fingerprint(id);
+        int mask = table.length - 1;
+
+        for (int slot = (int) fingerprint & mask; table[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (table[slot] == fingerprint) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retrieve the number of IDs in the set.
+     * @return The number of IDs.
+     */
+    public int size() {
+        return size;
+    }
+
+    private void resize() {
+        if (table.length >= 1 << 30) {
+            throw new IllegalStateException("Cannot store more than " + size + " transaction IDs");
+        }
+        long[] oldTable = table;
+        table = new long[oldTable.length * 2];
+        resizeThreshold = table.length / 4 * 3;
+        int mask = table.length - 1;
+
+        for (long fingerprint : oldTable) {
+            if (fingerprint != EMPTY) {
+                int slot = (int) fingerprint & mask;
+
+                while (table[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = fingerprint;
+            }
+        }
+    }
+
+    /**
+     * Compute the 64-bit fingerprint of the given ID, which is never zero.
+     * @param id the ID.
+     * @return The fingerprint.
+     */
+    static long fingerprint(String id) {
+        Objects.requireNonNull(id, "id cannot be NULL");
+
+        // Combine the string hash with FNV-1a, as neither is wide enough on its own
+        int fnvHash = 0x811c9dc5;
+
+        for (int i = 0; i < id.length(); i++) {
+            fnvHash = (fnvHash ^ id.charAt(i)) * 0x01000193;
+        }
+        long hash = ((long) id.hashCode() << 32) | (fnvHash & 0xFFFFFFFFL);
+
+        // Spread every bit to the lower bits of the slot (finalizer of MurmurHash3)
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash != EMPTY ? hash : 1;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.parquet;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * A byte buffer with the little-endian and variable length encodings used by Parquet.
+ */
+final class ParquetBuffer extends ByteArrayOutputStream {
+    ParquetBuffer() {
+        super(1024);
+    }
+
+    void writeByteArray(byte[] bytes) {
+        write(bytes, 0, bytes.length);
+    }
+
+    void writeIntLE(int value) {
+        write(value);
+        write(value >>> 8);
+        write(value >>> 16);
+        write(value >>> 24);
+    }
+
+    void writeLongLE(long value) {
+        writeIntLE((int) value);
+        writeIntLE((int) (value >>> 32));
+    }
+
+    void writeDoubleLE(double value) {
+        writeLongLE(Double.doubleToLongBits(value));
+    }
+
+    /**
+     * Write the given value as an unsigned LEB128 variable length integer.
+     * @param value the value.
+     */
+    void writeUnsignedVarInt(long value) {
+        while ((value & ~0x7FL) != 0) {
+            write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        write((int) value);
+    }
+}
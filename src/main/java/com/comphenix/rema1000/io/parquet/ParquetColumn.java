@@ -0,0 +1,490 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.parquet;
+
+import com.google.gson.internal.Primitives;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Buffers the values of a single column in the current row group, and writes them as a column chunk.
+ * <p>
+ * Strings are always collected in a dictionary, and written with dictionary encoding unless the dictionary is
+ * too large or would not make the column chunk any smaller.
+ */
+final class ParquetColumn {
+    /**
+     * The type of the values in a column.
+     */
+    enum ColumnKind {
+        UNKNOWN,
+        BOOLEAN,
+        LONG,
+        DOUBLE,
+        TIMESTAMP,
+        STRING;
+
+        /**
+         * Retrieve the kind of column that stores values of the given type.
+         * @param type the type.
+         * @return The column kind, or UNKNOWN if the type carries no information.
+         */
+        static ColumnKind fromType(Class<?> type) {
+            Class<?> unwrapped = Primitives.unwrap(type);
+
+            if (Object.class.equals(type)) {
+                return UNKNOWN;
+            } else if (boolean.class.equals(unwrapped)) {
+                return BOOLEAN;
+            } else if (byte.class.equals(unwrapped) || short.class.equals(unwrapped) || int.class.equals(unwrapped) ||
+                    long.class.equals(unwrapped)) {
+                return LONG;
+            } else if (float.class.equals(unwrapped) || double.class.equals(unwrapped)) {
+                return DOUBLE;
+            } else if (Instant.class.equals(type) || Date.class.equals(type)) {
+                return TIMESTAMP;
+            }
+            return STRING;
+        }
+    }
+
+    // Physical types
+    private static final int TYPE_BOOLEAN = 0;
+    private static final int TYPE_INT64 = 2;
+    private static final int TYPE_DOUBLE = 5;
+    private static final int TYPE_BYTE_ARRAY = 6;
+
+    // Converted types
+    private static final int CONVERTED_UTF8 = 0;
+    private static final int CONVERTED_TIMESTAMP_MILLIS = 9;
+
+    // Encodings
+    private static final int ENCODING_PLAIN = 0;
+    private static final int ENCODING_PLAIN_DICTIONARY = 2;
+    private static final int ENCODING_RLE = 3;
+
+    // Page types
+    private static final int PAGE_DATA = 0;
+    private static final int PAGE_DICTIONARY = 2;
+
+    private static final int REPETITION_OPTIONAL = 1;
+    private static final int CODEC_UNCOMPRESSED = 0;
+
+    /**
+     * The largest dictionary, in bytes, before falling back to plain encoding.
+     */
+    static final int MAX_DICTIONARY_SIZE = 1024 * 1024;
+
+    private final String name;
+    private ColumnKind kind = ColumnKind.UNKNOWN;
+
+    // Rows in the current row group with a value
+    private final BitSet present = new BitSet();
+
+    private long[] longValues = new long[0];
+    private double[] doubleValues = new double[0];
+    private final BitSet booleanValues = new BitSet();
+
+    // Strings are stored as dictionary codes
+    private int[] codes = new int[0];
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<byte[]> dictionaryValues = new ArrayList<>();
+    private int dictionarySize;
+
+    ParquetColumn(String name) {
+        this.name = Objects.requireNonNull(name, "name cannot be NULL");
+    }
+
+    String getName() {
+        return name;
+    }
+
+    ColumnKind getKind() {
+        return kind;
+    }
+
+    /**
+     * Set the kind of the column, unless it is already known.
+     * @param kind the new kind.
+     */
+    void updateKind(ColumnKind kind) {
+        if (this.kind == ColumnKind.UNKNOWN) {
+            this.kind = kind;
+        }
+    }
+
+    void writeLong(int row, long value) {
+        updateKind(ColumnKind.LONG);
+
+        if (kind == ColumnKind.LONG || kind == ColumnKind.TIMESTAMP) {
+            storeLong(row, value);
+        } else {
+            writeValue(row, value, long.class);
+        }
+    }
+
+    void writeTimestamp(int row, long epochMillis) {
+        updateKind(ColumnKind.TIMESTAMP);
+
+        if (kind == ColumnKind.LONG || kind == ColumnKind.TIMESTAMP) {
+            storeLong(row, epochMillis);
+        } else {
+            writeValue(row, Instant.ofEpochMilli(epochMillis), Instant.class);
+        }
+    }
+
+    void writeDouble(int row, double value) {
+        updateKind(ColumnKind.DOUBLE);
+
+        if (kind == ColumnKind.DOUBLE) {
+            storeDouble(row, value);
+        } else {
+            writeValue(row, value, double.class);
+        }
+    }
+
+    void writeBoolean(int row, boolean value) {
+        updateKind(ColumnKind.BOOLEAN);
+
+        if (kind == ColumnKind.BOOLEAN) {
+            present.set(row);
+            booleanValues.set(row, value);
+        } else {
+            writeValue(row, value, boolean.class);
+        }
+    }
+
+    /**
+     * Write the given value, converting it to the kind of the column if needed.
+     * @param row the row index in the current row group.
+     * @param value the value, or NULL.
+     * @param type the declared type of the value.
+     */
+    void writeValue(int row, Object value, Class<?> type) {
+        updateKind(ColumnKind.fromType(type));
+
+        if (value == null) {
+            present.clear(row);
+            return;
+        }
+        switch (kind) {
+            case BOOLEAN:
+                if (!(value instanceof Boolean)) {
+                    throw new IllegalArgumentException("Cannot write " + value + " to boolean column " + name);
+                }
+                present.set(row);
+                booleanValues.set(row, (Boolean) value);
+                break;
+            case LONG:
+            case TIMESTAMP:
+                if (value instanceof Instant) {
+                    storeLong(row, ((Instant) value).toEpochMilli());
+                } else if (value instanceof Date) {
+                    storeLong(row, ((Date) value).getTime());
+                } else if (value instanceof Number) {
+                    storeLong(row, ((Number) value).longValue());
+                } else {
+                    throw new IllegalArgumentException("Cannot write " + value + " to integer column " + name);
+                }
+                break;
+            case DOUBLE:
+                if (!(value instanceof Number)) {
+                    throw new IllegalArgumentException("Cannot write " + value + " to decimal column " + name);
+                }
+                storeDouble(row, ((Number) value).doubleValue());
+                break;
+            default:
+                storeString(row, value.toString());
+        }
+    }
+
+    private void storeLong(int row, long value) {
+        if (row >= longValues.length) {
+            longValues = Arrays.copyOf(longValues, newCapacity(row));
+        }
+        present.set(row);
+        longValues[row] = value;
+    }
+
+    private void storeDouble(int row, double value) {
+        if (row >= doubleValues.length) {
+            doubleValues = Arrays.copyOf(doubleValues, newCapacity(row));
+        }
+        present.set(row);
+        doubleValues[row] = value;
+    }
+
+    private void storeString(int row, String value) {
+        if (row >= codes.length) {
+            codes = Arrays.copyOf(codes, newCapacity(row));
+        }
+        Integer code = dictionary.get(value);
+
+        if (code == null) {
+            byte[] data = value.getBytes(StandardCharsets.UTF_8);
+            code = dictionaryValues.size();
+            dictionary.put(value, code);
+            dictionaryValues.add(data);
+            dictionarySize += 4 + data.length;
+        }
+        present.set(row);
+        codes[row] = code;
+    }
+
+    private static int newCapacity(int row) {
+        return Math.max(row + 1, Math.max(16, row * 2));
+    }
+
+    /**
+     * Write the buffered values as a column chunk, and clear the buffer.
+     * <p>
+     * The column chunk metadata is written to the given row group metadata, as an element of its column list.
+     * @param output the output stream.
+     * @param offset the current position in the file.
+     * @param rowCount the number of rows in the row group.
+     * @param metadata the row group metadata.
+     * @return The number of bytes written.
+     */
+    long writeChunk(OutputStream output, long offset, int rowCount, ThriftCompactWriter metadata) throws IOException {
+        if (kind == ColumnKind.UNKNOWN) {
+            throw new IllegalStateException("Kind of column " + name + " is not known");
+        }
+        ParquetBuffer page = new ParquetBuffer();
+        ParquetBuffer header = new ParquetBuffer();
+
+        int valueCount = present.cardinality();
+        boolean useDictionary = kind == ColumnKind.STRING && isDictionaryEffective(valueCount);
+        long position = offset;
+        long dictionaryOffset = -1;
+
+        if (useDictionary) {
+            for (byte[] value : dictionaryValues) {
+                page.writeIntLE(value.length);
+                page.writeByteArray(value);
+            }
+            ThriftCompactWriter pageHeader = beginPageHeader(header, PAGE_DICTIONARY, page.size());
+            pageHeader.beginStruct(7);
+            pageHeader.writeI32(1, dictionaryValues.size());
+            pageHeader.writeI32(2, ENCODING_PLAIN_DICTIONARY);
+            pageHeader.endStruct();
+            pageHeader.endStruct();
+
+            dictionaryOffset = position;
+            position += writePage(output, header, page);
+        }
+        long dataOffset = position;
+
+        // Definition levels, prefixed by their length
+        int[] levels = new int[rowCount];
+
+        for (int row = present.nextSetBit(0); row >= 0 && row < rowCount; row = present.nextSetBit(row + 1)) {
+            levels[row] = 1;
+        }
+        ParquetBuffer levelBuffer = new ParquetBuffer();
+        RleEncoder.encode(levelBuffer, levels, rowCount, 1);
+        page.writeIntLE(levelBuffer.size());
+        levelBuffer.writeTo(page);
+
+        if (useDictionary) {
+            writeDictionaryCodes(page, rowCount, valueCount);
+        } else {
+            writePlainValues(page, rowCount, valueCount);
+        }
+        ThriftCompactWriter pageHeader = beginPageHeader(header, PAGE_DATA, page.size());
+        pageHeader.beginStruct(5);
+        pageHeader.writeI32(1, rowCount);
+        pageHeader.writeI32(2, useDictionary ? ENCODING_PLAIN_DICTIONARY : ENCODING_PLAIN);
+        pageHeader.writeI32(3, ENCODING_RLE);
+        pageHeader.writeI32(4, ENCODING_RLE);
+        pageHeader.endStruct();
+        pageHeader.endStruct();
+        position += writePage(output, header, page);
+
+        long chunkSize = position - offset;
+        writeChunkMetadata(metadata, offset, rowCount, chunkSize, dataOffset, dictionaryOffset);
+        clear();
+        return chunkSize;
+    }
+
+    private boolean isDictionaryEffective(int valueCount) {
+        if (dictionarySize > MAX_DICTIONARY_SIZE) {
+            return false;
+        }
+        long plainSize = 0;
+
+        for (int row = present.nextSetBit(0); row >= 0; row = present.nextSetBit(row + 1)) {
+            plainSize += 4 + dictionaryValues.get(codes[row]).length;
+        }
+        long codeSize = ((long) valueCount * RleEncoder.bitWidth(dictionaryValues.size() - 1) + 7) / 8;
+        return dictionarySize + codeSize < plainSize;
+    }
+
+    private void writeDictionaryCodes(ParquetBuffer page, int rowCount, int valueCount) {
+        int[] values = new int[valueCount];
+        int index = 0;
+
+        for (int row = present.nextSetBit(0); row >= 0 && row < rowCount; row = present.nextSetBit(row + 1)) {
+            values[index++] = codes[row];
+        }
+        int bitWidth = RleEncoder.bitWidth(dictionaryValues.size() - 1);
+        page.write(bitWidth);
+        RleEncoder.encode(page, values, valueCount, bitWidth);
+    }
+
+    private void writePlainValues(ParquetBuffer page, int rowCount, int valueCount) {
+        switch (kind) {
+            case BOOLEAN:
+                int bits = 0;
+                int current = 0;
+
+                // Bit-packed from the least significant bit
+                for (int row = present.nextSetBit(0); row >= 0 && row < rowCount; row = present.nextSetBit(row + 1)) {
+                    if (booleanValues.get(row)) {
+                        current |= 1 << bits;
+                    }
+                    if (++bits == 8) {
+                        page.write(current);
+                        current = 0;
+                        bits = 0;
+                    }
+                }
+                if (bits > 0) {
+                    page.write(current);
+                }
+                break;
+            case LONG:
+            case TIMESTAMP:
+                for (int row = present.nextSetBit(0); row >= 0 && row < rowCount; row = present.nextSetBit(row + 1)) {
+                    page.writeLongLE(longValues[row]);
+                }
+                break;
+            case DOUBLE:
+                for (int row = present.nextSetBit(0); row >= 0 && row < rowCount; row = present.nextSetBit(row + 1)) {
+                    page.writeDoubleLE(doubleValues[row]);
+                }
+                break;
+            default:
+                for (int row = present.nextSetBit(0); row >= 0 && row < rowCount; row = present.nextSetBit(row + 1)) {
+                    byte[] value = dictionaryValues.get(codes[row]);
+                    page.writeIntLE(value.length);
+                    page.writeByteArray(value);
+                }
+        }
+    }
+
+    private ThriftCompactWriter beginPageHeader(ParquetBuffer header, int pageType, int pageSize) {
+        ThriftCompactWriter writer = new ThriftCompactWriter(header);
+        writer.beginStruct();
+        writer.writeI32(1, pageType);
+        writer.writeI32(2, pageSize);
+        writer.writeI32(3, pageSize);
+        return writer;
+    }
+
+    private long writePage(OutputStream output, ParquetBuffer header, ParquetBuffer page) throws IOException {
+        long size = header.size() + page.size();
+        header.writeTo(output);
+        page.writeTo(output);
+        header.reset();
+        page.reset();
+        return size;
+    }
+
+    private void writeChunkMetadata(ThriftCompactWriter metadata, long offset, int rowCount, long chunkSize,
+                                    long dataOffset, long dictionaryOffset) {
+        // ColumnChunk
+        metadata.beginStruct();
+        metadata.writeI64(2, offset);
+        metadata.beginStruct(3);
+        metadata.writeI32(1, getPhysicalType());
+        metadata.beginList(2, ThriftCompactWriter.TYPE_I32, 2);
+        metadata.writeI32Element(dictionaryOffset >= 0 ? ENCODING_PLAIN_DICTIONARY : ENCODING_PLAIN);
+        metadata.writeI32Element(ENCODING_RLE);
+        metadata.beginList(3, ThriftCompactWriter.TYPE_BINARY, 1);
+        metadata.writeStringElement(name);
+        metadata.writeI32(4, CODEC_UNCOMPRESSED);
+        metadata.writeI64(5, rowCount);
+        metadata.writeI64(6, chunkSize);
+        metadata.writeI64(7, chunkSize);
+        metadata.writeI64(9, dataOffset);
+
+        if (dictionaryOffset >= 0) {
+            metadata.writeI64(11, dictionaryOffset);
+        }
+        metadata.endStruct();
+        metadata.endStruct();
+    }
+
+    /**
+     * Write the schema element of this column.
+     * @param schema the file metadata, positioned in the schema list.
+     */
+    void writeSchemaElement(ThriftCompactWriter schema) {
+        schema.beginStruct();
+        schema.writeI32(1, getPhysicalType());
+        schema.writeI32(3, REPETITION_OPTIONAL);
+        schema.writeString(4, name);
+
+        if (kind == ColumnKind.STRING) {
+            schema.writeI32(6, CONVERTED_UTF8);
+            // LogicalType.STRING
+            schema.beginStruct(10);
+            schema.beginStruct(1);
+            schema.endStruct();
+            schema.endStruct();
+        } else if (kind == ColumnKind.TIMESTAMP) {
+            schema.writeI32(6, CONVERTED_TIMESTAMP_MILLIS);
+            // LogicalType.TIMESTAMP(isAdjustedToUTC = true, unit = MILLIS)
+            schema.beginStruct(10);
+            schema.beginStruct(8);
+            schema.writeBoolean(1, true);
+            schema.beginStruct(2);
+            schema.beginStruct(1);
+            schema.endStruct();
+            schema.endStruct();
+            schema.endStruct();
+            schema.endStruct();
+        }
+        schema.endStruct();
+    }
+
+    private int getPhysicalType() {
+        switch (kind) {
+            case BOOLEAN:
+                return TYPE_BOOLEAN;
+            case LONG:
+            case TIMESTAMP:
+                return TYPE_INT64;
+            case DOUBLE:
+                return TYPE_DOUBLE;
+            default:
+                return TYPE_BYTE_ARRAY;
+        }
+    }
+
+    private void clear() {
+        present.clear();
+        booleanValues.clear();
+        dictionary.clear();
+        dictionaryValues.clear();
+        dictionarySize = 0;
+    }
+}
@@ -1,4 +1,4 @@
-/**
+/*
  *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
  *  Copyright (C) 2018 Kristian S. Stangeland
  *
@@ -14,24 +14,15 @@
  *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
  *  02111-1307 USA
  */
-package com.comphenix.rema1000;
-
-public enum DestinationFormat {
-    XLSX("xlsx"),
-    XLS("xls"),
-    SQL("sql");
-
-    private final String extension;
-
-    DestinationFormat(String extension) {
-        this.extension = extension;
-    }
+package com.comphenix.rema1000.io.parquet;
 
-    public static DestinationFormat fromExtension(String extension) {
-        return valueOf(extension.toUpperCase());
-    }
+import com.comphenix.rema1000.io.DataTableConverter;
 
-    public String getExtension() {
-        return extension;
+/**
+ * Table converter with column names that are accepted by Spark and Hive.
+ */
+class ParquetTableConverter extends DataTableConverter {
+    ParquetTableConverter() {
+        super(headerName -> headerName.replace(" ", "_").toLowerCase());
     }
 }
@@ -0,0 +1,228 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.parquet;
+
+import com.comphenix.rema1000.io.AbstractTableWriter;
+import com.comphenix.rema1000.io.TableSchema;
+import com.comphenix.rema1000.io.parquet.ParquetColumn.ColumnKind;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Writes a table to a Parquet file, buffering a row group at a time.
+ * <p>
+ * Every column is optional, and its type is determined by the first value (or typed NULL) written to it. Column
+ * chunks are not compressed, but strings are dictionary encoded. The output stream is closed along with the writer.
+ */
+public class ParquetTableWriter extends AbstractTableWriter {
+    /**
+     * The default maximum number of rows per row group.
+     */
+    public static final int DEFAULT_ROW_GROUP_SIZE = 100000;
+
+    private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream output;
+    private final List<ParquetColumn> columns = new ArrayList<>();
+
+    // Row groups written so far, encoded as RowGroup structures
+    private final List<byte[]> rowGroups = new ArrayList<>();
+
+    private int rowGroupSize = DEFAULT_ROW_GROUP_SIZE;
+
+    // Rows in the current row group, including the current row
+    private int groupRows;
+    private long totalRows;
+
+    // Number of bytes written to the output
+    private long position;
+
+    public ParquetTableWriter(OutputStream output) {
+        this.output = Objects.requireNonNull(output, "output cannot be NULL");
+    }
+
+    /**
+     * Set the maximum number of rows to buffer in memory before they are written as a row group.
+     * @param rowGroupSize the number of rows, must be at least one.
+     * @return This writer, for chaining.
+     */
+    public ParquetTableWriter setRowGroupSize(int rowGroupSize) {
+        if (rowGroupSize < 1) {
+            throw new IllegalArgumentException("rowGroupSize must be at least 1");
+        }
+        this.rowGroupSize = rowGroupSize;
+        return this;
+    }
+
+    /**
+     * Retrieve the maximum number of rows per row group.
+     * @return The number of rows.
+     */
+    public int getRowGroupSize() {
+        return rowGroupSize;
+    }
+
+    @Override
+    protected void onHeaderCreated(String headerName, int headerIndex) {
+        columns.add(new ParquetColumn(headerName));
+    }
+
+    @Override
+    protected void onSchemaCreated(TableSchema schema, int[] headerIndices) {
+        // Known column types
+        for (int i = 0; i < headerIndices.length; i++) {
+            columns.get(headerIndices[i]).updateKind(ColumnKind.fromType(schema.getColumn(i).getType()));
+        }
+    }
+
+    @Override
+    protected void onWriteValue(int headerIndex, Object value, Class<?> type) throws IOException {
+        columns.get(headerIndex).writeValue(currentRow(), value, type);
+    }
+
+    @Override
+    protected void onWriteLong(int headerIndex, long value) throws IOException {
+        columns.get(headerIndex).writeLong(currentRow(), value);
+    }
+
+    @Override
+    protected void onWriteDouble(int headerIndex, double value) throws IOException {
+        columns.get(headerIndex).writeDouble(currentRow(), value);
+    }
+
+    @Override
+    protected void onWriteBoolean(int headerIndex, boolean value) throws IOException {
+        columns.get(headerIndex).writeBoolean(currentRow(), value);
+    }
+
+    @Override
+    protected void onWriteEpochMillis(int headerIndex, long epochMillis) throws IOException {
+        columns.get(headerIndex).writeTimestamp(currentRow(), epochMillis);
+    }
+
+    private int currentRow() {
+        if (groupRows == 0) {
+            throw new IllegalStateException("Must call incrementRow() first");
+        }
+        return groupRows - 1;
+    }
+
+    @Override
+    public void incrementRow() throws IOException {
+        if (groupRows >= rowGroupSize) {
+            writeRowGroup();
+        }
+        groupRows++;
+        totalRows++;
+    }
+
+    @Override
+    public int getDataRowCount() {
+        return (int) totalRows;
+    }
+
+    private void writeRowGroup() throws IOException {
+        freezeColumns();
+
+        ParquetBuffer buffer = new ParquetBuffer();
+        ThriftCompactWriter metadata = new ThriftCompactWriter(buffer);
+        long groupOffset = position;
+        long groupSize = 0;
+
+        // RowGroup
+        metadata.beginStruct();
+        metadata.beginList(1, ThriftCompactWriter.TYPE_STRUCT, columns.size());
+
+        for (ParquetColumn column : columns) {
+            groupSize += column.writeChunk(output, position + groupSize, groupRows, metadata);
+        }
+        metadata.writeI64(2, groupSize);
+        metadata.writeI64(3, groupRows);
+        metadata.writeI64(5, groupOffset);
+        metadata.writeI64(6, groupSize);
+        metadata.endStruct();
+
+        rowGroups.add(buffer.toByteArray());
+        position += groupSize;
+        groupRows = 0;
+    }
+
+    private void freezeColumns() throws IOException {
+        if (!getColumnRegistry().isFrozen()) {
+            getColumnRegistry().freeze();
+
+            // Columns without any type information
+            for (ParquetColumn column : columns) {
+                column.updateKind(ColumnKind.STRING);
+            }
+            output.write(MAGIC);
+            position += MAGIC.length;
+        }
+    }
+
+    @Override
+    protected void onClosed() throws IOException {
+        try {
+            if (groupRows > 0) {
+                writeRowGroup();
+            }
+            freezeColumns();
+            writeFooter();
+        } finally {
+            output.close();
+        }
+    }
+
+    private void writeFooter() throws IOException {
+        ParquetBuffer buffer = new ParquetBuffer();
+        ThriftCompactWriter metadata = new ThriftCompactWriter(buffer);
+
+        // FileMetaData
+        metadata.beginStruct();
+        metadata.writeI32(1, 1);
+        metadata.beginList(2, ThriftCompactWriter.TYPE_STRUCT, columns.size() + 1);
+
+        // The root of the schema
+        metadata.beginStruct();
+        metadata.writeString(4, "schema");
+        metadata.writeI32(5, columns.size());
+        metadata.endStruct();
+
+        for (ParquetColumn column : columns) {
+            column.writeSchemaElement(metadata);
+        }
+        metadata.writeI64(3, totalRows);
+        metadata.beginList(4, ThriftCompactWriter.TYPE_STRUCT, rowGroups.size());
+
+        for (byte[] rowGroup : rowGroups) {
+            metadata.writeEncodedStruct(rowGroup);
+        }
+        metadata.writeString(6, "RemaTransactionParser");
+        metadata.endStruct();
+
+        // Followed by the length of the metadata
+        int length = buffer.size();
+        buffer.writeIntLE(length);
+        buffer.writeByteArray(MAGIC);
+        buffer.writeTo(output);
+    }
+}
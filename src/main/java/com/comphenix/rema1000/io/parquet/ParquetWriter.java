@@ -0,0 +1,172 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.parquet;
+
+import com.comphenix.rema1000.io.DataRootWriter;
+import com.comphenix.rema1000.io.DataTableConverter;
+import com.comphenix.rema1000.io.DataTableConverter.TransactionSource;
+import com.comphenix.rema1000.io.columnar.ColumnarTransactions;
+import com.comphenix.rema1000.io.json.DataRootReader;
+import com.comphenix.rema1000.model.DataRoot;
+import com.comphenix.rema1000.model.Transaction;
+import com.comphenix.rema1000.model.TransactionsInfo;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes every table to its own Parquet file.
+ * <p>
+ * When writing to a path, the path is a directory with one file per table. When writing to an output stream, the
+ * files are written to a ZIP archive instead.
+ */
+public class ParquetWriter extends DataRootWriter {
+    /**
+     * The tables written by this writer, in order.
+     */
+    private static final String[] TABLE_NAMES = {
+        "TopList", "Transactions", "Receipts", "TransactionsPayments", "UsedOffers"
+    };
+
+    @FunctionalInterface
+    private interface DirectoryWriter {
+        void write(Path directory) throws IOException;
+    }
+
+    private DataTableConverter tableConverter = new ParquetTableConverter();
+
+    private int rowGroupSize = ParquetTableWriter.DEFAULT_ROW_GROUP_SIZE;
+
+    /**
+     * Set the maximum number of rows per row group in each file.
+     * @param rowGroupSize the number of rows, must be at least one.
+     */
+    public void setRowGroupSize(int rowGroupSize) {
+        if (rowGroupSize < 1) {
+            throw new IllegalArgumentException("rowGroupSize must be at least 1");
+        }
+        this.rowGroupSize = rowGroupSize;
+    }
+
+    /**
+     * Retrieve the maximum number of rows per row group in each file.
+     * @return The number of rows.
+     */
+    public int getRowGroupSize() {
+        return rowGroupSize;
+    }
+
+    @Override
+    public void write(OutputStream output, DataRoot data) throws IOException {
+        writeArchive(output, directory -> write(directory, data));
+    }
+
+    @Override
+    public void write(OutputStream output, DataRootReader reader) throws IOException {
+        writeArchive(output, directory -> write(directory, reader));
+    }
+
+    @Override
+    public void write(OutputStream output, DataRoot data, ColumnarTransactions transactions) throws IOException {
+        writeArchive(output, directory -> write(directory, data, transactions));
+    }
+
+    @Override
+    public void write(Path directory, DataRoot data) throws IOException {
+        TransactionsInfo transactionsInfo = data.getTransactionsInfo();
+        List<Transaction> transactionList = transactionsInfo != null ?
+                transactionsInfo.getTransactionList() : Collections.emptyList();
+
+        writeDirectory(directory, tables -> tableConverter.writeTransactions(transactionList.iterator(), tables), () -> data);
+    }
+
+    /**
+     * Write the transactions of the given reader to the given directory, one transaction at a time.
+     * @param directory the directory.
+     * @param reader the reader.
+     */
+    @Override
+    public void write(Path directory, DataRootReader reader) throws IOException {
+        writeDirectory(directory, tables -> tableConverter.writeTransactions(reader, tables), reader::getDataRoot);
+    }
+
+    @Override
+    public void write(Path directory, DataRoot data, ColumnarTransactions transactions) throws IOException {
+        writeDirectory(directory, tables -> tableConverter.writeTransactions(transactions, tables), () -> data);
+    }
+
+    private void writeDirectory(Path directory, TransactionSource transactions, Supplier<DataRoot> dataSupplier) throws IOException {
+        Files.createDirectories(directory);
+
+        try (ParquetTableWriter transactionsWriter = createTableWriter(directory, "Transactions");
+             ParquetTableWriter receiptsWriter = createTableWriter(directory, "Receipts");
+             ParquetTableWriter paymentsWriter = createTableWriter(directory, "TransactionsPayments");
+             ParquetTableWriter usedOffersWriter = createTableWriter(directory, "UsedOffers")) {
+
+            // Visit each transaction once
+            transactions.writeTransactions(
+                    tableConverter.createTableTransactions(transactionsWriter),
+                    tableConverter.createTableReceipts(receiptsWriter),
+                    tableConverter.createTableTransactionsPayments(paymentsWriter),
+                    tableConverter.createTableTransactionsUsedOffers(usedOffersWriter));
+        }
+        // The top list may follow the transactions
+        try (ParquetTableWriter topListWriter = createTableWriter(directory, "TopList")) {
+            tableConverter.writeTableTopList(topListWriter, dataSupplier.get().getTopList());
+        }
+    }
+
+    private void writeArchive(OutputStream output, DirectoryWriter directoryWriter) throws IOException {
+        // Every table is written at the same time, so each file must be complete before it is added
+        Path directory = Files.createTempDirectory("RemaTransactionParser");
+
+        try {
+            directoryWriter.write(directory);
+            ZipOutputStream zip = new ZipOutputStream(output);
+
+            for (String tableName : TABLE_NAMES) {
+                zip.putNextEntry(new ZipEntry(getFileName(tableName)));
+                Files.copy(directory.resolve(getFileName(tableName)), zip);
+                zip.closeEntry();
+            }
+            zip.finish();
+            zip.flush();
+        } finally {
+            for (String tableName : TABLE_NAMES) {
+                Files.deleteIfExists(directory.resolve(getFileName(tableName)));
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private ParquetTableWriter createTableWriter(Path directory, String tableName) throws IOException {
+        OutputStream output = new BufferedOutputStream(Files.newOutputStream(directory.resolve(getFileName(tableName))));
+        return new ParquetTableWriter(output).setRowGroupSize(rowGroupSize);
+    }
+
+    private static String getFileName(String tableName) {
+        return tableName + ".parquet";
+    }
+}
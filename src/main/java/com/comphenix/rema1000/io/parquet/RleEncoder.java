@@ -0,0 +1,111 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.parquet;
+
+/**
+ * Encodes integers with the RLE and bit-packing hybrid encoding of Parquet, used by definition levels and
+ * dictionary indices.
+ */
+final class RleEncoder {
+    // Shortest sequence of repeated values written as a run
+    private static final int MIN_RUN_LENGTH = 8;
+    // Keep the header of a bit-packed sequence in a single byte
+    private static final int MAX_BIT_PACKED_GROUPS = 63;
+
+    private RleEncoder() {
+        // Static methods only
+    }
+
+    /**
+     * Retrieve the number of bits needed to store every value up to and including the given value.
+     * @param maxValue the maximum value.
+     * @return The bit width, at least one.
+     */
+    static int bitWidth(int maxValue) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(maxValue));
+    }
+
+    /**
+     * Encode the given values, without a length prefix.
+     * @param output the output buffer.
+     * @param values the values.
+     * @param count the number of values to encode.
+     * @param bitWidth the number of bits per value.
+     */
+    static void encode(ParquetBuffer output, int[] values, int count, int bitWidth) {
+        int index = 0;
+
+        while (index < count) {
+            int runLength = runLength(values, index, count);
+
+            if (runLength >= MIN_RUN_LENGTH) {
+                output.writeUnsignedVarInt((long) runLength << 1);
+                writeRunValue(output, values[index], bitWidth);
+                index += runLength;
+                continue;
+            }
+            // Pack groups of eight values until the next long run
+            int start = index;
+            int groups = 0;
+
+            do {
+                groups++;
+                index += 8;
+            } while (index < count && groups < MAX_BIT_PACKED_GROUPS && runLength(values, index, count) < MIN_RUN_LENGTH);
+
+            output.writeUnsignedVarInt((groups << 1) | 1);
+            writeBitPacked(output, values, start, Math.min(index, count), groups * 8, bitWidth);
+            index = Math.min(index, count);
+        }
+    }
+
+    private static int runLength(int[] values, int start, int count) {
+        int end = start + 1;
+
+        while (end < count && values[end] == values[start]) {
+            end++;
+        }
+        return end - start;
+    }
+
+    private static void writeRunValue(ParquetBuffer output, int value, int bitWidth) {
+        for (int i = 0; i < (bitWidth + 7) / 8; i++) {
+            output.write(value >>> (i * 8));
+        }
+    }
+
+    private static void writeBitPacked(ParquetBuffer output, int[] values, int start, int end, int length, int bitWidth) {
+        long accumulator = 0;
+        int bits = 0;
+
+        // Values are packed from the least significant bit, and missing values in the last group are zero
+        for (int i = 0; i < length; i++) {
+            int value = start + i < end ? values[start + i] : 0;
+            accumulator |= (value & 0xFFFFFFFFL) << bits;
+            bits += bitWidth;
+
+            while (bits >= 8) {
+                output.write((int) accumulator);
+                accumulator >>>= 8;
+                bits -= 8;
+            }
+        }
+        if (bits > 0) {
+            output.write((int) accumulator);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.parquet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes Thrift structures in the compact protocol, as used by the Parquet file and page metadata.
+ * <p>
+ * Only the field types needed by Parquet are supported.
+ */
+final class ThriftCompactWriter {
+    static final byte TYPE_BOOLEAN_TRUE = 1;
+    static final byte TYPE_BOOLEAN_FALSE = 2;
+    static final byte TYPE_I32 = 5;
+    static final byte TYPE_I64 = 6;
+    static final byte TYPE_BINARY = 8;
+    static final byte TYPE_LIST = 9;
+    static final byte TYPE_STRUCT = 12;
+
+    private final ParquetBuffer buffer;
+
+    // The last field ID of each enclosing struct
+    private int[] fieldIdStack = new int[8];
+    private int depth;
+    private int lastFieldId;
+
+    ThriftCompactWriter(ParquetBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Begin a struct that is not a field, such as the root struct or an element of a list.
+     */
+    void beginStruct() {
+        if (depth >= fieldIdStack.length) {
+            fieldIdStack = Arrays.copyOf(fieldIdStack, depth * 2);
+        }
+        fieldIdStack[depth++] = lastFieldId;
+        lastFieldId = 0;
+    }
+
+    void beginStruct(int fieldId) {
+        writeFieldHeader(fieldId, TYPE_STRUCT);
+        beginStruct();
+    }
+
+    void endStruct() {
+        if (depth == 0) {
+            throw new IllegalStateException("No struct to end");
+        }
+        buffer.write(0);
+        lastFieldId = fieldIdStack[--depth];
+    }
+
+    void writeBoolean(int fieldId, boolean value) {
+        writeFieldHeader(fieldId, value ? TYPE_BOOLEAN_TRUE : TYPE_BOOLEAN_FALSE);
+    }
+
+    void writeI32(int fieldId, int value) {
+        writeFieldHeader(fieldId, TYPE_I32);
+        writeI32Element(value);
+    }
+
+    void writeI64(int fieldId, long value) {
+        writeFieldHeader(fieldId, TYPE_I64);
+        buffer.writeUnsignedVarInt((value << 1) ^ (value >> 63));
+    }
+
+    void writeString(int fieldId, String value) {
+        writeFieldHeader(fieldId, TYPE_BINARY);
+        writeStringElement(value);
+    }
+
+    /**
+     * Begin a list field, whose elements must be written immediately after.
+     * @param fieldId the field ID.
+     * @param elementType the type of every element.
+     * @param size the number of elements.
+     */
+    void beginList(int fieldId, byte elementType, int size) {
+        writeFieldHeader(fieldId, TYPE_LIST);
+
+        if (size < 15) {
+            buffer.write((size << 4) | elementType);
+        } else {
+            buffer.write(0xF0 | elementType);
+            buffer.writeUnsignedVarInt(size);
+        }
+    }
+
+    void writeI32Element(int value) {
+        buffer.writeUnsignedVarInt(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+
+    void writeStringElement(String value) {
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        buffer.writeUnsignedVarInt(data.length);
+        buffer.writeByteArray(data);
+    }
+
+    /**
+     * Write a complete struct that has already been encoded on its own, such as an element of a list.
+     * @param encoded the encoded struct.
+     */
+    void writeEncodedStruct(byte[] encoded) {
+        buffer.writeByteArray(encoded);
+    }
+
+    private void writeFieldHeader(int fieldId, byte type) {
+        int delta = fieldId - lastFieldId;
+
+        if (delta > 0 && delta <= 15) {
+            buffer.write((delta << 4) | type);
+        } else {
+            buffer.write(type);
+            writeI32Element(fieldId);
+        }
+        lastFieldId = fieldId;
+    }
+}
@@ -0,0 +1,384 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.sql;
+
+import com.comphenix.rema1000.io.AbstractTableWriter;
+import com.comphenix.rema1000.io.ColumnRegistry;
+import com.comphenix.rema1000.io.TableSchema;
+import com.comphenix.rema1000.io.sql.SqlTableWriter.TableColumn;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Writes a table directly to a database through JDBC, using batched prepared statements.
+ * <p>
+ * The table is created when the first row has been written, and any transaction must be committed by the caller.
+ */
+public class JdbcTableWriter extends AbstractTableWriter {
+    private final String tableName;
+    private final Connection connection;
+
+    // Current columns
+    private Map<String, TableColumn> tableColumns = new HashMap<>();
+
+    // Values of the first row, before the table has been created
+    private List<Object> values = new ArrayList<>();
+
+    // Columns written in the current row
+    private BitSet writtenColumns = new BitSet();
+
+    private PreparedStatement insertStatement;
+
+    // Index of the current row (initially -1)
+    private int dataIndex = -1;
+
+    // Whether or not to append to an existing table
+    private boolean createIfNotExists;
+    private boolean deleteExistingRows;
+
+    // Maximum number of rows per batch
+    private int batchSize = 1;
+    // Number of rows in the current batch
+    private int batchRows;
+
+    public JdbcTableWriter(String tableName, Connection connection) {
+        this(tableName, connection, new ColumnRegistry());
+    }
+
+    /**
+     * Construct a writer of a table with the given columns.
+     * <p>
+     * A frozen registry of another JDBC table writer also shares the resolved table columns.
+     * @param tableName the table name.
+     * @param connection the database connection.
+     * @param columns the columns.
+     */
+    public JdbcTableWriter(String tableName, Connection connection, ColumnRegistry columns) {
+        super(columns);
+        this.tableName = Objects.requireNonNull(tableName, "tableName cannot be NULL");
+        this.connection = Objects.requireNonNull(connection, "connection cannot be NULL");
+    }
+
+    /**
+     * Set the maximum number of rows to send to the database at once.
+     * @param batchSize the number of rows, must be at least one.
+     * @return This writer, for chaining.
+     */
+    public JdbcTableWriter setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Set whether or not to leave the table as is if it already exists, so that rows are appended to it.
+     * @param createIfNotExists TRUE to leave an existing table, FALSE to always create the table.
+     * @return This writer, for chaining.
+     */
+    public JdbcTableWriter setCreateIfNotExists(boolean createIfNotExists) {
+        this.createIfNotExists = createIfNotExists;
+        return this;
+    }
+
+    /**
+     * Set whether or not to delete every row of an existing table, before any rows are inserted.
+     * @param deleteExistingRows TRUE to delete existing rows, FALSE otherwise.
+     * @return This writer, for chaining.
+     */
+    public JdbcTableWriter setDeleteExistingRows(boolean deleteExistingRows) {
+        this.deleteExistingRows = deleteExistingRows;
+        return this;
+    }
+
+    /**
+     * Associate the given header with the given table metadata, even if it does not yet exist.
+     * @param headerName the header name.
+     * @param column the column metadata.
+     * @return This writer, for chaining.
+     */
+    public JdbcTableWriter putTableColumn(String headerName, TableColumn column) {
+        tableColumns.put(headerName, column);
+        return this;
+    }
+
+    /**
+     * Associate each column of the given schema with its type and keys, unless the column has already been associated
+     * with table metadata.
+     */
+    @Override
+    protected void onSchemaCreated(TableSchema schema, int[] headerIndices) {
+        for (TableSchema.Column column : schema.getColumns()) {
+            tableColumns.putIfAbsent(column.getName(), new TableColumn(column.getName(), column.getType(),
+                    column.isPrimaryKey(), column.getForeignTable(), column.getForeignColumn()));
+        }
+    }
+
+    /**
+     * Retrieve the table column associated with the given header.
+     * <p>
+     * Once the table has been created, this is the resolved column including the type of the first row.
+     * @param headerIndex the header index.
+     * @return Corresponding table column, or NULL if the header does not exists.
+     */
+    public TableColumn getTableColumn(int headerIndex) {
+        ColumnRegistry registry = getColumnRegistry();
+
+        if (registry.isFrozen() && headerIndex >= 0 && headerIndex < registry.size()) {
+            TableColumn resolved = registry.getMetadata(headerIndex);
+
+            if (resolved != null) {
+                return resolved;
+            }
+        }
+        String headerName = getHeaderName(headerIndex);
+
+        if (headerName == null) {
+            return null;
+        }
+        TableColumn result = tableColumns.get(headerName);
+        return result != null ? result : new TableColumn(headerName);
+    }
+
+    @Override
+    protected void onWriteValue(int headerIndex, Object value, Class<?> type) throws IOException {
+        checkRow();
+        writtenColumns.set(headerIndex);
+
+        if (insertStatement != null) {
+            bindValue(headerIndex, value);
+        } else {
+            while (values.size() <= headerIndex) {
+                values.add(null);
+            }
+            values.set(headerIndex, value);
+
+            // Only the first row determines the column types
+            ColumnRegistry registry = getColumnRegistry();
+
+            if (!registry.isFrozen()) {
+                registry.setType(headerIndex, type);
+            }
+        }
+    }
+
+    @Override
+    protected void onWriteLong(int headerIndex, long value) throws IOException {
+        if (insertStatement == null) {
+            super.onWriteLong(headerIndex, value);
+            return;
+        }
+        checkRow();
+        writtenColumns.set(headerIndex);
+
+        try {
+            insertStatement.setLong(headerIndex + 1, value);
+        } catch (SQLException e) {
+            throw new IOException("Unable to write value to " + tableName, e);
+        }
+    }
+
+    @Override
+    protected void onWriteDouble(int headerIndex, double value) throws IOException {
+        if (insertStatement == null) {
+            super.onWriteDouble(headerIndex, value);
+            return;
+        }
+        checkRow();
+        writtenColumns.set(headerIndex);
+
+        try {
+            insertStatement.setDouble(headerIndex + 1, value);
+        } catch (SQLException e) {
+            throw new IOException("Unable to write value to " + tableName, e);
+        }
+    }
+
+    @Override
+    protected void onWriteBoolean(int headerIndex, boolean value) throws IOException {
+        onWriteLong(headerIndex, value ? 1 : 0);
+    }
+
+    @Override
+    protected void onWriteEpochMillis(int headerIndex, long epochMillis) throws IOException {
+        if (insertStatement == null) {
+            // Type of the first row
+            super.onWriteEpochMillis(headerIndex, epochMillis);
+        } else {
+            // Store as unix epoch
+            onWriteLong(headerIndex, epochMillis);
+        }
+    }
+
+    private void checkRow() {
+        if (dataIndex < 0) {
+            throw new IllegalStateException("Must call incrementRow() first");
+        }
+    }
+
+    @Override
+    public void incrementRow() throws IOException {
+        if (dataIndex >= 0) {
+            finishRow();
+        }
+        dataIndex++;
+    }
+
+    @Override
+    public int getDataRowCount() {
+        return dataIndex + 1;
+    }
+
+    private void finishRow() throws IOException {
+        try {
+            if (insertStatement == null) {
+                createTable();
+
+                for (int i = 0; i < values.size(); i++) {
+                    bindValue(i, values.get(i));
+                }
+                values = null;
+            }
+            // Columns missing in this row
+            for (int i = writtenColumns.nextClearBit(0); i < getHeaderCount(); i = writtenColumns.nextClearBit(i + 1)) {
+                insertStatement.setNull(i + 1, Types.NULL);
+            }
+            writtenColumns.clear();
+            insertStatement.addBatch();
+
+            if (++batchRows >= batchSize) {
+                executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new IOException("Unable to insert row into " + tableName, e);
+        }
+    }
+
+    private void executeBatch() throws SQLException {
+        if (batchRows > 0) {
+            insertStatement.executeBatch();
+            batchRows = 0;
+        }
+    }
+
+    private void createTable() throws SQLException {
+        ColumnRegistry registry = getColumnRegistry();
+        List<TableColumn> columns = new ArrayList<>(registry.size());
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < registry.size(); i++) {
+            TableColumn column = getTableColumn(i);
+            Class<?> type = registry.getType(i);
+
+            // Fetch known column type
+            if (column.getColumnType() == null && type != null) {
+                column = new TableColumn(column.getColumnName(), type, column.isPrimaryKey(),
+                        column.getForeignTable(), column.getForeignColumn());
+            }
+            columns.add(column);
+        }
+
+        // The columns cannot change from now on
+        if (!registry.isFrozen()) {
+            for (int i = 0; i < columns.size(); i++) {
+                registry.setMetadata(i, columns.get(i));
+            }
+            registry.freeze();
+        }
+        SqlSyntax.appendCreateTable(builder, tableName, columns, createIfNotExists, "\n");
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(builder.toString());
+
+            if (deleteExistingRows) {
+                builder.setLength(0);
+                SqlSyntax.appendDeleteAll(builder, tableName);
+                statement.execute(builder.toString());
+            }
+        }
+        builder.setLength(0);
+        builder.append("INSERT INTO ");
+        SqlSyntax.appendIdentifier(builder, tableName);
+        builder.append("(");
+
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            SqlSyntax.appendIdentifier(builder, columns.get(i).getColumnName());
+        }
+        builder.append(") VALUES (");
+
+        for (int i = 0; i < columns.size(); i++) {
+            builder.append(i > 0 ? ", ?" : "?");
+        }
+        builder.append(")");
+        insertStatement = connection.prepareStatement(builder.toString());
+    }
+
+    private void bindValue(int headerIndex, Object value) throws IOException {
+        int parameterIndex = headerIndex + 1;
+
+        try {
+            if (value instanceof Instant) {
+                // Store as unix epoch
+                insertStatement.setLong(parameterIndex, ((Instant) value).toEpochMilli());
+            } else if (value instanceof Date) {
+                insertStatement.setLong(parameterIndex, ((Date) value).getTime());
+            } else if (value instanceof CharSequence) {
+                insertStatement.setString(parameterIndex, value.toString());
+            } else if (value instanceof Double || value instanceof Float) {
+                insertStatement.setDouble(parameterIndex, ((Number) value).doubleValue());
+            } else if (value instanceof Number) {
+                insertStatement.setLong(parameterIndex, ((Number) value).longValue());
+            } else if (value instanceof Boolean) {
+                insertStatement.setInt(parameterIndex, (boolean) value ? 1 : 0);
+            } else if (value instanceof byte[]) {
+                insertStatement.setBytes(parameterIndex, (byte[]) value);
+            } else if (value == null) {
+                insertStatement.setNull(parameterIndex, Types.NULL);
+            } else {
+                throw new IllegalArgumentException("Unknown type of value " + value);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Unable to write value to " + tableName, e);
+        }
+    }
+
+    @Override
+    protected void onClosed() throws IOException {
+        try {
+            if (dataIndex >= 0) {
+                finishRow();
+            } else {
+                createTable();
+            }
+            executeBatch();
+            insertStatement.close();
+        } catch (SQLException e) {
+            throw new IOException("Unable to finish table " + tableName, e);
+        }
+    }
+}
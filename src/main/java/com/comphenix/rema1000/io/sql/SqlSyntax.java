@@ -0,0 +1,182 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.sql;
+
+import com.comphenix.rema1000.io.TextBuffer;
+import com.comphenix.rema1000.io.sql.SqlTableWriter.TableColumn;
+import com.google.gson.internal.Primitives;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * SQL syntax shared by the SQL script and SQLite database writers.
+ */
+final class SqlSyntax {
+    private SqlSyntax() {
+        // Static methods only
+    }
+
+    /**
+     * Append a CREATE TABLE statement for the given columns.
+     * @param builder the builder.
+     * @param tableName the table name.
+     * @param columns the columns, with their type if known.
+     * @param lineBreak the line break.
+     */
+    static void appendCreateTable(StringBuilder builder, String tableName, List<TableColumn> columns, String lineBreak) {
+        appendCreateTable(builder, tableName, columns, false, lineBreak);
+    }
+
+    /**
+     * Append a CREATE TABLE statement for the given columns.
+     * @param builder the builder.
+     * @param tableName the table name.
+     * @param columns the columns, with their type if known.
+     * @param ifNotExists whether or not to leave an existing table with the same name as is.
+     * @param lineBreak the line break.
+     */
+    static void appendCreateTable(StringBuilder builder, String tableName, List<TableColumn> columns, boolean ifNotExists,
+                                  String lineBreak) {
+        builder.append(ifNotExists ? "CREATE TABLE IF NOT EXISTS " : "CREATE TABLE ");
+        appendIdentifier(builder, tableName);
+        builder.append(" (").append(lineBreak);
+
+        Set<String> primaryKeys = new LinkedHashSet<>();
+
+        for (int i = 0; i < columns.size(); i++) {
+            TableColumn column = columns.get(i);
+            Class<?> columnType = column.getColumnType();
+
+            if (i > 0) {
+                builder.append(",");
+                builder.append(lineBreak);
+            }
+            builder.append("  ");
+            appendIdentifier(builder, column.getColumnName());
+
+            // Values written as NULL carry no type
+            if (columnType != null && !Object.class.equals(columnType)) {
+                builder.append(" ");
+                appendColumnType(builder, columnType);
+            }
+            if (column.getForeignTable() != null && !column.getForeignTable().isEmpty()) {
+                builder.append(" REFERENCES ");
+                appendIdentifier(builder, column.getForeignTable());
+                builder.append("(");
+                appendIdentifier(builder, column.getForeignColumn());
+                builder.append(")");
+            }
+            if (column.isPrimaryKey()) {
+                primaryKeys.add(column.getColumnName());
+            }
+        }
+        // Finally, write primary keys
+        if (primaryKeys.size() > 0) {
+            builder.append(",");
+            builder.append(lineBreak);
+            builder.append("  PRIMARY KEY(");
+            boolean firstKey = true;
+
+            for (String primaryKey : primaryKeys) {
+                if (!firstKey) {
+                    builder.append(", ");
+                }
+                appendIdentifier(builder, primaryKey);
+                firstKey = false;
+            }
+            builder.append(")");
+        }
+        builder.append(lineBreak);
+        builder.append(");");
+    }
+
+    /**
+     * Append a DELETE statement that removes every row of the given table.
+     * @param builder the builder.
+     * @param tableName the table name.
+     */
+    static void appendDeleteAll(StringBuilder builder, String tableName) {
+        builder.append("DELETE FROM ");
+        appendIdentifier(builder, tableName);
+        builder.append(";");
+    }
+
+    static void appendColumnType(StringBuilder builder, Class<?> columnType) {
+        Class<?> unwrapped = Primitives.unwrap(columnType);
+
+        if (byte.class.equals(unwrapped) || short.class.equals(unwrapped) || int.class.equals(unwrapped) ||
+                long.class.equals(unwrapped) || boolean.class.equals(unwrapped)) {
+            builder.append("INTEGER");
+        } else if (float.class.equals(unwrapped) || double.class.equals(unwrapped)) {
+            builder.append("REAL");
+        } else if (CharSequence.class.isAssignableFrom(columnType) || char.class.equals(columnType)) {
+            builder.append("TEXT");
+        } else if (byte[].class.equals(columnType)) {
+            builder.append("BLOB");
+        } else if (Instant.class.equals(columnType) || Date.class.equals(columnType)) {
+            builder.append("DATETIME");
+        } else {
+            throw new IllegalArgumentException("Unknown column type " + columnType);
+        }
+    }
+
+    static void appendIdentifier(StringBuilder builder, String value) {
+        if (value.isEmpty()) {
+            return;
+        }
+        appendQuoted(builder, value, '"');
+    }
+
+    static void appendString(StringBuilder builder, CharSequence value) {
+        appendQuoted(builder, value, '\'');
+    }
+
+    static void appendString(TextBuffer buffer, CharSequence value) {
+        buffer.append('\'');
+
+        for (int i = 0; i < value.length(); i++) {
+            char current = value.charAt(i);
+
+            // Escape quote
+            if (current == '\'') {
+                buffer.append('\'');
+            }
+            buffer.append(current);
+        }
+        buffer.append('\'');
+    }
+
+    static void appendQuoted(StringBuilder builder, CharSequence value, char quote) {
+        builder.append(quote);
+
+        for (int i = 0; i < value.length(); i++) {
+            char current = value.charAt(i);
+
+            // Escape quote
+            if (current == quote) {
+                builder.append(quote).append(quote);
+            } else {
+                builder.append(current);
+            }
+        }
+        builder.append(quote);
+    }
+}
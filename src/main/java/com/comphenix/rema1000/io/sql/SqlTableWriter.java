@@ -1,7 +1,10 @@
 package com.comphenix.rema1000.io.sql;
 
 import com.comphenix.rema1000.io.AbstractTableWriter;
-import com.google.gson.internal.Primitives;
+import com.comphenix.rema1000.io.ColumnRegistry;
+import com.comphenix.rema1000.io.RowBuffer;
+import com.comphenix.rema1000.io.TableSchema;
+import com.comphenix.rema1000.io.TextBuffer;
 
 import java.io.IOException;
 import java.io.Writer;
@@ -72,21 +75,88 @@ public class SqlTableWriter extends AbstractTableWriter {
 
     // Current columns
     private Map<String, TableColumn> tableColumns = new HashMap<>();
+    // Columns without metadata, created once
+    private Map<String, TableColumn> defaultColumns = new HashMap<>();
 
-    // Current values to be written to the output
-    private List<Object> values = new ArrayList<>();
-    private List<Class<?>> types = new ArrayList<>();
+    // Current values to be written to the output, reused for every row
+    private final RowBuffer row = new RowBuffer();
 
     // Index of the current row (initially -1)
     private int dataIndex = -1;
 
-    private boolean columnCreationFrozen = false;
+    // Maximum number of rows per insert statement
+    private int batchSize = 1;
+    // Number of rows in the current insert statement
+    private int batchRows;
+    // The current insert statement, written in full as other tables may share the same writer
+    private final TextBuffer batch = new TextBuffer();
+
+    // The start of every insert statement, with the quoted table and column names
+    private String insertPrefix;
+
+    // Whether or not to append to an existing table
+    private boolean createIfNotExists;
+    private boolean deleteExistingRows;
 
     public SqlTableWriter(String tableName, Writer writer) {
+        this(tableName, writer, new ColumnRegistry());
+    }
+
+    /**
+     * Construct a writer of a table with the given columns.
+     * <p>
+     * A frozen registry of another SQL table writer also shares the resolved table columns.
+     * @param tableName the table name.
+     * @param writer the output writer.
+     * @param columns the columns.
+     */
+    public SqlTableWriter(String tableName, Writer writer, ColumnRegistry columns) {
+        super(columns);
         this.tableName = Objects.requireNonNull(tableName, "tableName cannot be NULL");
         this.writer = Objects.requireNonNull(writer, "writer cannot be NULL");
     }
 
+    /**
+     * Set the maximum number of rows to insert per INSERT statement.
+     * @param batchSize the number of rows, must be at least one.
+     * @return This writer, for chaining.
+     */
+    public SqlTableWriter setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Retrieve the maximum number of rows to insert per INSERT statement.
+     * @return The number of rows.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set whether or not to leave the table as is if it already exists, so that rows are appended to it.
+     * @param createIfNotExists TRUE to leave an existing table, FALSE to always create the table.
+     * @return This writer, for chaining.
+     */
+    public SqlTableWriter setCreateIfNotExists(boolean createIfNotExists) {
+        this.createIfNotExists = createIfNotExists;
+        return this;
+    }
+
+    /**
+     * Set whether or not to delete every row of an existing table, before any rows are inserted.
+     * @param deleteExistingRows TRUE to delete existing rows, FALSE otherwise.
+     * @return This writer, for chaining.
+     */
+    public SqlTableWriter setDeleteExistingRows(boolean deleteExistingRows) {
+        this.deleteExistingRows = deleteExistingRows;
+        return this;
+    }
+
     /**
      * Associate the given header with the given table metadata, even if it does not yet exist.
      * @param headerName the header name.
@@ -98,12 +168,35 @@ public class SqlTableWriter extends AbstractTableWriter {
         return this;
     }
 
+    /**
+     * Associate each column of the given schema with its type and keys, unless the column has already been associated
+     * with table metadata.
+     */
+    @Override
+    protected void onSchemaCreated(TableSchema schema, int[] headerIndices) {
+        for (TableSchema.Column column : schema.getColumns()) {
+            tableColumns.putIfAbsent(column.getName(), new TableColumn(column.getName(), column.getType(),
+                    column.isPrimaryKey(), column.getForeignTable(), column.getForeignColumn()));
+        }
+    }
+
     /**
      * Retrieve the table column associated with the given header.
+     * <p>
+     * Once column creation is frozen, this is the resolved column including the type of the first row.
      * @param headerIndex the header index.
      * @return Corresponding table column, or NULL if the header does not exists.
      */
     public TableColumn getTableColumn(int headerIndex) {
+        ColumnRegistry registry = getColumnRegistry();
+
+        if (registry.isFrozen() && headerIndex >= 0 && headerIndex < registry.size()) {
+            TableColumn resolved = registry.getMetadata(headerIndex);
+
+            if (resolved != null) {
+                return resolved;
+            }
+        }
         String headerName = getHeaderName(headerIndex);
         return headerName != null ? getTableColumn(headerName) : null;
     }
@@ -116,32 +209,53 @@ public class SqlTableWriter extends AbstractTableWriter {
     public TableColumn getTableColumn(String headerName) {
         TableColumn result = tableColumns.get(headerName);
 
-        if (result == null && headerIndexLookup.containsKey(headerName)) {
+        if (result == null && getHeaderIndex(headerName) >= 0) {
             // Default column
-            result = new TableColumn(headerName);
+            result = defaultColumns.computeIfAbsent(headerName, TableColumn::new);
         }
         return result;
     }
 
-    private void resizeList(List<?> list, int newSize) {
-        while (list.size() < newSize) {
-            list.add(null);
-        }
+    @Override
+    protected void onWriteValue(int headerIndex, Object value, Class<?> type) throws IOException {
+        prepareColumn(headerIndex, type);
+        row.setValue(headerIndex, value);
     }
 
     @Override
-    protected void onHeaderCreated(String headerName, int headerIndex) {
-        if (columnCreationFrozen) {
-            throw new IllegalArgumentException("Cannot create header " + headerName + " after the first row has been finished.");
-        }
+    protected void onWriteLong(int headerIndex, long value) throws IOException {
+        prepareColumn(headerIndex, long.class);
+        row.setLong(headerIndex, value);
     }
 
     @Override
-    protected void onWriteValue(int headerIndex, Object value, Class<?> type) throws IOException {
-        resizeList(values, headerIndex + 1);
-        resizeList(types, headerIndex + 1);
-        values.set(headerIndex, value);
-        types.set(headerIndex, type);
+    protected void onWriteDouble(int headerIndex, double value) throws IOException {
+        prepareColumn(headerIndex, double.class);
+        row.setDouble(headerIndex, value);
+    }
+
+    @Override
+    protected void onWriteBoolean(int headerIndex, boolean value) throws IOException {
+        prepareColumn(headerIndex, boolean.class);
+        row.setBoolean(headerIndex, value);
+    }
+
+    @Override
+    protected void onWriteEpochMillis(int headerIndex, long epochMillis) throws IOException {
+        // Stored as unix epoch
+        prepareColumn(headerIndex, Instant.class);
+        row.setEpochMillis(headerIndex, epochMillis);
+    }
+
+    private void prepareColumn(int headerIndex, Class<?> type) {
+        row.ensureSize(getHeaderCount());
+
+        // Only the first row determines the column types
+        ColumnRegistry registry = getColumnRegistry();
+
+        if (!registry.isFrozen()) {
+            registry.setType(headerIndex, type);
+        }
     }
 
     @Override
@@ -149,9 +263,11 @@ public class SqlTableWriter extends AbstractTableWriter {
         if (dataIndex <= 0) {
             writeHeaders();
         }
-        if (dataIndex == 0) {
+        // Write the last row
+        if (dataIndex >= 0) {
             writeRow();
         }
+        endBatch();
         writer.write(lineBreak);
     }
 
@@ -165,7 +281,7 @@ public class SqlTableWriter extends AbstractTableWriter {
                 writeHeaders();
             }
             writeRow();
-            values.clear();
+            row.clear();
         }
     }
 
@@ -174,129 +290,133 @@ public class SqlTableWriter extends AbstractTableWriter {
      * @return TRUE if it is, FALSE otherwise.
      */
     public boolean isColumnCreationFrozen() {
-        return columnCreationFrozen;
+        return getColumnRegistry().isFrozen();
     }
 
     protected void writeHeaders() throws IOException {
-        columnCreationFrozen = true;
+        ColumnRegistry registry = getColumnRegistry();
+        List<TableColumn> columns = getColumns();
 
+        // The columns cannot change from now on
+        if (!registry.isFrozen()) {
+            for (int i = 0; i < columns.size(); i++) {
+                registry.setMetadata(i, columns.get(i));
+            }
+            registry.freeze();
+        }
         StringBuilder builder = new StringBuilder();
-        builder.append("CREATE TABLE ");
-        writeIdentifier(builder, tableName);
-        builder.append(" (").append(lineBreak);
+        SqlSyntax.appendCreateTable(builder, tableName, columns, createIfNotExists, lineBreak);
+        builder.append(lineBreak);
 
-        Set<String> primaryKeys = new HashSet<>();
+        if (deleteExistingRows) {
+            SqlSyntax.appendDeleteAll(builder, tableName);
+            builder.append(lineBreak);
+        }
+        writer.write(builder.toString());
 
-        for (int i = 0; i < getHeaderCount(); i++) {
-            TableColumn column = getTableColumn(i);
-            Class<?> columnType = column.getColumnType();
+        builder.setLength(0);
+        builder.append("INSERT INTO ");
+        SqlSyntax.appendIdentifier(builder, tableName);
+        builder.append("(");
 
-            // Fetch known column type
-            if (columnType == null && i < types.size()) {
-                columnType = types.get(i);
-            }
+        for (int i = 0; i < columns.size(); i++) {
             if (i > 0) {
-                builder.append(",");
-                builder.append(lineBreak);
-            }
-            builder.append("  ");
-            writeIdentifier(builder, column.getColumnName());
-
-            if (columnType != null) {
-                builder.append(" ");
-                writeColumnType(builder, columnType);
-            }
-            if (column.getForeignTable() != null && !column.getForeignTable().isEmpty()) {
-                builder.append(" REFERENCES ");
-                writeIdentifier(builder, column.getForeignTable());
-                builder.append("(");
-                writeIdentifier(builder, column.getForeignColumn());
-                builder.append(")");
-            }
-            if (column.isPrimaryKey()) {
-                primaryKeys.add(column.getColumnName());
-            }
-        }
-        // Finally, write primary keys
-        if (primaryKeys.size() > 0) {
-            builder.append(",");
-            builder.append(lineBreak);
-            builder.append("  PRIMARY KEY(");
-            boolean firstKey = true;
-
-            for (String primaryKey : primaryKeys) {
-                if (!firstKey) {
-                    builder.append(", ");
-                }
-                writeIdentifier(builder, primaryKey);
-                firstKey = false;
+                builder.append(", ");
             }
-            builder.append(")");
+            SqlSyntax.appendIdentifier(builder, columns.get(i).getColumnName());
         }
-        builder.append(lineBreak);
-        builder.append(");");
-        builder.append(lineBreak);
-        writer.write(builder.toString());
+        builder.append(") VALUES");
+        insertPrefix = builder.toString();
     }
 
-    private void writeColumnType(StringBuilder builder, Class<?> columnType) {
-        Class<?> unwrapped = Primitives.unwrap(columnType);
-
-        if (byte.class.equals(unwrapped) || short.class.equals(unwrapped) || int.class.equals(unwrapped) ||
-                long.class.equals(unwrapped) || boolean.class.equals(unwrapped)) {
-            builder.append("INTEGER");
-        } else if (float.class.equals(unwrapped) || double.class.equals(unwrapped)) {
-            builder.append("REAL");
-        } else if (CharSequence.class.isAssignableFrom(columnType) || char.class.equals(columnType)) {
-            builder.append("TEXT");
-        } else if (byte[].class.equals(columnType)) {
-            builder.append("BLOB");
-        } else if (Instant.class.equals(columnType) || Date.class.equals(columnType)) {
-            builder.append("DATETIME");
-        } else {
-            throw new IllegalArgumentException("Unknown column type " + columnType);
-        }
+    /**
+     * Retrieve every column in the table, along with the type of the values in the first row if not specified.
+     * @return The columns.
+     */
+    protected List<TableColumn> getColumns() {
+        ColumnRegistry registry = getColumnRegistry();
+        List<TableColumn> columns = new ArrayList<>(registry.size());
 
+        for (int i = 0; i < registry.size(); i++) {
+            TableColumn column = getTableColumn(i);
+            Class<?> type = registry.getType(i);
+
+            // Fetch known column type
+            if (column.getColumnType() == null && type != null) {
+                column = new TableColumn(column.getColumnName(), type, column.isPrimaryKey(),
+                        column.getForeignTable(), column.getForeignColumn());
+            }
+            columns.add(column);
+        }
+        return columns;
     }
 
     protected void writeRow() throws IOException {
-        StringBuilder builder = new StringBuilder();
-        builder.append("INSERT INTO ");
-        writeIdentifier(builder, tableName);
-        builder.append("(");
+        TextBuffer builder = batch;
 
-        for (int i = 0; i < values.size(); i++) {
-            TableColumn column = getTableColumn(i);
+        // The column list is only written once per batch
+        if (batchRows == 0) {
+            builder.append(insertPrefix);
+        } else {
+            builder.append(",");
+        }
+        builder.append(lineBreak);
+        builder.append("  (");
 
+        for (int i = 0; i < getHeaderCount(); i++) {
             if (i > 0) {
                 builder.append(", ");
             }
-            writeIdentifier(builder, column.getColumnName());
+            if (i >= row.size()) {
+                builder.append("null");
+                continue;
+            }
+            switch (row.getKind(i)) {
+                case RowBuffer.KIND_LONG:
+                case RowBuffer.KIND_BOOLEAN:
+                case RowBuffer.KIND_EPOCH_MILLIS:
+                    // Booleans and unix epochs are stored as integers
+                    builder.append(row.getLong(i));
+                    break;
+                case RowBuffer.KIND_DOUBLE:
+                    builder.append(row.getDouble(i));
+                    break;
+                default:
+                    writeValue(builder, row.getValue(i));
+            }
         }
-        builder.append(") VALUES (");
-
-        for (int i = 0; i < values.size(); i++) {
-            Object value = values.get(i);
+        builder.append(")");
 
-            if (i > 0) {
-                builder.append(", ");
-            }
-            writeValue(builder, value);
+        if (++batchRows >= batchSize) {
+            endBatch();
         }
-        builder.append(");");
-        builder.append(lineBreak);
+    }
 
-        writer.write(builder.toString());
+    /**
+     * Terminate the current INSERT statement, if any.
+     */
+    protected void endBatch() throws IOException {
+        if (batchRows > 0) {
+            batch.append(";");
+            batch.append(lineBreak);
+            batch.writeTo(writer);
+            batch.clear();
+            batchRows = 0;
+        }
     }
 
-    private void writeValue(StringBuilder builder, Object value) {
+    private void writeValue(TextBuffer builder, Object value) {
         if (value instanceof Instant) {
             // Store as unix epoch
             builder.append(((Instant) value).toEpochMilli());
         } else if (value instanceof Date) {
             builder.append(((Date) value).getTime());
         } else if (value instanceof CharSequence) {
-            writeString(builder, (CharSequence) value);
+            SqlSyntax.appendString(builder, (CharSequence) value);
+        } else if (value instanceof Double) {
+            builder.append((double) value);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            builder.append(((Number) value).longValue());
         } else if (value instanceof Number) {
             builder.append(value.toString());
         } else if (value instanceof Boolean) {
@@ -308,35 +428,8 @@ public class SqlTableWriter extends AbstractTableWriter {
         }
     }
 
-    private void writeIdentifier(StringBuilder builder, String value) {
-        if (value.isEmpty()) {
-            return;
-        }
-        writeQuoted(builder, value, '"');
-    }
-
-    private void writeString(StringBuilder builder, CharSequence value) {
-        writeQuoted(builder, value, '\'');
-    }
-
-    private void writeQuoted(StringBuilder builder, CharSequence value, char quote) {
-        builder.append(quote);
-
-        for (int i = 0; i < value.length(); i++) {
-            char current = value.charAt(i);
-
-            // Escape quote
-            if (current == quote) {
-                builder.append(quote).append(quote);
-            } else {
-                builder.append(current);
-            }
-        }
-        builder.append(quote);
-    }
-
     @Override
     public int getDataRowCount() {
-        return dataIndex;
+        return dataIndex + 1;
     }
 }
@@ -1,8 +1,11 @@
 package com.comphenix.rema1000.io.sql;
 
+import com.comphenix.rema1000.io.DataRootWriter;
 import com.comphenix.rema1000.io.DataTableConverter;
-import com.comphenix.rema1000.io.DataWriter;
-import com.comphenix.rema1000.io.TableWriter;
+import com.comphenix.rema1000.io.DataTableConverter.TransactionSource;
+import com.comphenix.rema1000.io.TableSchema;
+import com.comphenix.rema1000.io.columnar.ColumnarTransactions;
+import com.comphenix.rema1000.io.json.DataRootReader;
 import com.comphenix.rema1000.model.DataRoot;
 import com.comphenix.rema1000.model.Transaction;
 import com.comphenix.rema1000.model.TransactionsInfo;
@@ -11,71 +14,159 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
 
-public class SqlWriter extends DataWriter<DataRoot> {
-    private DataTableConverter tableConverter = new DataTableConverter() {
-        @Override
-        protected String getHeaderName(TableWriter writer, String headerName) {
-            // Format header name
-            return headerName.replace(" ", "_").toLowerCase();
+public class SqlWriter extends DataRootWriter {
+    /**
+     * The default maximum number of rows per INSERT statement.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private final String lineBreak = System.lineSeparator();
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private boolean useTransaction;
+    private boolean append;
+
+    private DataTableConverter tableConverter = new SqlTableConverter();
+
+    /**
+     * Set the maximum number of rows to insert per INSERT statement.
+     * @param batchSize the number of rows, must be at least one.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
         }
-    };
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Retrieve the maximum number of rows to insert per INSERT statement.
+     * @return The number of rows.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set whether or not to wrap the whole script in a single transaction.
+     * @param useTransaction TRUE to use a transaction, FALSE otherwise.
+     */
+    public void setUseTransaction(boolean useTransaction) {
+        this.useTransaction = useTransaction;
+    }
+
+    /**
+     * Determine if the whole script is wrapped in a single transaction.
+     * @return TRUE if it is, FALSE otherwise.
+     */
+    public boolean isUseTransaction() {
+        return useTransaction;
+    }
+
+    /**
+     * Set whether or not the script should append rows to the tables of an existing database.
+     * <p>
+     * The tables are then only created if they do not exist, and the top list replaces any existing top list.
+     * @param append TRUE to append to an existing database, FALSE otherwise.
+     */
+    public void setAppend(boolean append) {
+        this.append = append;
+    }
+
+    /**
+     * Determine if the script appends rows to the tables of an existing database.
+     * @return TRUE if it does, FALSE otherwise.
+     */
+    public boolean isAppend() {
+        return append;
+    }
 
     @Override
     public void write(OutputStream output, DataRoot data) throws IOException {
+        TransactionsInfo transactionsInfo = data.getTransactionsInfo();
+        List<Transaction> transactionList = transactionsInfo != null ?
+                transactionsInfo.getTransactionList() : Collections.emptyList();
+
+        write(output, data, tables -> tableConverter.writeTransactions(transactionList.iterator(), tables));
+    }
+
+    @Override
+    public void write(OutputStream output, DataRoot data, ColumnarTransactions transactions) throws IOException {
+        write(output, data, tables -> tableConverter.writeTransactions(transactions, tables));
+    }
+
+    private void write(OutputStream output, DataRoot data, TransactionSource transactions) throws IOException {
         try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+            beginTransaction(writer);
 
-            try (SqlTableWriter tableWriter = new SqlTableWriter("TopList", writer)) {
-                tableWriter.putTableColumn("rank", new SqlTableWriter.TableColumn(
-                        "rank", int.class, true, null, null));
+            try (SqlTableWriter tableWriter = createTableWriter(writer, tableConverter.getTopListSchema())) {
                 tableConverter.writeTableTopList(tableWriter, data.getTopList());
             }
-            TransactionsInfo transactionsInfo = data.getTransactionsInfo();
-            List<Transaction> transactionList = transactionsInfo != null ? transactionsInfo.getTransactionList() : null;
+            writeTransactionTables(writer, transactions);
+            commitTransaction(writer);
+            writer.flush();
+        }
+    }
 
-            try (SqlTableWriter tableWriter = new SqlTableWriter("Transactions", writer)) {
-                tableWriter.putTableColumn("transaction_id", new SqlTableWriter.TableColumn(
-                        "transaction_id", String.class, true, null, null));
+    /**
+     * Write the transactions of the given reader to the output stream, one transaction at a time.
+     * <p>
+     * The insert statements of each table will be interleaved, and the top list is written last.
+     * @param output the output stream.
+     * @param reader the reader.
+     */
+    @Override
+    public void write(OutputStream output, DataRootReader reader) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+            beginTransaction(writer);
+            writeTransactionTables(writer, tables -> tableConverter.writeTransactions(reader, tables));
 
-                if (transactionList != null) {
-                    tableConverter.writeTableTransactions(tableWriter, transactionList);
-                }
-            }
-            try (SqlTableWriter tableWriter = new SqlTableWriter("Receipts", writer)) {
-                tableWriter.putTableColumn("receipt_entry_id", new SqlTableWriter.TableColumn(
-                        "receipt_entry_id", int.class, true, null, null));
-                tableWriter.putTableColumn("transaction_id", new SqlTableWriter.TableColumn(
-                        "transaction_id", String.class, false, "Transactions", "transaction_id"));
-
-                if (transactionList != null) {
-                    tableConverter.writeTableReceipts(tableWriter, transactionList);
-                }
-            }
-            try (SqlTableWriter tableWriter = new SqlTableWriter("TransactionsPayments", writer)) {
-                tableWriter.putTableColumn("transaction_id", new SqlTableWriter.TableColumn(
-                        "transaction_id", String.class, true, "Transactions", "transaction_id"));
-                tableWriter.putTableColumn("means_of_payment_desc", new SqlTableWriter.TableColumn(
-                        "means_of_payment_desc", String.class, true, null, null));
-
-                if (transactionList != null) {
-                    tableConverter.writeTableTransactionsPayments(tableWriter, transactionList);
-                }
-            }
-            try (SqlTableWriter tableWriter = new SqlTableWriter("UsedOffers", writer)) {
-                tableWriter.putTableColumn("transaction_id", new SqlTableWriter.TableColumn(
-                        "transaction_id", String.class, true, "Transactions", "transaction_id"));
-                tableWriter.putTableColumn("receipt_entry_id", new SqlTableWriter.TableColumn(
-                        "receipt_entry_id", int.class, true, null, null));
-                tableWriter.putTableColumn("offer_code", new SqlTableWriter.TableColumn(
-                        "offer_code", String.class, true, null, null));
-
-                if (transactionList != null) {
-                    tableConverter.writeTableTransactionsUsedOffers(tableWriter, transactionList);
-                }
+            try (SqlTableWriter tableWriter = createTableWriter(writer, tableConverter.getTopListSchema())) {
+                tableConverter.writeTableTopList(tableWriter, reader.getDataRoot().getTopList());
             }
+            commitTransaction(writer);
             writer.flush();
         }
     }
+
+    private void writeTransactionTables(Writer writer, TransactionSource transactions) throws IOException {
+        try (SqlTableWriter transactionsWriter = createTableWriter(writer, tableConverter.getTransactionsSchema());
+             SqlTableWriter receiptsWriter = createTableWriter(writer, tableConverter.getReceiptsSchema());
+             SqlTableWriter paymentsWriter = createTableWriter(writer, tableConverter.getPaymentsSchema());
+             SqlTableWriter usedOffersWriter = createTableWriter(writer, tableConverter.getUsedOffersSchema())) {
+
+            // Visit each transaction once
+            transactions.writeTransactions(
+                    tableConverter.createTableTransactions(transactionsWriter),
+                    tableConverter.createTableReceipts(receiptsWriter),
+                    tableConverter.createTableTransactionsPayments(paymentsWriter),
+                    tableConverter.createTableTransactionsUsedOffers(usedOffersWriter));
+        }
+    }
+
+    private void beginTransaction(Writer writer) throws IOException {
+        if (useTransaction) {
+            writer.write("BEGIN TRANSACTION;");
+            writer.write(lineBreak);
+        }
+    }
+
+    private void commitTransaction(Writer writer) throws IOException {
+        if (useTransaction) {
+            writer.write("COMMIT;");
+            writer.write(lineBreak);
+        }
+    }
+
+    private SqlTableWriter createTableWriter(Writer writer, TableSchema schema) {
+        return new SqlTableWriter(schema.getName(), writer).
+                setBatchSize(batchSize).
+                setCreateIfNotExists(append).
+                setDeleteExistingRows(append && schema == tableConverter.getTopListSchema());
+    }
 }
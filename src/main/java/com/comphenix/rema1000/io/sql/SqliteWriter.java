@@ -0,0 +1,208 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.sql;
+
+import com.comphenix.rema1000.io.DataRootWriter;
+import com.comphenix.rema1000.io.DataTableConverter;
+import com.comphenix.rema1000.io.DataTableConverter.TransactionSource;
+import com.comphenix.rema1000.io.TableSchema;
+import com.comphenix.rema1000.io.columnar.ColumnarTransactions;
+import com.comphenix.rema1000.io.json.DataRootReader;
+import com.comphenix.rema1000.model.DataRoot;
+import com.comphenix.rema1000.model.Transaction;
+import com.comphenix.rema1000.model.TransactionsInfo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes directly to a SQLite database file, without going through a SQL script.
+ */
+public class SqliteWriter extends DataRootWriter {
+    /**
+     * The default maximum number of rows per JDBC batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private DataTableConverter tableConverter = new SqlTableConverter();
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private boolean append;
+
+    /**
+     * Set the maximum number of rows to send to the database at once.
+     * @param batchSize the number of rows, must be at least one.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Retrieve the maximum number of rows to send to the database at once.
+     * @return The number of rows.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set whether or not to append rows to the tables of an existing database file, instead of replacing it.
+     * <p>
+     * The tables are then only created if they do not exist, and the top list replaces any existing top list.
+     * @param append TRUE to append to an existing database, FALSE otherwise.
+     */
+    public void setAppend(boolean append) {
+        this.append = append;
+    }
+
+    /**
+     * Determine if rows are appended to the tables of an existing database file.
+     * @return TRUE if they are, FALSE otherwise.
+     */
+    public boolean isAppend() {
+        return append;
+    }
+
+    @Override
+    public void write(OutputStream output, DataRoot data) throws IOException {
+        // SQLite can only write to a file
+        Path file = Files.createTempFile("RemaTransactionParser", ".sqlite");
+
+        try {
+            write(file, data);
+            Files.copy(file, output);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Override
+    public void write(OutputStream output, DataRootReader reader) throws IOException {
+        Path file = Files.createTempFile("RemaTransactionParser", ".sqlite");
+
+        try {
+            write(file, reader);
+            Files.copy(file, output);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Override
+    public void write(OutputStream output, DataRoot data, ColumnarTransactions transactions) throws IOException {
+        Path file = Files.createTempFile("RemaTransactionParser", ".sqlite");
+
+        try {
+            write(file, data, transactions);
+            Files.copy(file, output);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Override
+    public void write(Path file, DataRoot data) throws IOException {
+        TransactionsInfo transactionsInfo = data.getTransactionsInfo();
+        List<Transaction> transactionList = transactionsInfo != null ?
+                transactionsInfo.getTransactionList() : Collections.emptyList();
+
+        write(file, data, tables -> tableConverter.writeTransactions(transactionList.iterator(), tables));
+    }
+
+    @Override
+    public void write(Path file, DataRoot data, ColumnarTransactions transactions) throws IOException {
+        write(file, data, tables -> tableConverter.writeTransactions(transactions, tables));
+    }
+
+    private void write(Path file, DataRoot data, TransactionSource transactions) throws IOException {
+        try (Connection connection = openDatabase(file)) {
+            try (JdbcTableWriter tableWriter = createTableWriter(connection, tableConverter.getTopListSchema())) {
+                tableConverter.writeTableTopList(tableWriter, data.getTopList());
+            }
+            writeTransactionTables(connection, transactions);
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IOException("Unable to write to SQLite database " + file, e);
+        }
+    }
+
+    @Override
+    public void write(Path file, DataRootReader reader) throws IOException {
+        try (Connection connection = openDatabase(file)) {
+            writeTransactionTables(connection, tables -> tableConverter.writeTransactions(reader, tables));
+
+            try (JdbcTableWriter tableWriter = createTableWriter(connection, tableConverter.getTopListSchema())) {
+                tableConverter.writeTableTopList(tableWriter, reader.getDataRoot().getTopList());
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IOException("Unable to write to SQLite database " + file, e);
+        }
+    }
+
+    private Connection openDatabase(Path file) throws IOException, SQLException {
+        // Start with an empty database, unless appending
+        if (!append) {
+            Files.deleteIfExists(file);
+        }
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.toAbsolutePath());
+
+        // The database is recreated on every conversion, so durability is not needed
+        if (!append) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode = MEMORY");
+                statement.execute("PRAGMA synchronous = OFF");
+            }
+        }
+        // Every table is written in a single transaction
+        connection.setAutoCommit(false);
+        return connection;
+    }
+
+    private void writeTransactionTables(Connection connection, TransactionSource transactions) throws IOException {
+        try (JdbcTableWriter transactionsWriter = createTableWriter(connection, tableConverter.getTransactionsSchema());
+             JdbcTableWriter receiptsWriter = createTableWriter(connection, tableConverter.getReceiptsSchema());
+             JdbcTableWriter paymentsWriter = createTableWriter(connection, tableConverter.getPaymentsSchema());
+             JdbcTableWriter usedOffersWriter = createTableWriter(connection, tableConverter.getUsedOffersSchema())) {
+
+            // Visit each transaction once
+            transactions.writeTransactions(
+                    tableConverter.createTableTransactions(transactionsWriter),
+                    tableConverter.createTableReceipts(receiptsWriter),
+                    tableConverter.createTableTransactionsPayments(paymentsWriter),
+                    tableConverter.createTableTransactionsUsedOffers(usedOffersWriter));
+        }
+    }
+
+    private JdbcTableWriter createTableWriter(Connection connection, TableSchema schema) {
+        return new JdbcTableWriter(schema.getName(), connection).
+                setBatchSize(batchSize).
+                setCreateIfNotExists(append).
+                setDeleteExistingRows(append && schema == tableConverter.getTopListSchema());
+    }
+}
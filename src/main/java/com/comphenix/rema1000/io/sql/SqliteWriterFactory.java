@@ -0,0 +1,55 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.sql;
+
+import com.comphenix.rema1000.io.DataRootWriter;
+import com.comphenix.rema1000.io.DataWriterFactory;
+import com.comphenix.rema1000.io.DataWriterOptions;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SQLite databases, written through JDBC.
+ */
+public class SqliteWriterFactory implements DataWriterFactory {
+    @Override
+    public String getFormatName() {
+        return "SQLITE";
+    }
+
+    @Override
+    public List<String> getExtensions() {
+        return Arrays.asList("sqlite", "db", "sqlite3");
+    }
+
+    @Override
+    public boolean isAppendSupported() {
+        return true;
+    }
+
+    @Override
+    public DataRootWriter createWriter(DataWriterOptions options) {
+        SqliteWriter writer = new SqliteWriter();
+
+        if (options.getBatchSize() != null) {
+            writer.setBatchSize(options.getBatchSize());
+        }
+        writer.setAppend(options.isAppend());
+        return writer;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.xls;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A growable little endian buffer of BIFF8 records.
+ */
+final class BiffBuffer {
+    /**
+     * The maximum number of bytes in the data of a single record.
+     */
+    static final int MAX_RECORD_DATA = 8224;
+
+    private ByteBuffer buffer;
+
+    BiffBuffer(int capacity) {
+        this.buffer = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Start a new record with the given type and data length, which must be written in full before the next record.
+     * @param type the record type.
+     * @param length the number of bytes of data.
+     * @return This buffer, for chaining.
+     */
+    BiffBuffer record(int type, int length) {
+        if (length > MAX_RECORD_DATA) {
+            throw new IllegalArgumentException("Record " + type + " is too large: " + length + " bytes");
+        }
+        ensureRemaining(4 + length);
+        buffer.putShort((short) type);
+        buffer.putShort((short) length);
+        return this;
+    }
+
+    BiffBuffer put8(int value) {
+        ensureRemaining(1);
+        buffer.put((byte) value);
+        return this;
+    }
+
+    BiffBuffer put16(int value) {
+        ensureRemaining(2);
+        buffer.putShort((short) value);
+        return this;
+    }
+
+    BiffBuffer put32(long value) {
+        ensureRemaining(4);
+        buffer.putInt((int) value);
+        return this;
+    }
+
+    BiffBuffer putDouble(double value) {
+        ensureRemaining(8);
+        buffer.putDouble(value);
+        return this;
+    }
+
+    BiffBuffer putZeros(int count) {
+        ensureRemaining(count);
+
+        for (int i = 0; i < count; i++) {
+            buffer.put((byte) 0);
+        }
+        return this;
+    }
+
+    /**
+     * Write a string with a 16-bit character count (XLUnicodeString).
+     * @param text the text.
+     * @return This buffer, for chaining.
+     */
+    BiffBuffer putString16(String text) {
+        put16(text.length());
+        return putCharacters(text);
+    }
+
+    /**
+     * Write a string with an 8-bit character count (ShortXLUnicodeString).
+     * @param text the text, with at most 255 characters.
+     * @return This buffer, for chaining.
+     */
+    BiffBuffer putString8(String text) {
+        put8(text.length());
+        return putCharacters(text);
+    }
+
+    private BiffBuffer putCharacters(String text) {
+        boolean compressed = isCompressible(text);
+        put8(compressed ? 0 : 1);
+        ensureRemaining(text.length() * (compressed ? 1 : 2));
+
+        for (int i = 0; i < text.length(); i++) {
+            if (compressed) {
+                buffer.put((byte) text.charAt(i));
+            } else {
+                buffer.putChar(text.charAt(i));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Retrieve the number of bytes of a string written by {@link #putString16(String)}.
+     * @param text the text.
+     * @return The number of bytes.
+     */
+    static int getString16Length(String text) {
+        return 3 + text.length() * (isCompressible(text) ? 1 : 2);
+    }
+
+    /**
+     * Retrieve the number of bytes of a string written by {@link #putString8(String)}.
+     * @param text the text.
+     * @return The number of bytes.
+     */
+    static int getString8Length(String text) {
+        return 2 + text.length() * (isCompressible(text) ? 1 : 2);
+    }
+
+    /**
+     * Determine if every character of the given text can be stored in a single byte (Latin-1).
+     * @param text the text.
+     * @return TRUE if it can, FALSE otherwise.
+     */
+    private static boolean isCompressible(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Overwrite a 32-bit value at the given position.
+     * @param position the position.
+     * @param value the value.
+     */
+    void set32(int position, long value) {
+        buffer.putInt(position, (int) value);
+    }
+
+    int position() {
+        return buffer.position();
+    }
+
+    int remaining() {
+        return buffer.remaining();
+    }
+
+    /**
+     * Prepare the buffer for reading the written bytes.
+     * @return The underlying buffer.
+     */
+    ByteBuffer flip() {
+        buffer.flip();
+        return buffer;
+    }
+
+    void clear() {
+        buffer.clear();
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private void ensureRemaining(int count) {
+        if (buffer.remaining() < count) {
+            ByteBuffer expanded = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + count)).
+                    order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+            expanded.put(buffer);
+            buffer = expanded;
+        }
+    }
+}
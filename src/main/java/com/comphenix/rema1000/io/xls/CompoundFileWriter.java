@@ -0,0 +1,231 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.xls;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a compound file (version 3, with 512 byte sectors) with a single stream in the root storage.
+ * <p>
+ * The layout is computed from the stream size in advance, so the file is written sequentially: the header, the
+ * stream, the directory, and the sector allocation tables.
+ */
+final class CompoundFileWriter {
+    @FunctionalInterface
+    interface StreamContent {
+        /**
+         * Write the content of the stream to the given output.
+         * @param output the output.
+         */
+        void writeTo(OutputStream output) throws IOException;
+    }
+
+    private static final int SECTOR_SIZE = 512;
+    private static final int ENTRIES_PER_SECTOR = SECTOR_SIZE / 4;
+    // Number of FAT sectors listed in the header, and in each DIFAT sector
+    private static final int HEADER_DIFAT_ENTRIES = 109;
+    private static final int DIFAT_ENTRIES_PER_SECTOR = ENTRIES_PER_SECTOR - 1;
+
+    // Smaller streams are stored in the mini stream
+    private static final int MINI_STREAM_CUTOFF = 4096;
+    private static final long MAX_STREAM_SIZE = Integer.MAX_VALUE;
+
+    private static final int DIFSECT = 0xFFFFFFFC;
+    private static final int FATSECT = 0xFFFFFFFD;
+    private static final int ENDOFCHAIN = 0xFFFFFFFE;
+    private static final int FREESECT = 0xFFFFFFFF;
+    private static final int NOSTREAM = 0xFFFFFFFF;
+
+    private CompoundFileWriter() {
+        // Static methods only
+    }
+
+    /**
+     * Write a compound file with a single stream to the given output.
+     * <p>
+     * Streams smaller than 4096 bytes are padded with zeros, so that the mini stream is never needed.
+     * @param output the output.
+     * @param streamName the name of the stream.
+     * @param streamSize the exact number of bytes written by the content.
+     * @param content the content of the stream.
+     */
+    static void write(OutputStream output, String streamName, long streamSize, StreamContent content) throws IOException {
+        long paddedSize = Math.max(streamSize, MINI_STREAM_CUTOFF);
+
+        if (paddedSize > MAX_STREAM_SIZE) {
+            throw new IOException("Stream " + streamName + " is too large for a compound file: " + streamSize + " bytes");
+        }
+        int streamSectors = (int) ((paddedSize + SECTOR_SIZE - 1) / SECTOR_SIZE);
+        int fatSectors = 0;
+        int difatSectors = 0;
+
+        // The allocation tables must also allocate their own sectors
+        while (true) {
+            int totalSectors = streamSectors + 1 + fatSectors + difatSectors;
+            int requiredFat = (totalSectors + ENTRIES_PER_SECTOR - 1) / ENTRIES_PER_SECTOR;
+            int requiredDifat = requiredFat > HEADER_DIFAT_ENTRIES ?
+                    (requiredFat - HEADER_DIFAT_ENTRIES + DIFAT_ENTRIES_PER_SECTOR - 1) / DIFAT_ENTRIES_PER_SECTOR : 0;
+
+            if (requiredFat == fatSectors && requiredDifat == difatSectors) {
+                break;
+            }
+            fatSectors = requiredFat;
+            difatSectors = requiredDifat;
+        }
+        int directorySector = streamSectors;
+        int firstFatSector = directorySector + 1;
+        int firstDifatSector = firstFatSector + fatSectors;
+
+        ByteBuffer sector = ByteBuffer.allocate(SECTOR_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        writeHeader(output, sector, fatSectors, directorySector, firstFatSector,
+                difatSectors > 0 ? firstDifatSector : ENDOFCHAIN, difatSectors);
+
+        // The stream itself
+        CountingOutputStream counter = new CountingOutputStream(output);
+        content.writeTo(counter);
+
+        if (counter.count != streamSize) {
+            throw new IllegalStateException("Expected " + streamSize + " bytes in " + streamName + ", but got " + counter.count);
+        }
+        output.write(new byte[(int) ((long) streamSectors * SECTOR_SIZE - streamSize)]);
+
+        writeDirectory(output, sector, streamName, paddedSize);
+
+        // Allocation of every sector
+        int sectorIndex = 0;
+
+        for (int i = 0; i < fatSectors; i++) {
+            sector.clear();
+
+            for (int j = 0; j < ENTRIES_PER_SECTOR; j++, sectorIndex++) {
+                if (sectorIndex < streamSectors - 1) {
+                    sector.putInt(sectorIndex + 1);
+                } else if (sectorIndex == streamSectors - 1 || sectorIndex == directorySector) {
+                    sector.putInt(ENDOFCHAIN);
+                } else if (sectorIndex < firstDifatSector) {
+                    sector.putInt(FATSECT);
+                } else if (sectorIndex < firstDifatSector + difatSectors) {
+                    sector.putInt(DIFSECT);
+                } else {
+                    sector.putInt(FREESECT);
+                }
+            }
+            output.write(sector.array());
+        }
+
+        // Locations of the FAT sectors not listed in the header
+        int fatIndex = HEADER_DIFAT_ENTRIES;
+
+        for (int i = 0; i < difatSectors; i++) {
+            sector.clear();
+
+            for (int j = 0; j < DIFAT_ENTRIES_PER_SECTOR; j++, fatIndex++) {
+                sector.putInt(fatIndex < fatSectors ? firstFatSector + fatIndex : FREESECT);
+            }
+            sector.putInt(i < difatSectors - 1 ? firstDifatSector + i + 1 : ENDOFCHAIN);
+            output.write(sector.array());
+        }
+    }
+
+    private static void writeHeader(OutputStream output, ByteBuffer sector, int fatSectors, int directorySector,
+                                    int firstFatSector, int firstDifatSector, int difatSectors) throws IOException {
+        sector.clear();
+        sector.putLong(0xE11AB1A1E011CFD0L); // Signature
+        sector.put(new byte[16]);             // CLSID
+        sector.putShort((short) 0x003E);      // Minor version
+        sector.putShort((short) 0x0003);      // Major version
+        sector.putShort((short) 0xFFFE);      // Byte order
+        sector.putShort((short) 9);           // Sector shift
+        sector.putShort((short) 6);           // Mini sector shift
+        sector.put(new byte[6]);
+        sector.putInt(0);                     // Directory sectors (always 0 in version 3)
+        sector.putInt(fatSectors);
+        sector.putInt(directorySector);
+        sector.putInt(0);                     // Transaction signature
+        sector.putInt(MINI_STREAM_CUTOFF);
+        sector.putInt(ENDOFCHAIN);            // First mini FAT sector
+        sector.putInt(0);                     // Mini FAT sectors
+        sector.putInt(firstDifatSector);
+        sector.putInt(difatSectors);
+
+        for (int i = 0; i < HEADER_DIFAT_ENTRIES; i++) {
+            sector.putInt(i < fatSectors ? firstFatSector + i : FREESECT);
+        }
+        output.write(sector.array());
+    }
+
+    private static void writeDirectory(OutputStream output, ByteBuffer sector, String streamName, long streamSize)
+            throws IOException {
+        sector.clear();
+        putDirectoryEntry(sector, "Root Entry", 5, 1, ENDOFCHAIN, 0);
+        putDirectoryEntry(sector, streamName, 2, NOSTREAM, 0, streamSize);
+        putDirectoryEntry(sector, "", 0, NOSTREAM, 0, 0);
+        putDirectoryEntry(sector, "", 0, NOSTREAM, 0, 0);
+        output.write(sector.array());
+    }
+
+    private static void putDirectoryEntry(ByteBuffer sector, String name, int type, int child, int startSector,
+                                          long size) {
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_16LE);
+
+        if (encoded.length > 62) {
+            throw new IllegalArgumentException("Name is too long: " + name);
+        }
+        sector.put(encoded);
+        sector.put(new byte[64 - encoded.length]);
+        sector.putShort((short) (name.isEmpty() ? 0 : encoded.length + 2));
+        sector.put((byte) type);
+        sector.put((byte) (type != 0 ? 1 : 0)); // Black
+        sector.putInt(NOSTREAM);                // Left sibling
+        sector.putInt(NOSTREAM);                // Right sibling
+        sector.putInt(child);
+        sector.put(new byte[16 + 4 + 8 + 8]);   // CLSID, state and timestamps
+        sector.putInt(startSector);
+        sector.putLong(size);
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream output) {
+            super(output);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // The compound file is not finished
+            flush();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.xls;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One or more consecutive worksheet substreams, written to a temporary file until the workbook is finished.
+ * <p>
+ * Cells must be written one row at a time, in ascending row order.
+ */
+final class XlsSheetStream implements Closeable {
+    /**
+     * The maximum number of rows in a worksheet.
+     */
+    static final int MAX_ROWS = 65536;
+
+    /**
+     * The maximum number of columns in a worksheet.
+     */
+    static final int MAX_COLUMNS = 256;
+
+    // Excel limit of sheet names
+    private static final int MAX_NAME_LENGTH = 31;
+
+    // Flush the buffer before it could overflow with the next record
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int FLUSH_THRESHOLD = 4096;
+
+    /**
+     * A finished worksheet substream in the temporary file.
+     */
+    static final class Sheet {
+        private final String name;
+        private final long start;
+        private final long length;
+
+        Sheet(String name, long start, long length) {
+            this.name = name;
+            this.start = start;
+            this.length = length;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        long getLength() {
+            return length;
+        }
+    }
+
+    private final String baseName;
+    private final boolean firstInWorkbook;
+    private final FileChannel channel;
+    private final BiffBuffer buffer = new BiffBuffer(BUFFER_SIZE);
+
+    private final List<Sheet> sheets = new ArrayList<>();
+
+    // Bytes written to the temporary file
+    private long filePosition;
+
+    // The current sheet, if started
+    private long sheetStart = -1;
+    private long dimensionsPosition;
+    private int lastRow = -1;
+    private int lastColumn = -1;
+
+    XlsSheetStream(String baseName, boolean firstInWorkbook, Path file) throws IOException {
+        this.baseName = baseName;
+        this.firstInWorkbook = firstInWorkbook;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    /**
+     * Start a new worksheet, named after the base name and the number of worksheets before it.
+     */
+    void startSheet() throws IOException {
+        if (isSheetStarted()) {
+            throw new IllegalStateException("The current sheet must be ended first");
+        }
+        sheetStart = filePosition + buffer.position();
+        lastRow = -1;
+        lastColumn = -1;
+
+        buffer.record(0x0809, 16).  // BOF
+                put16(0x0600).          // BIFF8
+                put16(0x0010).          // Worksheet
+                put16(0x0DBB).
+                put16(0x07CC).
+                put32(0x00000000).
+                put32(0x00000006);
+
+        // Rewritten when the sheet is ended
+        dimensionsPosition = filePosition + buffer.position();
+        buffer.record(0x0200, 14).
+                putZeros(14);
+    }
+
+    boolean isSheetStarted() {
+        return sheetStart >= 0;
+    }
+
+    /**
+     * Write a text cell, truncated to 255 characters.
+     * @param row the row.
+     * @param column the column.
+     * @param text the text.
+     * @param xf the index of the cell format.
+     */
+    void writeLabel(int row, int column, String text, int xf) throws IOException {
+        String value = text.length() > 255 ? text.substring(0, 255) : text;
+
+        prepareCell(row, column);
+        buffer.record(0x0204, 6 + BiffBuffer.getString16Length(value)).
+                put16(row).
+                put16(column).
+                put16(xf).
+                putString16(value);
+        flushIfFull();
+    }
+
+    /**
+     * Write a numeric cell.
+     * @param row the row.
+     * @param column the column.
+     * @param value the value.
+     * @param xf the index of the cell format.
+     */
+    void writeNumber(int row, int column, double value, int xf) throws IOException {
+        prepareCell(row, column);
+        buffer.record(0x0203, 14).
+                put16(row).
+                put16(column).
+                put16(xf).
+                putDouble(value);
+        flushIfFull();
+    }
+
+    private void prepareCell(int row, int column) {
+        if (!isSheetStarted()) {
+            throw new IllegalStateException("Must start a sheet first");
+        }
+        if (row < 0 || row >= MAX_ROWS) {
+            throw new IllegalArgumentException("Row " + row + " is out of range");
+        }
+        if (column < 0 || column >= MAX_COLUMNS) {
+            throw new IllegalArgumentException("Column " + column + " is out of range");
+        }
+        lastRow = Math.max(lastRow, row);
+        lastColumn = Math.max(lastColumn, column);
+    }
+
+    /**
+     * End the current worksheet.
+     */
+    void endSheet() throws IOException {
+        if (!isSheetStarted()) {
+            throw new IllegalStateException("No sheet has been started");
+        }
+        // Only the first sheet of the workbook is selected
+        boolean selected = firstInWorkbook && sheets.isEmpty();
+
+        buffer.record(0x023E, 18).  // WINDOW2
+                put16(selected ? 0x06B6 : 0x00B6).
+                put16(0).
+                put16(0).
+                put16(0x0040).
+                put16(0).
+                put16(0).
+                put16(0).
+                put16(0).
+                put16(0);
+        buffer.record(0x000A, 0);   // EOF
+        flush();
+
+        // The range of used cells
+        ByteBuffer dimensions = ByteBuffer.allocate(14).order(ByteOrder.LITTLE_ENDIAN);
+        dimensions.putInt(0);
+        dimensions.putInt(lastRow + 1);
+        dimensions.putShort((short) 0);
+        dimensions.putShort((short) (lastColumn + 1));
+        dimensions.putShort((short) 0);
+        dimensions.flip();
+
+        while (dimensions.hasRemaining()) {
+            channel.write(dimensions, dimensionsPosition + 4 + dimensions.position());
+        }
+        sheets.add(new Sheet(getSheetName(sheets.size()), sheetStart, filePosition - sheetStart));
+        sheetStart = -1;
+    }
+
+    private String getSheetName(int index) {
+        String suffix = index > 0 ? " (" + (index + 1) + ")" : "";
+        String name = baseName.length() + suffix.length() > MAX_NAME_LENGTH ?
+                baseName.substring(0, MAX_NAME_LENGTH - suffix.length()) : baseName;
+        return name + suffix;
+    }
+
+    /**
+     * Retrieve every finished worksheet.
+     * @return The worksheets.
+     */
+    List<Sheet> getSheets() {
+        return sheets;
+    }
+
+    /**
+     * Copy every finished worksheet to the given output, in order.
+     * @param output the output.
+     */
+    void copyTo(OutputStream output) throws IOException {
+        ByteBuffer copy = ByteBuffer.allocate(BUFFER_SIZE);
+        long position = 0;
+
+        while (position < filePosition) {
+            copy.clear();
+            copy.limit((int) Math.min(copy.capacity(), filePosition - position));
+            int read = channel.read(copy, position);
+
+            if (read < 0) {
+                throw new IOException("Unexpected end of temporary sheet file");
+            }
+            output.write(copy.array(), 0, read);
+            position += read;
+        }
+    }
+
+    private void flushIfFull() throws IOException {
+        if (buffer.remaining() < FLUSH_THRESHOLD) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        ByteBuffer data = buffer.flip();
+
+        while (data.hasRemaining()) {
+            filePosition += channel.write(data, filePosition);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
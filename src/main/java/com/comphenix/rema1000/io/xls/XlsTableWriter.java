@@ -0,0 +1,148 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.xls;
+
+import com.comphenix.rema1000.io.AbstractTableWriter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Objects;
+import java.util.TimeZone;
+
+/**
+ * Writes a table to one or more worksheets of an Excel 97-2003 workbook.
+ * <p>
+ * Rows beyond the limit of a worksheet continue in a new worksheet with the same header row, named after the table
+ * and the number of the worksheet, such as "Receipt Entries (2)".
+ */
+public class XlsTableWriter extends AbstractTableWriter {
+    // Days between 1900-01-00 (with the leap year bug of Excel) and the unix epoch
+    private static final double EPOCH_SERIAL = 25569;
+    private static final double MILLIS_PER_DAY = 24 * 60 * 60 * 1000;
+
+    private final XlsSheetStream sheets;
+    private final TimeZone timeZone = TimeZone.getDefault();
+
+    // Index of the current row in the current worksheet (initially -1)
+    private int sheetRow = -1;
+    // Index of the current row (initially -1)
+    private int dataIndex = -1;
+
+    public XlsTableWriter(XlsWorkbook workbook, String name) throws IOException {
+        Objects.requireNonNull(workbook, "workbook cannot be NULL");
+        this.sheets = workbook.createSheets(Objects.requireNonNull(name, "name cannot be NULL"));
+    }
+
+    @Override
+    protected void onHeaderCreated(String headerName, int headerIndex) {
+        if (headerIndex >= XlsSheetStream.MAX_COLUMNS) {
+            throw new IllegalArgumentException("Cannot create more than " + XlsSheetStream.MAX_COLUMNS + " columns");
+        }
+    }
+
+    @Override
+    public void incrementRow() throws IOException {
+        if (!sheets.isSheetStarted() || sheetRow + 1 >= XlsSheetStream.MAX_ROWS) {
+            startSheet();
+        }
+        sheetRow++;
+        dataIndex++;
+    }
+
+    private void startSheet() throws IOException {
+        if (sheets.isSheetStarted()) {
+            sheets.endSheet();
+        }
+        getColumnRegistry().freeze();
+        sheets.startSheet();
+
+        for (int i = 0; i < getHeaderCount(); i++) {
+            sheets.writeLabel(0, i, getHeaderName(i), XlsWorkbook.XF_HEADER);
+        }
+        sheetRow = 0;
+    }
+
+    @Override
+    public int getDataRowCount() {
+        return dataIndex + 1;
+    }
+
+    @Override
+    protected void onWriteValue(int headerIndex, Object value, Class<?> type) throws IOException {
+        checkRow();
+
+        if (value instanceof Instant) {
+            writeDate(headerIndex, ((Instant) value).toEpochMilli());
+        } else if (value instanceof Date) {
+            writeDate(headerIndex, ((Date) value).getTime());
+        } else if (value instanceof Number) {
+            sheets.writeNumber(sheetRow, headerIndex, ((Number) value).doubleValue(), XlsWorkbook.XF_DEFAULT);
+        } else if (value instanceof Boolean) {
+            onWriteBoolean(headerIndex, (Boolean) value);
+        } else if (value != null) {
+            sheets.writeLabel(sheetRow, headerIndex, value.toString(), XlsWorkbook.XF_DEFAULT);
+        }
+    }
+
+    @Override
+    protected void onWriteLong(int headerIndex, long value) throws IOException {
+        checkRow();
+        sheets.writeNumber(sheetRow, headerIndex, value, XlsWorkbook.XF_DEFAULT);
+    }
+
+    @Override
+    protected void onWriteDouble(int headerIndex, double value) throws IOException {
+        checkRow();
+        sheets.writeNumber(sheetRow, headerIndex, value, XlsWorkbook.XF_DEFAULT);
+    }
+
+    @Override
+    protected void onWriteBoolean(int headerIndex, boolean value) throws IOException {
+        checkRow();
+        sheets.writeLabel(sheetRow, headerIndex, value ? "True" : "False", XlsWorkbook.XF_DEFAULT);
+    }
+
+    @Override
+    protected void onWriteEpochMillis(int headerIndex, long epochMillis) throws IOException {
+        checkRow();
+        writeDate(headerIndex, epochMillis);
+    }
+
+    private void writeDate(int headerIndex, long epochMillis) throws IOException {
+        // Dates are shown in local time, as in XLSX
+        long localMillis = epochMillis + timeZone.getOffset(epochMillis);
+        sheets.writeNumber(sheetRow, headerIndex, localMillis / MILLIS_PER_DAY + EPOCH_SERIAL, XlsWorkbook.XF_DATE);
+    }
+
+    private void checkRow() {
+        if (dataIndex < 0) {
+            throw new IllegalStateException("Must call incrementRow() first");
+        }
+    }
+
+    @Override
+    protected void onClosed() throws IOException {
+        // An empty table still has a header row
+        if (!sheets.isSheetStarted() && sheets.getSheets().isEmpty()) {
+            startSheet();
+        }
+        if (sheets.isSheetStarted()) {
+            sheets.endSheet();
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.xls;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An Excel 97-2003 workbook (BIFF8), where each worksheet is streamed to a temporary file until the workbook is finished.
+ */
+public class XlsWorkbook implements Closeable {
+    /**
+     * The index of the cell format of ordinary cells.
+     */
+    static final int XF_DEFAULT = 15;
+
+    /**
+     * The index of the cell format of header cells (bold).
+     */
+    static final int XF_HEADER = 16;
+
+    /**
+     * The index of the cell format of dates.
+     */
+    static final int XF_DATE = 17;
+
+    // Custom number format of dates
+    private static final int DATE_FORMAT_ID = 164;
+    private static final String DATE_FORMAT = "yyyy-mm-dd hh:mm:ss";
+
+    private final List<XlsSheetStream> sheetStreams = new ArrayList<>();
+    private boolean finished;
+
+    /**
+     * Create the worksheets of a table, in order. The table is split into more worksheets if it exceeds the number
+     * of rows of a single worksheet.
+     * @param name the name of the first worksheet.
+     * @return The worksheets.
+     * @throws IOException If the temporary file could not be created.
+     */
+    XlsSheetStream createSheets(String name) throws IOException {
+        Objects.requireNonNull(name, "name cannot be NULL");
+
+        if (finished) {
+            throw new IllegalStateException("Workbook has been finished");
+        }
+        XlsSheetStream stream = new XlsSheetStream(name, sheetStreams.isEmpty(),
+                Files.createTempFile("rema-xls", ".tmp"));
+        sheetStreams.add(stream);
+        return stream;
+    }
+
+    /**
+     * Write the workbook to the given output stream, after every worksheet has been written.
+     * <p>
+     * Worksheets that were never started will be written as empty worksheets.
+     * @param output the output stream, which is not closed.
+     * @throws IOException If an I/O error occurred.
+     */
+    public void finish(OutputStream output) throws IOException {
+        if (finished) {
+            throw new IllegalStateException("Workbook has already been finished");
+        }
+        finished = true;
+
+        for (XlsSheetStream stream : sheetStreams) {
+            if (stream.isSheetStarted()) {
+                stream.endSheet();
+            } else if (stream.getSheets().isEmpty()) {
+                stream.startSheet();
+                stream.endSheet();
+            }
+        }
+        // The size of the globals is independent of the worksheet offsets
+        int globalsSize = createGlobals(0).length;
+        byte[] globals = createGlobals(globalsSize);
+        long streamSize = globals.length;
+
+        for (XlsSheetStream stream : sheetStreams) {
+            for (XlsSheetStream.Sheet sheet : stream.getSheets()) {
+                streamSize += sheet.getLength();
+            }
+        }
+        BufferedOutputStream buffered = new BufferedOutputStream(output, 64 * 1024);
+
+        CompoundFileWriter.write(buffered, "Workbook", streamSize, out -> {
+            out.write(globals);
+
+            for (XlsSheetStream stream : sheetStreams) {
+                stream.copyTo(out);
+            }
+        });
+        buffered.flush();
+    }
+
+    /**
+     * Create the workbook globals substream.
+     * @param sheetOffset the offset of the first worksheet in the workbook stream.
+     * @return The globals substream.
+     */
+    private byte[] createGlobals(long sheetOffset) {
+        BiffBuffer buffer = new BiffBuffer(4096);
+
+        buffer.record(0x0809, 16).  // BOF
+                put16(0x0600).          // BIFF8
+                put16(0x0005).          // Workbook globals
+                put16(0x0DBB).
+                put16(0x07CC).
+                put32(0x00000000).
+                put32(0x00000006);
+        buffer.record(0x0042, 2).   // CODEPAGE
+                put16(1200);            // UTF-16
+        buffer.record(0x003D, 18).  // WINDOW1
+                put16(0x01E0).
+                put16(0x005A).
+                put16(0x3FCF).
+                put16(0x2A4E).
+                put16(0x0038).
+                put16(0).
+                put16(0).
+                put16(1).
+                put16(0x0258);
+        buffer.record(0x0022, 2).   // DATEMODE (1900)
+                put16(0);
+
+        // Font 4 is skipped by Excel, so the bold font is index 5
+        for (int i = 0; i < 5; i++) {
+            writeFont(buffer, i == 4 ? 700 : 400);
+        }
+        buffer.record(0x041E, 2 + BiffBuffer.getString16Length(DATE_FORMAT)).
+                put16(DATE_FORMAT_ID).
+                putString16(DATE_FORMAT);
+
+        // The 15 mandatory style formats
+        for (int i = 0; i < XF_DEFAULT; i++) {
+            writeFormat(buffer, 0, 0, true);
+        }
+        writeFormat(buffer, 0, 0, false);
+        writeFormat(buffer, 5, 0, false);
+        writeFormat(buffer, 0, DATE_FORMAT_ID, false);
+
+        buffer.record(0x0293, 4).   // STYLE (Normal)
+                put16(0x8000).
+                put8(0).
+                put8(0xFF);
+
+        long offset = sheetOffset;
+
+        for (XlsSheetStream stream : sheetStreams) {
+            for (XlsSheetStream.Sheet sheet : stream.getSheets()) {
+                buffer.record(0x0085, 6 + BiffBuffer.getString8Length(sheet.getName())).  // BOUNDSHEET
+                        put32(offset).
+                        put8(0).            // Visible
+                        put8(0).            // Worksheet
+                        putString8(sheet.getName());
+                offset += sheet.getLength();
+            }
+        }
+        buffer.record(0x000A, 0);   // EOF
+        return buffer.toByteArray();
+    }
+
+    private static void writeFont(BiffBuffer buffer, int weight) {
+        String name = "Arial";
+
+        buffer.record(0x0031, 14 + BiffBuffer.getString8Length(name)).
+                put16(200).             // Height in 1/20th of a point
+                put16(0).
+                put16(0x7FFF).          // Default color
+                put16(weight).
+                put16(0).
+                put8(0).
+                put8(0).
+                put8(0).
+                put8(0).
+                putString8(name);
+    }
+
+    private static void writeFormat(BiffBuffer buffer, int font, int numberFormat, boolean style) {
+        buffer.record(0x00E0, 20).
+                put16(font).
+                put16(numberFormat).
+                put16(style ? 0xFFF5 : 0x0001).  // Locked, and the parent style format
+                put8(0x20).             // Bottom aligned
+                put8(0).
+                put8(0).
+                put8(style ? 0 : (font != 0 ? 0x08 : 0) | (numberFormat != 0 ? 0x04 : 0)).
+                put32(0).
+                put32(0).
+                put16(0x20C0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException error = null;
+
+        for (XlsSheetStream stream : sheetStreams) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.xls;
+
+import com.comphenix.rema1000.io.DataRootWriter;
+import com.comphenix.rema1000.io.DataTableConverter;
+import com.comphenix.rema1000.io.DataTableConverter.TransactionSource;
+import com.comphenix.rema1000.io.columnar.ColumnarTransactions;
+import com.comphenix.rema1000.io.json.DataRootReader;
+import com.comphenix.rema1000.model.DataRoot;
+import com.comphenix.rema1000.model.Transaction;
+import com.comphenix.rema1000.model.TransactionsInfo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Writes an Excel 97-2003 workbook (XLS), with the same worksheets as the XLSX output.
+ * <p>
+ * Every worksheet is streamed to a temporary file, so the memory usage does not depend on the size of the export.
+ * Tables with more than 65535 rows continue in additional worksheets.
+ */
+public class XlsWriter extends DataRootWriter {
+    private DataTableConverter tableConverter = new DataTableConverter();
+
+    @Override
+    public void write(OutputStream output, DataRoot data) throws IOException {
+        TransactionsInfo transactionsInfo = data.getTransactionsInfo();
+        List<Transaction> transactions = transactionsInfo != null ?
+                transactionsInfo.getTransactionList() : Collections.emptyList();
+
+        write(output, tables -> tableConverter.writeTransactions(transactions.iterator(), tables), () -> data);
+    }
+
+    @Override
+    public void write(OutputStream output, DataRoot data, ColumnarTransactions transactions) throws IOException {
+        write(output, tables -> tableConverter.writeTransactions(transactions, tables), () -> data);
+    }
+
+    /**
+     * Write the transactions of the given reader to the output stream, one transaction at a time.
+     * @param output the output stream.
+     * @param reader the reader.
+     */
+    @Override
+    public void write(OutputStream output, DataRootReader reader) throws IOException {
+        write(output, tables -> tableConverter.writeTransactions(reader, tables), reader::getDataRoot);
+    }
+
+    private void write(OutputStream output, TransactionSource transactions, Supplier<DataRoot> dataSupplier) throws IOException {
+        try (XlsWorkbook workbook = new XlsWorkbook()) {
+            // The info and top list follow the transactions, but the sheet order is fixed on creation
+            XlsSheetStream infoSheet = workbook.createSheets("Info");
+            XlsTableWriter topListWriter = new XlsTableWriter(workbook, "TopList");
+
+            try (XlsTableWriter transactionsWriter = new XlsTableWriter(workbook, "Transactions");
+                 XlsTableWriter receiptEntriesWriter = new XlsTableWriter(workbook, "Receipt Entries");
+                 XlsTableWriter paymentsWriter = new XlsTableWriter(workbook, "Transactions Payments");
+                 XlsTableWriter usedOffersWriter = new XlsTableWriter(workbook, "Used Offers")) {
+
+                // Visit each transaction once
+                transactions.writeTransactions(
+                        tableConverter.createTableTransactions(transactionsWriter),
+                        tableConverter.createJoinedTableTransactions(receiptEntriesWriter),
+                        tableConverter.createTableTransactionsPayments(paymentsWriter),
+                        tableConverter.createTableTransactionsUsedOffers(usedOffersWriter));
+            }
+            DataRoot data = dataSupplier.get();
+
+            if (data.getTransactionsInfo() != null) {
+                writeTransactionsInfo(infoSheet, data.getTransactionsInfo());
+            }
+            try (XlsTableWriter writer = topListWriter) {
+                tableConverter.writeTableTopList(writer, data.getTopList());
+            }
+            workbook.finish(output);
+        }
+    }
+
+    private void writeTransactionsInfo(XlsSheetStream sheet, TransactionsInfo transactionsInfo) throws IOException {
+        sheet.startSheet();
+        writeInfoLine(sheet, 0, "Bonus Total", transactionsInfo.getBonusTotal());
+        writeInfoLine(sheet, 1, "Discount Total", transactionsInfo.getDiscountTotal());
+        writeInfoLine(sheet, 2, "Purchase Total", transactionsInfo.getPurchaseTotal());
+        sheet.endSheet();
+    }
+
+    private void writeInfoLine(XlsSheetStream sheet, int rowIndex, String infoName, double infoValue) throws IOException {
+        sheet.writeLabel(rowIndex, 0, infoName, XlsWorkbook.XF_HEADER);
+        sheet.writeNumber(rowIndex, 1, infoValue, XlsWorkbook.XF_DEFAULT);
+    }
+}
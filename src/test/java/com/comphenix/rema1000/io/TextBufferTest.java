@@ -0,0 +1,81 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.Assert.assertEquals;
+
+public class TextBufferTest {
+    @Test
+    public void testLongs() {
+        long[] values = { 0, 1, -1, 9, 10, 99, 100, 123456789, -987654321, 999999999999999999L, 1000000000000000000L,
+                Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1 };
+
+        for (long value : values) {
+            assertEquals(Long.toString(value), new TextBuffer(0).append(value).toString());
+        }
+        for (long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value *= 3) {
+            assertEquals(Long.toString(value - 1), new TextBuffer().append(value - 1).toString());
+            assertEquals(Long.toString(-value), new TextBuffer().append(-value).toString());
+        }
+    }
+
+    @Test
+    public void testDoubles() {
+        double[] values = { 0, -0.0, 1.5, -19.9, 1e-7, 1e21, Double.NaN, Double.NEGATIVE_INFINITY, Double.MIN_VALUE };
+
+        for (double value : values) {
+            assertEquals(Double.toString(value), new TextBuffer().append(value).toString());
+        }
+    }
+
+    @Test
+    public void testMixed() {
+        StringBuilder builder = new StringBuilder("builder");
+        TextBuffer buffer = new TextBuffer(1).
+                append("text").
+                append(',').
+                append(builder).
+                append(new StringBuffer("abcdef"), 1, 3).
+                append(true).
+                append((CharSequence) null).
+                append(DateTimeFormatter.ISO_INSTANT, Instant.ofEpochMilli(1527854400000L));
+
+        assertEquals("text,builderbctruenull2018-06-01T12:00:00Z", buffer.toString());
+        assertEquals(buffer.toString().length(), buffer.length());
+    }
+
+    @Test
+    public void testWriteTo() throws IOException {
+        TextBuffer buffer = new TextBuffer(4);
+        StringWriter writer = new StringWriter();
+
+        buffer.append("first ").append(1L).append(' ');
+        buffer.writeTo(writer);
+        buffer.clear();
+        buffer.append("second");
+        buffer.writeTo(writer);
+
+        assertEquals("first 1 second", writer.toString());
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.csv;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
+
+import static org.junit.Assert.assertEquals;
+
+public class CsvTableWriterTest {
+    @Test
+    public void testValues() throws IOException {
+        StringWriter output = new StringWriter();
+
+        try (CsvTableWriter writer = new CsvTableWriter(output)) {
+            int text = writer.createHeader("Text");
+            int number = writer.createHeader("Number, Total");
+            int date = writer.createHeader("Date");
+            int flag = writer.createHeader("Flag");
+
+            writer.incrementRow();
+            writer.write(text, "Say \"cheese\"");
+            writer.writeLong(number, -42);
+            writer.writeEpochMillis(date, 1527854400000L);
+            writer.writeBoolean(flag, true);
+
+            // Values are cleared for every row
+            writer.incrementRow();
+            writer.writeDouble(number, 19.9);
+            writer.write(date, Instant.ofEpochMilli(0));
+
+            writer.incrementRow();
+            writer.write(text, "Line\nbreak");
+            writer.write(number, 7);
+            writer.write(flag, false);
+        }
+        assertEquals("Text,\"Number, Total\",Date,Flag\r\n" +
+                "\"Say \"\"cheese\"\"\",-42,2018-06-01T12:00:00Z,true\r\n" +
+                ",19.9,1970-01-01T00:00:00Z,\r\n" +
+                "\"Line\nbreak\",7,,false\r\n", output.toString());
+    }
+
+    @Test
+    public void testManyRows() throws IOException {
+        StringWriter output = new StringWriter();
+        StringBuilder expected = new StringBuilder("Index\tText\r\n");
+
+        try (CsvTableWriter writer = new CsvTableWriter(output).setDelimiter('\t')) {
+            int index = writer.createHeader("Index");
+            int text = writer.createHeader("Text");
+
+            for (int i = 0; i < 10000; i++) {
+                writer.incrementRow();
+                writer.writeLong(index, i);
+                writer.write(text, "Row, " + i);
+                expected.append(i).append("\tRow, ").append(i).append("\r\n");
+            }
+            assertEquals(10000, writer.getDataRowCount());
+        }
+        assertEquals(expected.toString(), output.toString());
+    }
+
+    @Test
+    public void testWithoutHeader() throws IOException {
+        StringWriter output = new StringWriter();
+
+        try (CsvTableWriter writer = new CsvTableWriter(output).setWriteHeader(false)) {
+            int index = writer.createHeader("Index");
+            writer.incrementRow();
+            writer.writeLong(index, 1);
+        }
+        assertEquals("1\r\n", output.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWriteBeforeRow() throws IOException {
+        try (CsvTableWriter writer = new CsvTableWriter(new StringWriter())) {
+            writer.writeLong(writer.createHeader("Index"), 1);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.json;
+
+import com.comphenix.rema1000.io.json.adapter.ModelTypeAdapterFactory;
+import com.comphenix.rema1000.model.DataRoot;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ParallelDataRootParserTest {
+    private final Gson gson = new GsonBuilder().
+            registerTypeAdapterFactory(new ModelTypeAdapterFactory(new StringPool())).
+            create();
+
+    @Test
+    public void testManyTransactions() throws IOException {
+        // More than one chunk per thread
+        DataRoot data = assertSameAsSequential(createExport(1000, 0, 1.0));
+        assertEquals(1000, data.getTransactionsInfo().getTransactionList().size());
+    }
+
+    @Test
+    public void testByteOrderMark() throws IOException {
+        DataRoot data = assertSameAsSequential("\uFEFF" + createExport(100, 0, 1.0));
+        assertEquals(100, data.getTransactionsInfo().getTransactionList().size());
+    }
+
+    @Test
+    public void testByteOrderMarkWithoutTransactions() throws IOException {
+        assertSameAsSequential("\uFEFF{\"TopList\": null}");
+    }
+
+    @Test
+    public void testDuplicateTransactionsInfo() throws IOException {
+        String json = "{\"TransactionsInfo\": " + createTransactionsInfo(100, 0, 1.0) + ", " +
+                "\"TransactionsInfo\": " + createTransactionsInfo(50, 100, 2.0) + "}";
+        DataRoot data = assertSameAsSequential(json);
+
+        // Every transaction, and the totals of the last key
+        assertEquals(150, data.getTransactionsInfo().getTransactionList().size());
+        assertEquals(2.0, data.getTransactionsInfo().getBonusTotal(), 0);
+        assertEquals("T149", data.getTransactionsInfo().getTransactionList().get(149).getId());
+    }
+
+    @Test
+    public void testDuplicateTransactions() throws IOException {
+        String json = "{\"TransactionsInfo\": {\"Transactions\": " + createTransactions(70, 0) + ", " +
+                "\"BonusTotal\": 3.0, \"Transactions\": null, \"Transactions\": " + createTransactions(80, 70) + "}}";
+        DataRoot data = assertSameAsSequential(json);
+        assertEquals(150, data.getTransactionsInfo().getTransactionList().size());
+    }
+
+    @Test
+    public void testNullTransactionsInfo() throws IOException {
+        DataRoot data = assertSameAsSequential("{\"TransactionsInfo\": null, \"TopList\": {\"Scorecard\": []}}");
+        assertNull(data.getTransactionsInfo());
+    }
+
+    private DataRoot assertSameAsSequential(String json) throws IOException {
+        DataRoot sequential = new DataRootReader(gson, new StringReader(json)).readDataRoot();
+        DataRoot parallel = new ParallelDataRootParser(gson, 4).parse(new StringReader(json));
+
+        assertEquals(sequential, parallel);
+        return parallel;
+    }
+
+    private static String createExport(int count, int firstId, double bonusTotal) {
+        return "{\"TopList\": {\"Scorecard\": []}, \"TransactionsInfo\": " +
+                createTransactionsInfo(count, firstId, bonusTotal) + "}";
+    }
+
+    private static String createTransactionsInfo(int count, int firstId, double bonusTotal) {
+        return "{\"BonusTotal\": " + bonusTotal + ", \"PurchaseTotal\": 10.5, \"DiscountTotal\": 0.5, " +
+                "\"Transactions\": " + createTransactions(count, firstId) + "}";
+    }
+
+    private static String createTransactions(int count, int firstId) {
+        StringBuilder builder = new StringBuilder("[");
+
+        for (int i = 0; i < count; i++) {
+            int id = firstId + i;
+
+            if (i > 0) {
+                builder.append(", ");
+            }
+            // Empty transactions are skipped
+            if (id % 10 == 5) {
+                builder.append("null, ");
+            }
+            builder.append("{\"Id\": \"T").append(id).append("\", ").
+                    append("\"PurchaseDate\": ").append(1500000000000L + id * 60000L).append(", ").
+                    append("\"StoreId\": \"S").append(id % 3).append("\", \"StoreName\": \"REMA 1000 [\\\"").
+                    append(id % 3).append("\\\"]\", \"Amount\": ").append(id).append(".5, ").
+                    append("\"TransactionPayments\": [{\"MeansOfPaymentDesc\": \"Bankkort\", \"Amount\": 1.5}], ").
+                    append("\"Receipt\": [{\"ProductCode\": \"P").append(id % 7).append("\", \"Amount\": 2.5}, ").
+                    append("{\"ProductCode\": \"P1\", \"Prodtxt1\": \"}\", \"Amount\": 1}]}");
+        }
+        return builder.append("]").toString();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.json;
+
+import com.comphenix.rema1000.model.ReceiptEntry;
+import com.comphenix.rema1000.model.Transaction;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReceiptEntryIdsTest {
+    @Test
+    public void testKnownIds() {
+        // Must never change, as the IDs are stored by earlier conversions
+        assertEquals(1486243627446570L, ReceiptEntryIds.computeEntryId("123456789", 0));
+        assertEquals(8493886208165809L, ReceiptEntryIds.computeEntryId("123456789", 1));
+        assertEquals(752505642480977L, ReceiptEntryIds.computeEntryId("123456789", 2));
+        assertEquals(4257439021880804L, ReceiptEntryIds.computeEntryId("ABC-42", 0));
+        assertEquals(2084457294725555L, ReceiptEntryIds.computeEntryId("ABC-42", 1));
+        assertEquals(8917478044259366L, ReceiptEntryIds.computeEntryId("", 0));
+    }
+
+    @Test
+    public void testRange() {
+        for (int i = 0; i < 1000; i++) {
+            long entryId = ReceiptEntryIds.computeEntryId("T" + i, i % 10);
+            assertTrue(entryId >= 0 && entryId <= ReceiptEntryIds.MAX_ENTRY_ID);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLineIndex() {
+        ReceiptEntryIds.computeEntryId("123456789", -1);
+    }
+
+    @Test
+    public void testAssignEntryIds() {
+        Transaction transaction = createTransaction("123456789", "1234", 100);
+        ReceiptEntryIds.assignEntryIds(transaction);
+
+        assertEquals(1486243627446570L, transaction.getReceiptEntries().get(0).getEntryId());
+        // The line index includes empty receipt entries
+        assertEquals(752505642480977L, transaction.getReceiptEntries().get(2).getEntryId());
+    }
+
+    @Test
+    public void testTransactionsWithoutId() {
+        Transaction transaction = createTransaction(null, "1234", 100);
+        Transaction sameTransaction = createTransaction(null, "1234", 100);
+        Transaction otherStore = createTransaction(null, "5678", 100);
+        Transaction otherAmount = createTransaction(null, "1234", 200);
+
+        for (Transaction value : Arrays.asList(transaction, sameTransaction, otherStore, otherAmount)) {
+            ReceiptEntryIds.assignEntryIds(value);
+        }
+        long entryId = getFirstEntryId(transaction);
+        assertEquals(entryId, getFirstEntryId(sameTransaction));
+        assertNotEquals(entryId, getFirstEntryId(otherStore));
+        assertNotEquals(entryId, getFirstEntryId(otherAmount));
+        assertNotEquals(entryId, ReceiptEntryIds.computeEntryId(Long.toString(transaction.getPurchaseDateUnix()), 0));
+    }
+
+    private static long getFirstEntryId(Transaction transaction) {
+        return transaction.getReceiptEntries().get(0).getEntryId();
+    }
+
+    private static Transaction createTransaction(String id, String storeId, double amount) {
+        return Transaction.newBuilder().
+                withId(id).
+                withPurchaseDateUnix(1527854400000L).
+                withStoreId(storeId).
+                withAmount(amount).
+                withReceiptEntries(Arrays.asList(
+                        ReceiptEntry.newBuilder().withProductCode("A").build(),
+                        null,
+                        ReceiptEntry.newBuilder().withProductCode("B").build())).
+                build();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.merge;
+
+import com.comphenix.rema1000.model.DataRoot;
+import com.comphenix.rema1000.model.ReceiptEntry;
+import com.comphenix.rema1000.model.Transaction;
+import com.comphenix.rema1000.model.TransactionsInfo;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class DataRootMergerTest {
+    @Test
+    public void testDisjointExports() {
+        DataRootMerger merger = new DataRootMerger();
+        merger.add(createExport(1, 3));
+        merger.add(createExport(4, 6));
+
+        assertMerged(merger, 1, 6, 0);
+    }
+
+    @Test
+    public void testNestedExports() {
+        DataRootMerger merger = new DataRootMerger();
+        merger.add(createExport(1, 12));
+        merger.add(createExport(4, 6));
+
+        assertMerged(merger, 1, 12, 3);
+    }
+
+    @Test
+    public void testPartlyOverlappingExports() {
+        DataRootMerger merger = new DataRootMerger();
+        merger.add(createExport(1, 6));
+        merger.add(createExport(4, 12));
+
+        assertMerged(merger, 1, 12, 3);
+    }
+
+    @Test
+    public void testPartlyOverlappingExportsInReverse() {
+        DataRootMerger merger = new DataRootMerger();
+        merger.add(createExport(4, 12));
+        merger.add(createExport(1, 6));
+
+        assertMerged(merger, 1, 12, 3);
+    }
+
+    @Test
+    public void testSameExportTwice() {
+        DataRootMerger merger = new DataRootMerger();
+        merger.add(createExport(1, 6));
+        merger.add(createExport(1, 6));
+
+        assertMerged(merger, 1, 6, 6);
+    }
+
+    private static void assertMerged(DataRootMerger merger, int firstMonth, int lastMonth, int duplicateCount) {
+        TransactionsInfo expected = createTransactionsInfo(firstMonth, lastMonth);
+        TransactionsInfo actual = merger.getDataRoot().getTransactionsInfo();
+
+        assertEquals(expected.getBonusTotal(), actual.getBonusTotal(), 1e-9);
+        assertEquals(expected.getPurchaseTotal(), actual.getPurchaseTotal(), 1e-9);
+        assertEquals(expected.getDiscountTotal(), actual.getDiscountTotal(), 1e-9);
+        assertEquals(lastMonth - firstMonth + 1, merger.getTransactions().getTransactionCount());
+        assertEquals(duplicateCount, merger.getDuplicateCount());
+    }
+
+    private static DataRoot createExport(int firstMonth, int lastMonth) {
+        return DataRoot.newBuilder().
+                withTransactionsInfo(createTransactionsInfo(firstMonth, lastMonth)).
+                build();
+    }
+
+    /**
+     * Create an export with one transaction per month, where the totals are the sums of the transactions.
+     */
+    private static TransactionsInfo createTransactionsInfo(int firstMonth, int lastMonth) {
+        List<Transaction> transactions = new ArrayList<>();
+        double bonusTotal = 0;
+        double purchaseTotal = 0;
+        double discountTotal = 0;
+
+        for (int month = firstMonth; month <= lastMonth; month++) {
+            Transaction transaction = Transaction.newBuilder().
+                    withId("T" + month).
+                    withPurchaseDateUnix(month * 2629746000L).
+                    withBonusPoints(month).
+                    withAmount(100.5 * month).
+                    withDiscount(month / 4.0).
+                    withTransactionPayments(Collections.emptyList()).
+                    withReceiptEntries(Collections.singletonList(ReceiptEntry.newBuilder().
+                            withProductCode("P" + month).
+                            build())).
+                    build();
+
+            transactions.add(transaction);
+            bonusTotal += transaction.getBonusPoints();
+            purchaseTotal += transaction.getAmount();
+            discountTotal += transaction.getDiscount();
+        }
+        return TransactionsInfo.newBuilder().
+                withBonusTotal(bonusTotal).
+                withPurchaseTotal(purchaseTotal).
+                withDiscountTotal(discountTotal).
+                withTransactionList(transactions).
+                build();
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.merge;
+
+import com.comphenix.rema1000.model.ReceiptEntry;
+import com.comphenix.rema1000.model.Transaction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalStateTest {
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long START = 1527811200000L;
+
+    // Size of the state file without any transactions, and of each transaction
+    private static final int HEADER_SIZE = 28;
+    private static final int TRANSACTION_SIZE = 16;
+
+    private Path directory;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("IncrementalStateTest");
+        file = directory.resolve("state.bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        IncrementalState empty = IncrementalState.load(file);
+        assertEquals(Long.MIN_VALUE, empty.getHighWaterMark());
+        assertTrue(empty.add(createTransaction("A", 1)));
+        assertTrue(empty.add(createTransaction("B", 3)));
+        assertTrue(empty.add(createTransaction("C", 2)));
+        assertFalse(empty.add(createTransaction("B", 3)));
+        assertEquals(3, empty.getNewCount());
+        assertEquals(1, empty.getSkippedCount());
+        empty.save(file);
+
+        IncrementalState state = IncrementalState.load(file);
+        assertEquals(START + 3 * DAY, state.getHighWaterMark());
+        assertEquals(0, state.getNewCount());
+        assertFalse(state.add(createTransaction("A", 1)));
+        assertFalse(state.add(createTransaction("C", 2)));
+        assertTrue(state.add(createTransaction("D", 4)));
+
+        // The existing file is replaced, and the temporary file removed
+        state.save(file);
+        assertEquals(Collections.singletonList(file), listDirectory());
+        assertEquals(HEADER_SIZE + 4 * TRANSACTION_SIZE, Files.size(file));
+
+        IncrementalState reloaded = IncrementalState.load(file);
+        assertEquals(START + 4 * DAY, reloaded.getHighWaterMark());
+        assertFalse(reloaded.add(createTransaction("D", 4)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadOtherFile() throws IOException {
+        Files.write(file, "{}".getBytes(StandardCharsets.UTF_8));
+        IncrementalState.load(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadUnsupportedVersion() throws IOException {
+        try (DataOutputStream output = new DataOutputStream(Files.newOutputStream(file))) {
+            output.writeInt(0x52454D41);
+            output.writeInt(2);
+        }
+        IncrementalState.load(file);
+    }
+
+    @Test
+    public void testForgetOldTransactions() throws IOException {
+        long windowDays = IncrementalState.DEFAULT_WINDOW_MILLIS / DAY;
+        IncrementalState first = IncrementalState.load(file);
+        first.add(createTransaction("Old", 0, -1));
+        first.add(createTransaction("Oldest", 0, -DAY));
+        first.add(createTransaction("Edge", 0));
+        first.add(createTransaction("Recent", windowDays));
+        first.save(file);
+
+        // Only transactions from the high-water mark minus the window are remembered
+        assertEquals(HEADER_SIZE + 2 * TRANSACTION_SIZE, Files.size(file));
+
+        IncrementalState second = IncrementalState.load(file);
+        assertFalse(second.add(createTransaction("Edge", 0)));
+        assertFalse(second.add(createTransaction("Recent", windowDays)));
+        // Assumed to be converted, whether or not the ID has been seen
+        assertFalse(second.add(createTransaction("Old", 0, -1)));
+        assertFalse(second.add(createTransaction("Unseen", 0, -1)));
+        assertTrue(second.add(createTransaction("Unseen", 0)));
+        assertEquals(1, second.getNewCount());
+        assertEquals(4, second.getSkippedCount());
+    }
+
+    @Test
+    public void testTransactionsWithoutId() throws IOException {
+        IncrementalState first = IncrementalState.load(file);
+        assertTrue(first.add(createTransaction(null, 10)));
+        assertTrue(first.add(createTransaction(null, 10)));
+        first.save(file);
+
+        // Not remembered, as they cannot be told apart
+        assertEquals(HEADER_SIZE, Files.size(file));
+
+        IncrementalState second = IncrementalState.load(file);
+        assertFalse(second.add(createTransaction(null, 9)));
+        assertFalse(second.add(createTransaction(null, 10)));
+        assertTrue(second.add(createTransaction(null, 10, 1)));
+        assertTrue(second.add(createTransaction(null, 11)));
+        // Compared with the previous run, not the new high-water mark
+        assertTrue(second.add(createTransaction(null, 10, 2)));
+    }
+
+    @Test
+    public void testEmptyTransactions() {
+        IncrementalState state = new IncrementalState();
+        assertFalse(state.add(null));
+        assertFalse(state.add(Transaction.newBuilder().
+                withId("Empty").
+                withPurchaseDateUnix(START).
+                withReceiptEntries(Collections.emptyList()).
+                build()));
+        assertEquals(Long.MIN_VALUE, state.getHighWaterMark());
+    }
+
+    @Test
+    public void testOverlappingExports() throws IOException {
+        List<Transaction> firstExport = new ArrayList<>();
+        List<Transaction> secondExport = new ArrayList<>();
+
+        for (int day = 1; day <= 20; day++) {
+            firstExport.add(createTransaction("T" + day, day));
+        }
+        for (int day = 10; day <= 30; day++) {
+            secondExport.add(createTransaction("T" + day, day));
+
+            // Registered after the first export was made
+            if (day == 25) {
+                secondExport.add(createTransaction("Late", 15));
+            }
+        }
+        assertEquals(ids(1, 20), convert(firstExport));
+
+        List<String> expected = new ArrayList<>(ids(21, 25));
+        expected.add("Late");
+        expected.addAll(ids(26, 30));
+        assertEquals(expected, convert(secondExport));
+
+        // Converting the same export again has no effect
+        assertEquals(Collections.emptyList(), convert(secondExport));
+    }
+
+    /**
+     * Convert the given export as an incremental run, returning the IDs of the new transactions.
+     */
+    private List<String> convert(List<Transaction> export) throws IOException {
+        IncrementalState state = IncrementalState.load(file);
+        List<String> result = new ArrayList<>();
+
+        for (Transaction transaction : export) {
+            if (state.add(transaction)) {
+                result.add(transaction.getId());
+            }
+        }
+        state.save(file);
+        assertEquals(result.size(), state.getNewCount());
+        assertEquals(export.size() - result.size(), state.getSkippedCount());
+        return result;
+    }
+
+    private List<Path> listDirectory() throws IOException {
+        List<Path> result = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            stream.forEach(result::add);
+        }
+        return result;
+    }
+
+    private static List<String> ids(int firstDay, int lastDay) {
+        List<String> result = new ArrayList<>();
+
+        for (int day = firstDay; day <= lastDay; day++) {
+            result.add("T" + day);
+        }
+        return result;
+    }
+
+    private static Transaction createTransaction(String id, long day) {
+        return createTransaction(id, day, 0);
+    }
+
+    private static Transaction createTransaction(String id, long day, long offsetMillis) {
+        return Transaction.newBuilder().
+                withId(id).
+                withPurchaseDateUnix(START + day * DAY + offsetMillis).
+                withTransactionPayments(Collections.emptyList()).
+                withReceiptEntries(Collections.singletonList(ReceiptEntry.newBuilder().
+                        withProductCode("P").
+                        build())).
+                build();
+    }
+}
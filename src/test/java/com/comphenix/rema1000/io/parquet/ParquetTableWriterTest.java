@@ -0,0 +1,144 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.parquet;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.column.Encoding;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type;
+import org.junit.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ParquetTableWriterTest {
+    private static final String[] STORES = { "REMA 1000 Sentrum", "REMA 1000 Lade", "REMA 1000 Moholt" };
+    private static final long START_DATE = 1527854400000L;
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        int rowCount = 250;
+        Path file = Files.createTempFile("ParquetTableWriterTest", ".parquet");
+
+        try {
+            try (ParquetTableWriter writer = new ParquetTableWriter(new BufferedOutputStream(Files.newOutputStream(file)))) {
+                writer.setRowGroupSize(100);
+                int store = writer.createHeader("Store");
+                int text = writer.createHeader("Text");
+                int amount = writer.createHeader("Amount");
+                int count = writer.createHeader("Count");
+                int date = writer.createHeader("Date");
+                int flag = writer.createHeader("Flag");
+                int empty = writer.createHeader("Empty");
+
+                for (int i = 0; i < rowCount; i++) {
+                    writer.incrementRow();
+                    writer.write(store, STORES[i % STORES.length]);
+                    writer.write(text, "Receipt " + i);
+
+                    if (i % 7 != 0) {
+                        writer.writeDouble(amount, i * 1.5);
+                    }
+                    writer.writeLong(count, i - 100L);
+                    writer.writeEpochMillis(date, START_DATE + i * 1000L);
+
+                    if (i % 5 != 0) {
+                        writer.writeBoolean(flag, i % 2 == 0);
+                    }
+                    writer.write(empty, null, String.class);
+                }
+            }
+            Configuration configuration = new Configuration();
+            org.apache.hadoop.fs.Path path = new org.apache.hadoop.fs.Path(file.toUri());
+
+            try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromPath(path, configuration))) {
+                MessageType schema = reader.getFooter().getFileMetaData().getSchema();
+                assertColumn(schema, "Store", PrimitiveTypeName.BINARY, LogicalTypeAnnotation.stringType());
+                assertColumn(schema, "Amount", PrimitiveTypeName.DOUBLE, null);
+                assertColumn(schema, "Count", PrimitiveTypeName.INT64, null);
+                assertColumn(schema, "Date", PrimitiveTypeName.INT64,
+                        LogicalTypeAnnotation.timestampType(true, LogicalTypeAnnotation.TimeUnit.MILLIS));
+                assertColumn(schema, "Flag", PrimitiveTypeName.BOOLEAN, null);
+
+                List<BlockMetaData> rowGroups = reader.getRowGroups();
+                assertEquals(3, rowGroups.size());
+                assertEquals(100, rowGroups.get(0).getRowCount());
+                assertEquals(50, rowGroups.get(2).getRowCount());
+
+                for (BlockMetaData rowGroup : rowGroups) {
+                    List<ColumnChunkMetaData> chunks = rowGroup.getColumns();
+                    // Repeated strings are dictionary encoded, unique strings are not
+                    assertTrue(chunks.get(0).hasDictionaryPage());
+                    assertTrue(chunks.get(0).getEncodings().contains(Encoding.PLAIN_DICTIONARY));
+                    assertFalse(chunks.get(1).hasDictionaryPage());
+                    assertFalse(chunks.get(1).getEncodings().contains(Encoding.PLAIN_DICTIONARY));
+                }
+            }
+
+            try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(), path).build()) {
+                for (int i = 0; i < rowCount; i++) {
+                    Group row = reader.read();
+                    assertEquals(STORES[i % STORES.length], row.getString("Store", 0));
+                    assertEquals("Receipt " + i, row.getString("Text", 0));
+
+                    if (i % 7 != 0) {
+                        assertEquals(i * 1.5, row.getDouble("Amount", 0), 0);
+                    } else {
+                        assertEquals(0, row.getFieldRepetitionCount("Amount"));
+                    }
+                    assertEquals(i - 100L, row.getLong("Count", 0));
+                    assertEquals(START_DATE + i * 1000L, row.getLong("Date", 0));
+
+                    if (i % 5 != 0) {
+                        assertEquals(i % 2 == 0, row.getBoolean("Flag", 0));
+                    } else {
+                        assertEquals(0, row.getFieldRepetitionCount("Flag"));
+                    }
+                    assertEquals(0, row.getFieldRepetitionCount("Empty"));
+                }
+                assertNull(reader.read());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void assertColumn(MessageType schema, String name, PrimitiveTypeName type,
+                                     LogicalTypeAnnotation logicalType) {
+        Type column = schema.getType(name);
+        assertEquals(Type.Repetition.OPTIONAL, column.getRepetition());
+        assertEquals(type, column.asPrimitiveType().getPrimitiveTypeName());
+        assertEquals(logicalType, column.getLogicalTypeAnnotation());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.parquet;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class RleEncoderTest {
+    @Test
+    public void testBitWidth() {
+        assertEquals(1, RleEncoder.bitWidth(0));
+        assertEquals(1, RleEncoder.bitWidth(1));
+        assertEquals(2, RleEncoder.bitWidth(2));
+        assertEquals(8, RleEncoder.bitWidth(255));
+        assertEquals(9, RleEncoder.bitWidth(256));
+    }
+
+    @Test
+    public void testRun() {
+        assertEncoded(bytes(0x14, 0x03), 2, repeat(3, 10));
+        // Run values take a whole number of bytes
+        assertEncoded(bytes(0x10, 0x2C, 0x01), 9, repeat(300, 8));
+        // The run length is a variable length integer
+        assertEncoded(bytes(0xC8, 0x01, 0x01), 1, repeat(1, 100));
+    }
+
+    @Test
+    public void testBitPacked() {
+        // The example from the Parquet specification
+        assertEncoded(bytes(0x03, 0x88, 0xC6, 0xFA), 3, 0, 1, 2, 3, 4, 5, 6, 7);
+        // Runs shorter than eight values are packed
+        assertEncoded(bytes(0x05, 0x01, 0x01), 1, 1, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    @Test
+    public void testMixedGroups() {
+        assertEncoded(bytes(0x03, 0x88, 0xC6, 0xFA, 0x10, 0x05), 3, 0, 1, 2, 3, 4, 5, 6, 7, 5, 5, 5, 5, 5, 5, 5, 5);
+        assertEncoded(bytes(0x12, 0x02, 0x03, 0x09, 0x00), 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 1, 2);
+
+        // A run that begins inside a group is packed along with the group
+        assertEncoded(bytes(0x05, 0x68, 0xDB, 0xB6, 0x05, 0x00, 0x00), 3, 0, 5, 5, 5, 5, 5, 5, 5, 5);
+    }
+
+    @Test
+    public void testPartialLastGroup() {
+        assertEncoded(bytes(0x03, 0x05), 1, 1, 0, 1);
+        assertEncoded(bytes(0x10, 0x01, 0x03, 0x06), 1, 1, 1, 1, 1, 1, 1, 1, 1, 0, 1, 1);
+        assertEncoded(bytes(0x03, 0x0A, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00), 10, 10);
+    }
+
+    @Test
+    public void testLongestBitPackedSequence() {
+        int[] values = new int[64 * 8];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 2;
+        }
+        // The header of a bit-packed sequence holds at most 63 groups
+        byte[] expected = new byte[1 + 63 + 1 + 1];
+        Arrays.fill(expected, (byte) 0xAA);
+        expected[0] = 0x7F;
+        expected[64] = 0x03;
+        assertEncoded(expected, 1, values);
+    }
+
+    @Test
+    public void testCount() {
+        // Values beyond the count are ignored
+        ParquetBuffer buffer = new ParquetBuffer();
+        RleEncoder.encode(buffer, new int[] { 1, 0, 1, 1, 1 }, 3, 1);
+        assertArrayEquals(bytes(0x03, 0x05), buffer.toByteArray());
+    }
+
+    private static void assertEncoded(byte[] expected, int bitWidth, int... values) {
+        ParquetBuffer buffer = new ParquetBuffer();
+        RleEncoder.encode(buffer, values, values.length, bitWidth);
+        assertArrayEquals(expected, buffer.toByteArray());
+    }
+
+    private static int[] repeat(int value, int count) {
+        int[] values = new int[count];
+        Arrays.fill(values, value);
+        return values;
+    }
+
+    static byte[] bytes(int... values) {
+        byte[] result = new byte[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (byte) values[i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.parquet;
+
+import org.junit.Test;
+
+import static com.comphenix.rema1000.io.parquet.RleEncoderTest.bytes;
+import static org.junit.Assert.assertArrayEquals;
+
+public class ThriftCompactWriterTest {
+    @Test
+    public void testFieldIdDelta() {
+        ParquetBuffer buffer = new ParquetBuffer();
+        ThriftCompactWriter writer = new ThriftCompactWriter(buffer);
+
+        writer.beginStruct();
+        writer.writeI32(1, 5);
+        writer.writeI32(16, 0);
+        writer.writeI32(32, -1);
+        writer.endStruct();
+
+        assertArrayEquals(bytes(
+                0x15, 0x0A,
+                0xF5, 0x00,
+                // Jumps of more than 15 are written with the full field ID
+                0x05, 0x40, 0x01,
+                0x00), buffer.toByteArray());
+    }
+
+    @Test
+    public void testDecreasingFieldId() {
+        ParquetBuffer buffer = new ParquetBuffer();
+        ThriftCompactWriter writer = new ThriftCompactWriter(buffer);
+
+        writer.beginStruct();
+        writer.writeI64(3, 1);
+        writer.writeI64(2, -2);
+        writer.writeI64(300, Long.MAX_VALUE);
+        writer.endStruct();
+
+        assertArrayEquals(bytes(
+                0x36, 0x02,
+                0x06, 0x04, 0x03,
+                0x06, 0xD8, 0x04, 0xFE, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x01,
+                0x00), buffer.toByteArray());
+    }
+
+    @Test
+    public void testNestedStruct() {
+        ParquetBuffer buffer = new ParquetBuffer();
+        ThriftCompactWriter writer = new ThriftCompactWriter(buffer);
+
+        writer.beginStruct();
+        writer.writeBoolean(5, true);
+        writer.beginStruct(6);
+        writer.writeBoolean(1, false);
+        writer.writeString(20, "ab");
+        writer.endStruct();
+        // The field ID is relative to the enclosing struct again
+        writer.writeI32(7, Integer.MIN_VALUE);
+        writer.endStruct();
+
+        assertArrayEquals(bytes(
+                0x51,
+                0x1C,
+                0x12,
+                0x08, 0x28, 0x02, 'a', 'b',
+                0x00,
+                0x15, 0xFF, 0xFF, 0xFF, 0xFF, 0x0F,
+                0x00), buffer.toByteArray());
+    }
+
+    @Test
+    public void testShortList() {
+        ParquetBuffer buffer = new ParquetBuffer();
+        ThriftCompactWriter writer = new ThriftCompactWriter(buffer);
+
+        writer.beginStruct();
+        writer.beginList(1, ThriftCompactWriter.TYPE_I32, 3);
+        writer.writeI32Element(0);
+        writer.writeI32Element(-1);
+        writer.writeI32Element(64);
+        writer.beginList(2, ThriftCompactWriter.TYPE_BINARY, 14);
+
+        for (int i = 0; i < 14; i++) {
+            writer.writeStringElement("");
+        }
+        writer.endStruct();
+
+        assertArrayEquals(bytes(
+                0x19, 0x35, 0x00, 0x01, 0x80, 0x01,
+                0x19, 0xE8, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+                0x00), buffer.toByteArray());
+    }
+
+    @Test
+    public void testLongList() {
+        ParquetBuffer buffer = new ParquetBuffer();
+        ThriftCompactWriter writer = new ThriftCompactWriter(buffer);
+
+        writer.beginStruct();
+        writer.beginList(1, ThriftCompactWriter.TYPE_STRUCT, 15);
+
+        for (int i = 0; i < 15; i++) {
+            writer.beginStruct();
+            writer.writeI32(1, i);
+            writer.endStruct();
+        }
+        writer.beginList(2, ThriftCompactWriter.TYPE_I32, 200);
+
+        for (int i = 0; i < 200; i++) {
+            writer.writeI32Element(0);
+        }
+        writer.endStruct();
+
+        byte[] expected = new byte[1 + 2 + 15 * 3 + 1 + 3 + 200 + 1];
+        int position = 0;
+
+        // Lists of 15 or more elements store the size after the element type
+        expected[position++] = 0x19;
+        expected[position++] = (byte) 0xFC;
+        expected[position++] = 0x0F;
+
+        for (int i = 0; i < 15; i++) {
+            expected[position++] = 0x15;
+            expected[position++] = (byte) (i * 2);
+            expected[position++] = 0x00;
+        }
+        expected[position++] = 0x19;
+        expected[position++] = (byte) 0xF5;
+        expected[position++] = (byte) 0xC8;
+        expected[position] = 0x01;
+        assertArrayEquals(expected, buffer.toByteArray());
+    }
+
+    @Test
+    public void testEncodedStruct() {
+        ParquetBuffer element = new ParquetBuffer();
+        ThriftCompactWriter elementWriter = new ThriftCompactWriter(element);
+        elementWriter.beginStruct();
+        elementWriter.writeI64(2, 10);
+        elementWriter.endStruct();
+
+        ParquetBuffer buffer = new ParquetBuffer();
+        ThriftCompactWriter writer = new ThriftCompactWriter(buffer);
+
+        writer.beginStruct();
+        writer.beginList(4, ThriftCompactWriter.TYPE_STRUCT, 2);
+        writer.writeEncodedStruct(element.toByteArray());
+        writer.writeEncodedStruct(element.toByteArray());
+        writer.writeI32(5, 1);
+        writer.endStruct();
+
+        assertArrayEquals(bytes(
+                0x49, 0x2C,
+                0x26, 0x14, 0x00,
+                0x26, 0x14, 0x00,
+                0x15, 0x02,
+                0x00), buffer.toByteArray());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testEndWithoutStruct() {
+        new ThriftCompactWriter(new ParquetBuffer()).endStruct();
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.xls;
+
+import org.apache.poi.poifs.filesystem.DocumentInputStream;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.util.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompoundFileWriterTest {
+    private static final int SECTOR_SIZE = 512;
+
+    private static final int DIFSECT = 0xFFFFFFFC;
+    private static final int FATSECT = 0xFFFFFFFD;
+    private static final int ENDOFCHAIN = 0xFFFFFFFE;
+    private static final int FREESECT = 0xFFFFFFFF;
+
+    @Test
+    public void testSmallStream() throws IOException {
+        CompoundFile file = writeAndRead(createContent(100));
+
+        // Padded to the mini stream cutoff
+        assertEquals(1, file.fatSectors.size());
+        assertEquals(0, file.difatSectors.size());
+        assertEquals(4096, file.streamSize);
+    }
+
+    @Test
+    public void testStreamOfWholeSectors() throws IOException {
+        CompoundFile file = writeAndRead(createContent(64 * SECTOR_SIZE));
+        assertEquals(64 * SECTOR_SIZE, file.streamSize);
+    }
+
+    @Test
+    public void testLargestStreamWithoutDifat() throws IOException {
+        // 109 FAT sectors allocate 13952 sectors, including the directory and themselves
+        CompoundFile file = writeAndRead(createContent((13952 - 110) * SECTOR_SIZE));
+
+        assertEquals(109, file.fatSectors.size());
+        assertEquals(0, file.difatSectors.size());
+    }
+
+    @Test
+    public void testSmallestStreamWithDifat() throws IOException {
+        CompoundFile file = writeAndRead(createContent((13952 - 110) * SECTOR_SIZE + 1));
+
+        assertEquals(110, file.fatSectors.size());
+        assertEquals(1, file.difatSectors.size());
+    }
+
+    @Test
+    public void testLargeStream() throws IOException {
+        // More than 109 + 127 FAT sectors, so the DIFAT needs more than one sector
+        CompoundFile file = writeAndRead(createContent(20 * 1024 * 1024 + 123));
+
+        assertTrue(file.fatSectors.size() > 109 + 127);
+        assertEquals(2, file.difatSectors.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWrongStreamSize() throws IOException {
+        CompoundFileWriter.write(new ByteArrayOutputStream(), "Workbook", 10, output -> output.write(new byte[9]));
+    }
+
+    private static byte[] createContent(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    private static CompoundFile writeAndRead(byte[] content) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CompoundFileWriter.write(output, "Workbook", content.length, stream -> stream.write(content));
+        byte[] data = output.toByteArray();
+
+        CompoundFile file = new CompoundFile(data);
+        byte[] stream = file.readStream("Workbook");
+
+        // Padded with zeros
+        assertArrayEquals(content, Arrays.copyOf(stream, content.length));
+        assertTrue(allZero(stream, content.length, stream.length));
+
+        // Also readable by POI
+        try (POIFSFileSystem fileSystem = new POIFSFileSystem(new ByteArrayInputStream(data));
+             DocumentInputStream input = fileSystem.createDocumentInputStream("Workbook")) {
+            assertArrayEquals(stream, IOUtils.toByteArray(input));
+        }
+        return file;
+    }
+
+    private static boolean allZero(byte[] data, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (data[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a compound file, checking that every sector is allocated exactly once.
+     */
+    private static class CompoundFile {
+        private final ByteBuffer data;
+        private final int sectorCount;
+        private final int[] fat;
+
+        private final List<Integer> fatSectors = new ArrayList<>();
+        private final List<Integer> difatSectors = new ArrayList<>();
+        private final int directorySector;
+        private long streamSize;
+
+        CompoundFile(byte[] bytes) {
+            data = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(0, bytes.length % SECTOR_SIZE);
+            sectorCount = bytes.length / SECTOR_SIZE - 1;
+
+            assertEquals(0xE11AB1A1E011CFD0L, data.getLong(0));
+            assertEquals(0x0003, data.getShort(0x1A));
+            assertEquals(0xFFFE, data.getShort(0x1C) & 0xFFFF);
+            assertEquals(9, data.getShort(0x1E));
+
+            int fatCount = data.getInt(0x2C);
+            directorySector = data.getInt(0x30);
+            assertEquals(ENDOFCHAIN, data.getInt(0x3C));
+            int difatStart = data.getInt(0x44);
+            int difatCount = data.getInt(0x48);
+
+            // The header lists the first 109 FAT sectors
+            for (int i = 0; i < 109; i++) {
+                int sector = data.getInt(0x4C + i * 4);
+
+                if (i < fatCount) {
+                    fatSectors.add(sector);
+                } else {
+                    assertEquals(FREESECT, sector);
+                }
+            }
+            // Followed by the DIFAT chain
+            int difatSector = difatStart;
+
+            while (difatSector != ENDOFCHAIN) {
+                difatSectors.add(difatSector);
+                int offset = sectorOffset(difatSector);
+
+                for (int i = 0; i < 127; i++) {
+                    int sector = data.getInt(offset + i * 4);
+
+                    if (fatSectors.size() < fatCount) {
+                        fatSectors.add(sector);
+                    } else {
+                        assertEquals(FREESECT, sector);
+                    }
+                }
+                difatSector = data.getInt(offset + 127 * 4);
+            }
+            assertEquals(difatCount, difatSectors.size());
+            assertEquals(fatCount, fatSectors.size());
+
+            fat = new int[fatCount * 128];
+
+            for (int i = 0; i < fatCount; i++) {
+                int offset = sectorOffset(fatSectors.get(i));
+
+                for (int j = 0; j < 128; j++) {
+                    fat[i * 128 + j] = data.getInt(offset + j * 4);
+                }
+            }
+            for (int sector : fatSectors) {
+                assertEquals(FATSECT, fat[sector]);
+            }
+            for (int sector : difatSectors) {
+                assertEquals(DIFSECT, fat[sector]);
+            }
+            // Sectors beyond the end of the file are free
+            for (int i = sectorCount; i < fat.length; i++) {
+                assertEquals(FREESECT, fat[i]);
+            }
+        }
+
+        byte[] readStream(String name) {
+            List<Integer> directory = readChain(directorySector);
+            assertEquals(1, directory.size());
+            int offset = sectorOffset(directory.get(0));
+
+            // Root entry, then the stream
+            assertEquals("Root Entry", readName(offset));
+            assertEquals(5, data.get(offset + 66));
+            assertEquals(1, data.getInt(offset + 76));
+            assertEquals(name, readName(offset + 128));
+            assertEquals(2, data.get(offset + 128 + 66));
+
+            int start = data.getInt(offset + 128 + 116);
+            streamSize = data.getLong(offset + 128 + 120);
+            assertTrue(streamSize >= 4096);
+
+            // Every sector belongs to a single structure
+            List<Integer> chain = readChain(start);
+            assertEquals((streamSize + SECTOR_SIZE - 1) / SECTOR_SIZE, chain.size());
+            assertEquals(sectorCount, chain.size() + directory.size() + fatSectors.size() + difatSectors.size());
+
+            byte[] stream = new byte[(int) streamSize];
+
+            for (int i = 0; i < chain.size(); i++) {
+                int length = (int) Math.min(SECTOR_SIZE, streamSize - (long) i * SECTOR_SIZE);
+                System.arraycopy(data.array(), sectorOffset(chain.get(i)), stream, i * SECTOR_SIZE, length);
+            }
+            return stream;
+        }
+
+        private List<Integer> readChain(int start) {
+            List<Integer> chain = new ArrayList<>();
+
+            for (int sector = start; sector != ENDOFCHAIN; sector = fat[sector]) {
+                assertTrue("Invalid sector " + sector, sector >= 0 && sector < sectorCount);
+                assertTrue("Cycle in chain at " + sector, chain.size() < sectorCount);
+                chain.add(sector);
+            }
+            return chain;
+        }
+
+        private String readName(int offset) {
+            int length = data.getShort(offset + 64);
+            return new String(data.array(), offset, Math.max(0, length - 2), StandardCharsets.UTF_16LE);
+        }
+
+        private int sectorOffset(int sector) {
+            assertTrue("Invalid sector " + sector, sector >= 0 && sector < sectorCount);
+            return (sector + 1) * SECTOR_SIZE;
+        }
+    }
+}
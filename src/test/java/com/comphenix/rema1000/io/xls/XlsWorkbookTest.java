@@ -0,0 +1,225 @@
+/*
+ *  RemaTransactionParser - Utility program for converting Rema 1000 GDRP data JSON export files
+ *  Copyright (C) 2018 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+package com.comphenix.rema1000.io.xls;
+
+import org.apache.poi.hssf.usermodel.HSSFCell;
+import org.apache.poi.hssf.usermodel.HSSFRow;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.DocumentInputStream;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.util.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class XlsWorkbookTest {
+    @FunctionalInterface
+    private interface WorkbookContent {
+        void write(XlsWorkbook workbook) throws IOException;
+    }
+
+    @Test
+    public void testValues() throws IOException {
+        long purchaseDate = Instant.parse("2018-06-01T12:30:15Z").toEpochMilli();
+
+        byte[] data = write(workbook -> {
+            try (XlsTableWriter writer = new XlsTableWriter(workbook, "Values")) {
+                int text = writer.createHeader("Text");
+                int number = writer.createHeader("Number");
+                int date = writer.createHeader("Date");
+                int bool = writer.createHeader("Bool");
+
+                writer.incrementRow();
+                writer.write(text, "REMA 1000 Ø");
+                writer.writeDouble(number, 19.9);
+                writer.writeEpochMillis(date, purchaseDate);
+                writer.writeBoolean(bool, true);
+
+                writer.incrementRow();
+                writer.write(text, "Price in €");
+                writer.writeLong(number, 42);
+                writer.write(date, new Date(purchaseDate));
+            }
+            try (XlsTableWriter writer = new XlsTableWriter(workbook, "Empty")) {
+                writer.createHeader("Column");
+            }
+        });
+
+        try (HSSFWorkbook workbook = new HSSFWorkbook(new ByteArrayInputStream(data))) {
+            assertEquals(2, workbook.getNumberOfSheets());
+            HSSFSheet sheet = workbook.getSheet("Values");
+
+            HSSFRow header = sheet.getRow(0);
+            assertEquals("Text", header.getCell(0).getStringCellValue());
+            assertEquals("Bool", header.getCell(3).getStringCellValue());
+            assertTrue(workbook.getFontAt(header.getCell(0).getCellStyle().getFontIndexAsInt()).getBold());
+
+            HSSFRow first = sheet.getRow(1);
+            assertEquals("REMA 1000 Ø", first.getCell(0).getStringCellValue());
+            assertEquals(19.9, first.getCell(1).getNumericCellValue(), 0);
+            assertEquals(new Date(purchaseDate), first.getCell(2).getDateCellValue());
+            assertEquals("yyyy-mm-dd hh:mm:ss", first.getCell(2).getCellStyle().getDataFormatString());
+            assertEquals("True", first.getCell(3).getStringCellValue());
+
+            HSSFRow second = sheet.getRow(2);
+            assertEquals("Price in €", second.getCell(0).getStringCellValue());
+            assertEquals(42, second.getCell(1).getNumericCellValue(), 0);
+            assertEquals(new Date(purchaseDate), second.getCell(2).getDateCellValue());
+            assertNull(second.getCell(3));
+            assertEquals(2, sheet.getLastRowNum());
+
+            HSSFSheet empty = workbook.getSheet("Empty");
+            assertEquals("Column", empty.getRow(0).getCell(0).getStringCellValue());
+            assertEquals(0, empty.getLastRowNum());
+        }
+        assertSheetRecords(data, "Values", 3, 4, "Empty", 1, 1);
+    }
+
+    @Test
+    public void testSplitSheets() throws IOException {
+        int rowCount = XlsSheetStream.MAX_ROWS + 10;
+
+        byte[] data = write(workbook -> {
+            XlsSheetStream info = workbook.createSheets("Info");
+            info.startSheet();
+            info.writeLabel(0, 0, "Before", XlsWorkbook.XF_HEADER);
+            info.endSheet();
+
+            try (XlsTableWriter writer = new XlsTableWriter(workbook, "Rows")) {
+                int index = writer.createHeader("Index");
+                int text = writer.createHeader("Text");
+
+                for (int i = 0; i < rowCount; i++) {
+                    writer.incrementRow();
+                    writer.writeLong(index, i);
+                    writer.write(text, "Row " + i);
+                }
+                assertEquals(rowCount, writer.getDataRowCount());
+            }
+            try (XlsTableWriter writer = new XlsTableWriter(workbook, "After")) {
+                writer.incrementRow();
+            }
+        });
+
+        // The first sheet is full, with 65535 rows after the header
+        int firstRows = XlsSheetStream.MAX_ROWS - 1;
+
+        try (HSSFWorkbook workbook = new HSSFWorkbook(new ByteArrayInputStream(data))) {
+            assertEquals(4, workbook.getNumberOfSheets());
+            assertEquals("Info", workbook.getSheetName(0));
+            assertEquals("Rows", workbook.getSheetName(1));
+            assertEquals("Rows (2)", workbook.getSheetName(2));
+            assertEquals("After", workbook.getSheetName(3));
+
+            HSSFSheet first = workbook.getSheetAt(1);
+            assertEquals(firstRows, first.getLastRowNum());
+            assertEquals("Index", first.getRow(0).getCell(0).getStringCellValue());
+            assertEquals(firstRows - 1, first.getRow(firstRows).getCell(0).getNumericCellValue(), 0);
+
+            HSSFSheet second = workbook.getSheetAt(2);
+            assertEquals(rowCount - firstRows, second.getLastRowNum());
+            assertEquals("Index", second.getRow(0).getCell(0).getStringCellValue());
+            assertEquals("Text", second.getRow(0).getCell(1).getStringCellValue());
+
+            HSSFCell continued = second.getRow(1).getCell(0);
+            assertEquals(CellType.NUMERIC, continued.getCellType());
+            assertEquals(firstRows, continued.getNumericCellValue(), 0);
+            assertEquals("Row " + (rowCount - 1), second.getRow(rowCount - firstRows).getCell(1).getStringCellValue());
+        }
+        assertSheetRecords(data, "Info", 1, 1, "Rows", XlsSheetStream.MAX_ROWS, 2,
+                "Rows (2)", rowCount - firstRows + 1, 2, "After", 0, 0);
+    }
+
+    private static byte[] write(WorkbookContent content) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        try (XlsWorkbook workbook = new XlsWorkbook()) {
+            content.write(workbook);
+            workbook.finish(output);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Check that each BOUNDSHEET record points to the BOF record of its worksheet, and that the DIMENSIONS record of the
+     * worksheet matches the given number of rows and columns.
+     * @param data the workbook.
+     * @param sheets the name, row count and column count of each worksheet.
+     */
+    private static void assertSheetRecords(byte[] data, Object... sheets) throws IOException {
+        ByteBuffer stream;
+
+        try (POIFSFileSystem fileSystem = new POIFSFileSystem(new ByteArrayInputStream(data));
+             DocumentInputStream input = fileSystem.createDocumentInputStream("Workbook")) {
+            stream = ByteBuffer.wrap(IOUtils.toByteArray(input)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        List<String> names = new ArrayList<>();
+        List<Integer> offsets = new ArrayList<>();
+
+        // The workbook globals
+        for (int position = 0; ; ) {
+            int type = stream.getShort(position) & 0xFFFF;
+            int length = stream.getShort(position + 2) & 0xFFFF;
+
+            if (type == 0x0085) {
+                int nameLength = stream.get(position + 10) & 0xFF;
+                boolean compressed = stream.get(position + 11) == 0;
+
+                offsets.add(stream.getInt(position + 4));
+                names.add(new String(stream.array(), position + 12, compressed ? nameLength : nameLength * 2,
+                        compressed ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_16LE));
+            }
+            position += 4 + length;
+
+            if (type == 0x000A) {
+                assertEquals(position, (int) offsets.get(0));
+                break;
+            }
+        }
+        assertEquals(sheets.length / 3, names.size());
+
+        for (int i = 0; i < names.size(); i++) {
+            int offset = offsets.get(i);
+            assertEquals(sheets[i * 3], names.get(i));
+
+            // BOF of a worksheet, followed by DIMENSIONS
+            assertEquals(0x0809, stream.getShort(offset));
+            assertEquals(0x0010, stream.getShort(offset + 6));
+            int dimensions = offset + 4 + 16;
+            assertEquals(0x0200, stream.getShort(dimensions));
+            assertEquals(0, stream.getInt(dimensions + 4));
+            assertEquals(sheets[i * 3 + 1], stream.getInt(dimensions + 8));
+            assertEquals(0, stream.getShort(dimensions + 12));
+            assertEquals((int) sheets[i * 3 + 2], stream.getShort(dimensions + 14) & 0xFFFF);
+        }
+    }
+}